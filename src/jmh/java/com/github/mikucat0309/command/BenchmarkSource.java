@@ -0,0 +1,30 @@
+package com.github.mikucat0309.command;
+
+import java.util.Optional;
+
+/**
+ * A command source that drops every message, so benchmarks only measure the
+ * command system itself.
+ */
+public final class BenchmarkSource implements CommandSource {
+
+    private final String name;
+
+    public BenchmarkSource(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public void sendMessage(String message) {
+    }
+
+    @Override
+    public Optional<CommandSource> getCommandSource() {
+        return Optional.empty();
+    }
+}
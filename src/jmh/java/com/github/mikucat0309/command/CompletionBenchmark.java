@@ -0,0 +1,73 @@
+package com.github.mikucat0309.command;
+
+import static com.github.mikucat0309.command.args.GenericArguments.string;
+
+import com.github.mikucat0309.command.spec.CommandSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures tab completion at the bottom of a tree of child commands.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompletionBenchmark {
+
+    private static final int FANOUT = 10;
+
+    @Param({"1", "4", "8"})
+    public int depth;
+
+    private CommandManagerImpl manager;
+    private CommandSource source;
+    private String partial;
+
+    @Setup
+    public void setup() {
+        this.manager = new CommandManagerImpl(NOPLogger.NOP_LOGGER);
+        this.manager.register(new MetaData("bench"), level(this.depth), "deep");
+        this.source = new BenchmarkSource("bench");
+        this.partial = "deep " + "sub3 ".repeat(this.depth - 1) + "su";
+    }
+
+    // Every level has FANOUT aliases for one shared child, so the tree stays small at any depth
+    private static CommandSpec level(int depth) {
+        if (depth == 0) {
+            return CommandSpec.builder()
+                    .arguments(string("value"))
+                    .executor((src, args) -> CommandResult.success())
+                    .build();
+        }
+        List<String> aliases = new ArrayList<>();
+        for (int i = 0; i < FANOUT; i++) {
+            aliases.add("sub" + i);
+        }
+        return CommandSpec.builder()
+                .child(level(depth - 1), aliases)
+                .executor((src, args) -> CommandResult.success())
+                .build();
+    }
+
+    @Benchmark
+    public List<String> complete() {
+        return this.manager.getSuggestions(this.source, this.partial);
+    }
+}
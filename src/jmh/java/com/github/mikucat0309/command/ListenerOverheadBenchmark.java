@@ -0,0 +1,78 @@
+package com.github.mikucat0309.command;
+
+import static com.github.mikucat0309.command.args.GenericArguments.integer;
+
+import com.github.mikucat0309.command.args.CommandContext;
+import com.github.mikucat0309.command.spec.CommandSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures what command listeners add to {@link CommandManagerImpl#process}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerOverheadBenchmark {
+
+    @Param({"0", "1", "5"})
+    public int listeners;
+
+    private CommandManagerImpl manager;
+    private CommandSource source;
+
+    @Setup
+    public void setup() {
+        this.manager = new CommandManagerImpl(NOPLogger.NOP_LOGGER);
+        this.manager.setMetricsEnabled(false);
+        this.manager.register(new MetaData("bench"), CommandSpec.builder()
+                .arguments(integer("value"))
+                .executor((src, args) -> CommandResult.success())
+                .build(), "bench");
+        for (int i = 0; i < this.listeners; i++) {
+            this.manager.addListener(new CountingListener());
+        }
+        this.source = new BenchmarkSource("bench");
+    }
+
+    @Benchmark
+    public CommandResult process() {
+        return this.manager.process(this.source, "bench 42");
+    }
+
+    static final class CountingListener implements CommandListener {
+
+        private final LongAdder events = new LongAdder();
+
+        @Override
+        public void onPreDispatch(CommandSource source, String commandLine) {
+            this.events.increment();
+        }
+
+        @Override
+        public void onPostParse(CommandSource source, CommandMapping mapping, CommandContext context) {
+            this.events.increment();
+        }
+
+        @Override
+        public void onPostExecute(CommandSource source, CommandMapping mapping, CommandResult result, long executionNanos) {
+            this.events.increment();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.mikucat0309.command;
+
+import static com.github.mikucat0309.command.args.GenericArguments.flags;
+import static com.github.mikucat0309.command.args.GenericArguments.integer;
+import static com.github.mikucat0309.command.args.GenericArguments.string;
+
+import com.github.mikucat0309.command.spec.CommandSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CommandManagerImpl#process} end to end, from the raw line
+ * to the executor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessBenchmark {
+
+    private CommandManagerImpl manager;
+    private CommandSource source;
+
+    @Setup
+    public void setup() {
+        this.manager = new CommandManagerImpl(NOPLogger.NOP_LOGGER);
+        this.manager.register(new MetaData("bench"), CommandSpec.builder()
+                .arguments(string("player"), integer("amount"))
+                .executor((src, args) -> CommandResult.success())
+                .build(), "give");
+        this.manager.register(new MetaData("bench"), CommandSpec.builder()
+                .arguments(flags().flag("s", "-silent").valueFlag(integer("radius"), "r").buildWith(string("player")))
+                .executor((src, args) -> CommandResult.success())
+                .build(), "kick");
+        this.manager.register(new MetaData("bench"), CommandSpec.builder()
+                .child(CommandSpec.builder()
+                        .arguments(string("name"))
+                        .executor((src, args) -> CommandResult.success())
+                        .build(), "create")
+                .child(CommandSpec.builder()
+                        .arguments(string("name"))
+                        .executor((src, args) -> CommandResult.success())
+                        .build(), "delete")
+                .build(), "region");
+        for (int i = 0; i < 100; i++) {
+            this.manager.register(new MetaData("filler"), CommandSpec.builder()
+                    .executor((src, args) -> CommandResult.success())
+                    .build(), "filler" + i);
+        }
+        this.source = new BenchmarkSource("bench");
+    }
+
+    @Benchmark
+    public CommandResult simple() {
+        return this.manager.process(this.source, "give Steve 64");
+    }
+
+    @Benchmark
+    public CommandResult withFlags() {
+        return this.manager.process(this.source, "kick -s -r 5 Steve");
+    }
+
+    @Benchmark
+    public CommandResult child() {
+        return this.manager.process(this.source, "region create spawn");
+    }
+
+    @Benchmark
+    public CommandResult notFound() {
+        return this.manager.process(this.source, "unknown Steve");
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.mikucat0309.command;
+
+import com.github.mikucat0309.command.dispatcher.SimpleDispatcher;
+import com.github.mikucat0309.command.spec.CommandSpec;
+import org.slf4j.helpers.NOPLogger;
+
+import java.lang.ref.Reference;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Measures the retained heap of the command registry as it grows, for a bare
+ * {@link SimpleDispatcher} and for a {@link CommandManagerImpl}. Every command
+ * has two aliases, like dynamically generated per-region commands, and all
+ * of them share one spec, so only the registry itself is counted.
+ *
+ * <p>Heap usage is read after repeated full collections, which JMH has no
+ * mode for, so this is a plain program: {@code ./gradlew footprint} with an
+ * optional {@code -Pcommands=1000,100000}. Run it with a fixed heap for
+ * stable numbers.</p>
+ */
+public final class RegistryFootprint {
+
+    private static final int[] DEFAULT_COMMANDS = {1_000, 10_000, 100_000};
+    private static final CommandSpec SPEC = CommandSpec.builder()
+            .executor((src, args) -> CommandResult.success())
+            .build();
+
+    private RegistryFootprint() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        var counts = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : DEFAULT_COMMANDS;
+        System.out.printf("%-11s %9s %13s %11s %13s%n", "registry", "commands", "retained KiB", "bytes/cmd", "register ms");
+        for (var count : counts) {
+            report("dispatcher", count, RegistryFootprint::dispatcher);
+            report("manager", count, RegistryFootprint::manager);
+        }
+    }
+
+    private static SimpleDispatcher dispatcher(int count) {
+        var dispatcher = new SimpleDispatcher();
+        for (int i = 0; i < count; i++) {
+            dispatcher.register(SPEC, "region" + i, "r" + i);
+        }
+        return dispatcher;
+    }
+
+    private static CommandManagerImpl manager(int count) {
+        var manager = new CommandManagerImpl(NOPLogger.NOP_LOGGER);
+        var metaData = new MetaData("regions");
+        for (int i = 0; i < count; i++) {
+            manager.register(metaData, SPEC, "region" + i, "r" + i);
+        }
+        return manager;
+    }
+
+    private static void report(String name, int count, IntFunction<Object> registry) throws InterruptedException {
+        // A throwaway run first, so class loading and JIT state are not counted
+        registry.apply(Math.min(count, 1000));
+        var before = usedHeap();
+        var start = System.nanoTime();
+        var built = registry.apply(count);
+        var elapsed = System.nanoTime() - start;
+        var retained = usedHeap() - before;
+        Reference.reachabilityFence(built);
+        System.out.printf("%-11s %9d %13d %11d %13.1f%n", name, count, retained / 1024, retained / count, elapsed / 1e6);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        var runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // The lowest of several full collections, one alone can still see garbage kept alive by other threads
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,234 @@
+package com.github.mikucat0309.command;
+
+import static com.github.mikucat0309.command.args.GenericArguments.integer;
+
+import com.github.mikucat0309.command.metrics.HistogramSnapshot;
+import com.github.mikucat0309.command.metrics.LatencyHistogram;
+import com.github.mikucat0309.command.spec.CommandSpec;
+import org.slf4j.helpers.NOPLogger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures how {@link CommandManagerImpl#process} scales with the number of
+ * calling threads. Every thread count is run against a flat registry and a
+ * registry of nested child commands, once with lookups only and once with a
+ * thread that keeps registering and removing commands. Each run reports the
+ * throughput and the latency percentiles over all threads.
+ *
+ * <p>JMH fixes the thread count per run and cannot mix thread groups with a
+ * thread sweep, so this is a plain program: {@code ./gradlew scalability}
+ * with an optional {@code -Pthreads=1,4,16}.</p>
+ */
+public final class ScalabilityHarness {
+
+    private static final int[] DEFAULT_THREADS = {1, 2, 4, 8, 16, 32, 64};
+    private static final int COMMANDS = 1000;
+    private static final int DEPTH = 4;
+    private static final int FANOUT = 4;
+    private static final Duration WARMUP = Duration.ofSeconds(2);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(5);
+    private static final long CHURN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private ScalabilityHarness() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        var threadCounts = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : DEFAULT_THREADS;
+        System.out.printf("%-7s %-6s %7s %13s %9s %9s %9s %9s %7s %7s%n",
+                "tree", "churn", "threads", "ops/s", "p50 us", "p99 us", "p99.9 us", "max us", "errors", "churns");
+        for (var tree : Tree.values()) {
+            for (var churn : new boolean[] {false, true}) {
+                for (var threads : threadCounts) {
+                    var result = run(tree, churn, threads);
+                    var latency = result.latency;
+                    System.out.printf("%-7s %-6s %7d %13.0f %9.1f %9.1f %9.1f %9.1f %7d %7d%n",
+                            tree.name().toLowerCase(), churn, threads,
+                            latency.getCount() / (MEASUREMENT.toNanos() / 1e9),
+                            micros(latency.getPercentile(50)), micros(latency.getPercentile(99)),
+                            micros(latency.getPercentile(99.9)), micros(latency.getMax()),
+                            result.errors, result.churns);
+                }
+            }
+        }
+    }
+
+    private static double micros(Duration duration) {
+        return duration.toNanos() / 1e3;
+    }
+
+    private static Result run(Tree tree, boolean churn, int threads) throws InterruptedException {
+        var manager = new CommandManagerImpl(NOPLogger.NOP_LOGGER);
+        var commands = tree.populate(manager);
+        var run = new Run();
+        var workers = new ArrayList<Worker>();
+        for (int i = 0; i < threads; i++) {
+            var worker = new Worker(manager, commands, run, i);
+            workers.add(worker);
+            worker.start();
+        }
+        var churns = new AtomicLong();
+        Thread churner = null;
+        if (churn) {
+            churner = new Thread(() -> churn(manager, run, churns), "churn");
+            churner.setDaemon(true);
+            churner.start();
+        }
+
+        Thread.sleep(WARMUP.toMillis());
+        run.measuring = true;
+        Thread.sleep(MEASUREMENT.toMillis());
+        run.measuring = false;
+        run.stopped = true;
+        for (var worker : workers) {
+            worker.join();
+        }
+        if (churner != null) {
+            churner.join();
+        }
+
+        HistogramSnapshot latency = workers.get(0).latency.snapshot();
+        long errors = 0;
+        for (var worker : workers) {
+            if (worker != workers.get(0)) {
+                latency = latency.merge(worker.latency.snapshot());
+            }
+            errors += worker.errors;
+        }
+        return new Result(latency, errors, churns.get());
+    }
+
+    private static void churn(CommandManager manager, Run run, AtomicLong churns) {
+        var metaData = new MetaData("churn");
+        var spec = CommandSpec.builder()
+                .executor((src, args) -> CommandResult.success())
+                .build();
+        long n = 0;
+        while (!run.stopped) {
+            var mapping = manager.register(metaData, spec, "churn" + n++);
+            LockSupport.parkNanos(CHURN_INTERVAL_NANOS);
+            mapping.ifPresent(manager::removeMapping);
+            if (run.measuring) {
+                churns.incrementAndGet();
+            }
+        }
+    }
+
+    private enum Tree {
+        FLAT {
+            @Override
+            String[] populate(CommandManager manager) {
+                var spec = CommandSpec.builder()
+                        .arguments(integer("value"))
+                        .executor((src, args) -> CommandResult.success())
+                        .build();
+                var commands = new String[COMMANDS];
+                for (int i = 0; i < COMMANDS; i++) {
+                    manager.register(new MetaData("flat"), spec, "flat" + i);
+                    commands[i] = "flat" + i + " 42";
+                }
+                return commands;
+            }
+        },
+        NESTED {
+            @Override
+            String[] populate(CommandManager manager) {
+                var spec = level(DEPTH);
+                var commands = new String[COMMANDS];
+                for (int i = 0; i < COMMANDS; i++) {
+                    manager.register(new MetaData("nested"), spec, "nested" + i);
+                    var line = new StringBuilder("nested").append(i);
+                    for (int level = 0; level < DEPTH; level++) {
+                        line.append(" sub").append((i + level) % FANOUT);
+                    }
+                    commands[i] = line.append(" 42").toString();
+                }
+                return commands;
+            }
+
+            // Every level has FANOUT aliases for one shared child, so the tree stays small at any depth
+            private CommandSpec level(int depth) {
+                if (depth == 0) {
+                    return CommandSpec.builder()
+                            .arguments(integer("value"))
+                            .executor((src, args) -> CommandResult.success())
+                            .build();
+                }
+                List<String> aliases = new ArrayList<>();
+                for (int i = 0; i < FANOUT; i++) {
+                    aliases.add("sub" + i);
+                }
+                return CommandSpec.builder()
+                        .child(level(depth - 1), aliases)
+                        .build();
+            }
+        };
+
+        abstract String[] populate(CommandManager manager);
+    }
+
+    private static final class Run {
+
+        volatile boolean measuring;
+        volatile boolean stopped;
+    }
+
+    private static final class Worker extends Thread {
+
+        final CommandManager manager;
+        final String[] commands;
+        final Run run;
+        final CommandSource source;
+        final LatencyHistogram latency = new LatencyHistogram();
+        long errors;
+
+        Worker(CommandManager manager, String[] commands, Run run, int id) {
+            super("worker-" + id);
+            this.manager = manager;
+            this.commands = commands;
+            this.run = run;
+            this.source = new BenchmarkSource("worker-" + id);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            // Start every worker at a different command and step by a prime to avoid lockstep
+            var index = (int) getId() * 31;
+            while (!this.run.stopped) {
+                var command = this.commands[Math.floorMod(index, this.commands.length)];
+                index += 7;
+                var start = System.nanoTime();
+                var result = this.manager.process(this.source, command);
+                var elapsed = System.nanoTime() - start;
+                if (this.run.measuring) {
+                    this.latency.record(elapsed);
+                    if (!CommandResult.success().equals(result)) {
+                        this.errors++;
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Result {
+
+        final HistogramSnapshot latency;
+        final long errors;
+        final long churns;
+
+        Result(HistogramSnapshot latency, long errors, long churns) {
+            this.latency = latency;
+            this.errors = errors;
+            this.churns = churns;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.mikucat0309.command.args;
+
+import static com.github.mikucat0309.command.args.GenericArguments.flags;
+import static com.github.mikucat0309.command.args.GenericArguments.integer;
+import static com.github.mikucat0309.command.args.GenericArguments.string;
+
+import com.github.mikucat0309.command.BenchmarkSource;
+import com.github.mikucat0309.command.CommandSource;
+import com.github.mikucat0309.command.args.parsing.InputTokenizer;
+import com.github.mikucat0309.command.args.parsing.SingleArg;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CommandFlags} parsing on pre-tokenized input, with flags
+ * before, after and mixed with the positional argument.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandFlagsBenchmark {
+
+    @Param({"target", "-a target", "--verbose -c 5 target", "target --count 5 -av"})
+    public String input;
+
+    private CommandElement element;
+    private CommandSource source;
+    private List<SingleArg> tokens;
+
+    @Setup
+    public void setup() throws ArgumentParseException {
+        this.element = flags()
+                .flag("a")
+                .flag("v", "-verbose")
+                .valueFlag(integer("count"), "c", "-count")
+                .buildWith(string("target"));
+        this.source = new BenchmarkSource("bench");
+        this.tokens = InputTokenizer.quotedStrings(false).tokenize(this.input, false);
+    }
+
+    @Benchmark
+    public CommandContext parse() throws ArgumentParseException {
+        var context = new CommandContext();
+        this.element.parse(this.source, new CommandArgs(this.input, this.tokens), context);
+        return context;
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.mikucat0309.command.args.parsing;
+
+import com.github.mikucat0309.command.args.ArgumentParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the input tokenizers on short, quoted and long command lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    private static final String SHORT = "give Steve diamond_sword 1";
+    private static final String QUOTED = "msg Steve \"hello there, how are you\" -f 'single quoted' \\\"escaped\\\"";
+    private static final String LONG = "tp Steve 100 64 -200 ".repeat(20).trim();
+
+    @Param({"quoted", "space", "raw"})
+    public String tokenizer;
+
+    @Param({"short", "quoted", "long"})
+    public String input;
+
+    private InputTokenizer inputTokenizer;
+    private String arguments;
+
+    @Setup
+    public void setup() {
+        switch (this.tokenizer) {
+            case "quoted":
+                this.inputTokenizer = InputTokenizer.quotedStrings(false);
+                break;
+            case "space":
+                this.inputTokenizer = InputTokenizer.spaceSplitString();
+                break;
+            default:
+                this.inputTokenizer = InputTokenizer.rawInput();
+        }
+        switch (this.input) {
+            case "short":
+                this.arguments = SHORT;
+                break;
+            case "quoted":
+                this.arguments = QUOTED;
+                break;
+            default:
+                this.arguments = LONG;
+        }
+    }
+
+    @Benchmark
+    public List<SingleArg> tokenize() throws ArgumentParseException {
+        return this.inputTokenizer.tokenize(this.arguments, false);
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.mikucat0309.command.dispatcher;
+
+import com.github.mikucat0309.command.CommandMapping;
+import com.github.mikucat0309.command.CommandResult;
+import com.github.mikucat0309.command.spec.CommandSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures alias lookups in a {@link SimpleDispatcher} of growing size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatcherBenchmark {
+
+    // A power of two, so the lookup index can wrap with a mask
+    private static final int LOOKUPS = 1024;
+
+    @Param({"10", "1000", "100000"})
+    public int aliases;
+
+    private SimpleDispatcher dispatcher;
+    private String[] hits;
+    private String[] misses;
+    private int next;
+
+    @Setup
+    public void setup() {
+        this.dispatcher = new SimpleDispatcher();
+        var spec = CommandSpec.builder()
+                .executor((src, args) -> CommandResult.success())
+                .build();
+        for (int i = 0; i < this.aliases; i++) {
+            this.dispatcher.register(spec, "command" + i);
+        }
+        this.hits = new String[LOOKUPS];
+        this.misses = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            // Spread the lookups over the whole table instead of hitting one hot entry
+            this.hits[i] = "command" + (int) ((long) i * this.aliases / LOOKUPS);
+            this.misses[i] = "missing" + i;
+        }
+    }
+
+    @Benchmark
+    public Optional<CommandMapping> getHit() {
+        return this.dispatcher.get(this.hits[this.next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public Optional<CommandMapping> getMiss() {
+        return this.dispatcher.get(this.misses[this.next++ & (LOOKUPS - 1)]);
+    }
+}
@@ -2,11 +2,17 @@ package com.github.mikucat0309.command;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 public interface CommandCallable {
 
     CommandResult process(CommandSource source, String arguments) throws CommandException;
 
+    default CompletionStage<CommandResult> processAsync(CommandSource source, String arguments) throws CommandException {
+        return CompletableFuture.completedFuture(process(source, arguments));
+    }
+
     List<String> getSuggestions(CommandSource source, String arguments) throws CommandException;
 
     Optional<String> getShortDescription(CommandSource source);
@@ -1,5 +1,6 @@
 package com.github.mikucat0309.command;
 
+import javax.annotation.Nullable;
 
 public class CommandException extends Exception {
 
@@ -25,6 +26,11 @@ public class CommandException extends Exception {
         this.includeUsage = includeUsage;
     }
 
+    protected CommandException(String message, @Nullable Throwable cause, boolean includeUsage, boolean writableStackTrace) {
+        super(message, cause, true, writableStackTrace);
+        this.includeUsage = includeUsage;
+    }
+
     public boolean shouldIncludeUsage() {
         return this.includeUsage;
     }
@@ -0,0 +1,56 @@
+package com.github.mikucat0309.command;
+
+import com.github.mikucat0309.command.args.CommandContext;
+
+/**
+ * Observes commands going through a {@link CommandManager}, for auditing,
+ * tracing or metrics. Every hook has an empty default, so listeners only
+ * implement what they need.
+ *
+ * <p>Hooks may be called concurrently from several threads. An exception
+ * thrown by a hook is logged and does not affect the command.</p>
+ */
+public interface CommandListener {
+
+    /**
+     * Called before a command line is looked up.
+     *
+     * @param source The source of the command
+     * @param commandLine The full command line
+     */
+    default void onPreDispatch(CommandSource source, String commandLine) {
+    }
+
+    /**
+     * Called after the arguments of a {@link com.github.mikucat0309.command.spec.CommandSpec}
+     * have been parsed, before it is executed.
+     *
+     * @param source The source of the command
+     * @param mapping The mapping of the command
+     * @param context The parsed arguments
+     */
+    default void onPostParse(CommandSource source, CommandMapping mapping, CommandContext context) {
+    }
+
+    /**
+     * Called after a command has executed successfully.
+     *
+     * @param source The source of the command
+     * @param mapping The mapping of the command
+     * @param result The result of the command
+     * @param executionNanos How long the executor ran, in nanoseconds
+     */
+    default void onPostExecute(CommandSource source, CommandMapping mapping, CommandResult result, long executionNanos) {
+    }
+
+    /**
+     * Called when a command line could not be processed, whether it was
+     * unknown, rejected, failed to parse or failed to execute.
+     *
+     * @param source The source of the command
+     * @param commandLine The full command line
+     * @param error The error
+     */
+    default void onError(CommandSource source, String commandLine, Throwable error) {
+    }
+}
@@ -1,9 +1,12 @@
 package com.github.mikucat0309.command;
 
+import com.github.mikucat0309.command.batch.BatchCommand;
+import com.github.mikucat0309.command.batch.BatchResult;
 import com.github.mikucat0309.command.dispatcher.Dispatcher;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 public interface CommandManager extends Dispatcher {
@@ -12,6 +15,18 @@ public interface CommandManager extends Dispatcher {
 
     Optional<CommandMapping> register(MetaData metaData, CommandCallable callable, List<String> aliases);
 
+    /**
+     * Registers a command under the given aliases and their namespaced
+     * forms, {@code <plugin id>:<alias>}.
+     *
+     * @param metaData The plugin that owns the command
+     * @param callable The command
+     * @param aliases The aliases, the first one becomes the primary alias
+     * @param callback Given every alias, plain and namespaced, and returns
+     *     those to register. A namespaced alias stays reachable as long as
+     *     it is returned, whether its plain alias is or not
+     * @return The new mapping, or empty if the callback returned no aliases
+     */
     Optional<CommandMapping> register(MetaData metaData, CommandCallable callable, List<String> aliases,
             Function<List<String>, List<String>> callback);
 
@@ -22,6 +37,44 @@ public interface CommandManager extends Dispatcher {
     @Override
     CommandResult process(CommandSource source, String arguments);
 
+    /**
+     * Processes a command without blocking the caller on its executor.
+     * Errors are reported to the source the same way {@link #process} does,
+     * and the returned future then completes with an empty result.
+     *
+     * @param source The source of the command
+     * @param arguments The full command line
+     * @return A future completed with the command's result
+     */
+    CompletableFuture<CommandResult> processAsync(CommandSource source, String arguments);
+
+    /**
+     * Processes a batch of commands. Every line is parsed up front in
+     * parallel, then executed in submission order, or concurrently if the
+     * caller declares the commands independent of each other.
+     *
+     * <p>Unlike {@link #process}, failures are not reported to the sources;
+     * they are returned in the per-line entries of the result.</p>
+     *
+     * @param commands The commands to process
+     * @param independent Whether the commands may execute concurrently
+     * @return The per-line outcomes and aggregate timings
+     */
+    BatchResult processBatch(List<BatchCommand> commands, boolean independent);
+
+    default BatchResult processBatch(List<BatchCommand> commands) {
+        return processBatch(commands, false);
+    }
+
+    /**
+     * Registers a listener that observes every command from now on.
+     *
+     * @param listener The listener
+     */
+    void addListener(CommandListener listener);
+
+    void removeListener(CommandListener listener);
+
     @Override
     List<String> getSuggestions(CommandSource source, String arguments);
 
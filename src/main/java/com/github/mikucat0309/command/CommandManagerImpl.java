@@ -1,11 +1,37 @@
 package com.github.mikucat0309.command;
 
 import static com.github.mikucat0309.command.CommandMessageFormatting.error;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.github.mikucat0309.command.args.ArgumentParseException;
+import com.github.mikucat0309.command.args.CommandArgs;
+import com.github.mikucat0309.command.args.CommandContext;
+import com.github.mikucat0309.command.args.CommandElement;
+import com.github.mikucat0309.command.args.ParseProfiler;
+import com.github.mikucat0309.command.batch.BatchCommand;
+import com.github.mikucat0309.command.batch.BatchResult;
 import com.github.mikucat0309.command.dispatcher.Disambiguator;
 import com.github.mikucat0309.command.dispatcher.SimpleDispatcher;
+import com.github.mikucat0309.command.execution.AdmissionController;
+import com.github.mikucat0309.command.execution.Bulkhead;
+import com.github.mikucat0309.command.execution.Bulkheads;
+import com.github.mikucat0309.command.execution.CancellationToken;
+import com.github.mikucat0309.command.execution.ConcurrencyLimiter;
+import com.github.mikucat0309.command.execution.ExecutionContext;
+import com.github.mikucat0309.command.execution.ExecutionWatchdog;
+import com.github.mikucat0309.command.execution.PriorityExecutor;
+import com.github.mikucat0309.command.execution.ResourceAccountant;
+import com.github.mikucat0309.command.execution.SourceMailboxes;
+import com.github.mikucat0309.command.execution.VirtualThreads;
+import com.github.mikucat0309.command.jfr.CommandCompletionEvent;
+import com.github.mikucat0309.command.jfr.CommandDispatchEvent;
+import com.github.mikucat0309.command.jfr.CommandRegistrationEvent;
+import com.github.mikucat0309.command.journal.CommandJournal;
+import com.github.mikucat0309.command.metrics.CommandMetrics;
+import com.github.mikucat0309.command.metrics.SlowCommandLog;
+import com.github.mikucat0309.command.spec.CommandSpec;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -14,6 +40,7 @@ import org.slf4j.Logger;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -24,9 +51,18 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 
 import javax.annotation.Nullable;
 
@@ -34,12 +70,42 @@ import javax.annotation.Nullable;
 public class CommandManagerImpl implements CommandManager {
 
     private static final Pattern SPACE_PATTERN = Pattern.compile(" ", Pattern.LITERAL);
+    private static final CommandListener[] NO_LISTENERS = new CommandListener[0];
     private final Logger logger;
     private final SimpleDispatcher dispatcher;
     private final Multimap<MetaData, CommandMapping> owners = HashMultimap.create();
     private final Map<CommandMapping, MetaData> reverseOwners = new ConcurrentHashMap<>();
     private final Object lock = new Object();
-
+    private volatile CommandNotFoundHandler notFoundHandler = CommandNotFoundHandler.errorMessage();
+    private volatile int maxSuggestions = 3;
+    private volatile Duration suggestionBudget = Duration.ofMillis(2);
+    private volatile Executor executor = ForkJoinPool.commonPool();
+    // The executor created by useVirtualThreads, shut down once it is replaced
+    @Nullable
+    private ExecutorService ownedExecutor;
+    @Nullable
+    private volatile Executor parserExecutor;
+    @Nullable
+    private volatile ConcurrencyLimiter concurrencyLimiter;
+    @Nullable
+    private volatile SourceMailboxes sourceMailboxes;
+    @Nullable
+    private volatile AdmissionController admissionController;
+    @Nullable
+    private volatile Duration defaultTimeout;
+    @Nullable
+    private volatile Bulkheads bulkheads;
+    @Nullable
+    private volatile ResourceAccountant resourceAccountant;
+    @Nullable
+    private volatile SlowCommandLog slowCommandLog;
+    @Nullable
+    private volatile ParseProfiler parseProfiler;
+    @Nullable
+    private volatile CommandJournal journal;
+    private final CommandMetrics metrics = new CommandMetrics();
+    private volatile boolean metricsEnabled = true;
+    private volatile CommandListener[] listeners = NO_LISTENERS;
 
     public CommandManagerImpl(Logger logger) {
         this(logger, SimpleDispatcher.FIRST_DISAMBIGUATOR);
@@ -61,6 +127,339 @@ public class CommandManagerImpl implements CommandManager {
         return description;
     }
 
+    public CommandNotFoundHandler getNotFoundHandler() {
+        return this.notFoundHandler;
+    }
+
+    public void setNotFoundHandler(CommandNotFoundHandler notFoundHandler) {
+        this.notFoundHandler = checkNotNull(notFoundHandler, "notFoundHandler");
+    }
+
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Sets the executor that {@link #processAsync} runs command executors on.
+     * Defaults to the common fork/join pool. With a {@link PriorityExecutor},
+     * each command is queued at the higher of its source's and its spec's
+     * priority. The caller keeps ownership of the executor and shuts it
+     * down when done.
+     *
+     * @param executor The executor
+     */
+    public void setExecutor(Executor executor) {
+        replaceExecutor(checkNotNull(executor, "executor"), null);
+    }
+
+    private synchronized void replaceExecutor(Executor executor, @Nullable ExecutorService owned) {
+        final ExecutorService previous = this.ownedExecutor;
+        this.executor = executor;
+        this.ownedExecutor = owned;
+        if (previous != null) {
+            // Running commands finish, commands submitted to it from now on are rejected
+            previous.shutdown();
+        }
+    }
+
+    public Optional<Executor> getParserExecutor() {
+        return Optional.ofNullable(this.parserExecutor);
+    }
+
+    /**
+     * Sets the executor that {@link #processAsync} tokenizes and parses
+     * commands on. When unset, parsing happens on the calling thread.
+     *
+     * @param parserExecutor The executor, or null to parse on the caller
+     */
+    public void setParserExecutor(@Nullable Executor parserExecutor) {
+        this.parserExecutor = parserExecutor;
+    }
+
+    public Optional<ConcurrencyLimiter> getConcurrencyLimiter() {
+        return Optional.ofNullable(this.concurrencyLimiter);
+    }
+
+    /**
+     * Sets the limiter that bounds how many commands {@link #processAsync}
+     * runs at once. Commands over the limit wait on their executor thread.
+     *
+     * @param concurrencyLimiter The limiter, or null for no limit
+     */
+    public void setConcurrencyLimiter(@Nullable ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * Runs every command from {@link #processAsync} on its own virtual thread,
+     * or on its own daemon platform thread when the runtime has no virtual
+     * threads. The manager owns that executor and shuts it down when another
+     * one replaces it.
+     *
+     * @param maxConcurrent The maximum number of commands running at once
+     * @param maxConcurrentPerCommand The maximum number of invocations of a
+     *     single command running at once
+     */
+    public void useVirtualThreads(int maxConcurrent, int maxConcurrentPerCommand) {
+        setConcurrencyLimiter(new ConcurrencyLimiter(maxConcurrent, maxConcurrentPerCommand));
+        final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("command-executor");
+        replaceExecutor(executor, executor);
+    }
+
+    public Optional<SourceMailboxes> getSourceMailboxes() {
+        return Optional.ofNullable(this.sourceMailboxes);
+    }
+
+    /**
+     * Queues commands in per-source mailboxes, so commands from different
+     * sources run in parallel while each source's commands run in order.
+     * {@link #process} then waits for the command's turn, except when called
+     * from inside a running command.
+     *
+     * @param sourceMailboxes The mailboxes, or null to run commands directly
+     */
+    public void setSourceMailboxes(@Nullable SourceMailboxes sourceMailboxes) {
+        this.sourceMailboxes = sourceMailboxes;
+    }
+
+    public Optional<Duration> getDefaultTimeout() {
+        return Optional.ofNullable(this.defaultTimeout);
+    }
+
+    /**
+     * Sets how long commands may take to parse, and separately how long they
+     * may take to execute, unless their spec declares its own timeout. The
+     * execution deadline starts when the executor is invoked, so time spent
+     * queued, waiting for a permit or behind earlier commands of a batch is
+     * not counted. Executors see it through
+     * {@link CommandContext#getCancellationToken()}; once it passes the
+     * caller gets a {@link CommandTimeoutException} and the thread running
+     * the command is interrupted.
+     *
+     * @param defaultTimeout The timeout, or null for none
+     */
+    public void setDefaultTimeout(@Nullable Duration defaultTimeout) {
+        checkArgument(defaultTimeout == null || !defaultTimeout.isNegative() && !defaultTimeout.isZero(),
+                "defaultTimeout must be positive");
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    public Optional<Bulkheads> getBulkheads() {
+        return Optional.ofNullable(this.bulkheads);
+    }
+
+    /**
+     * Runs the commands of each plugin in its own bulkhead, so a plugin
+     * that hangs or keeps failing cannot take every worker with it. The
+     * bulkheads also keep the execution metrics of each plugin.
+     *
+     * @param bulkheads The bulkheads, or null to share resources between all plugins
+     */
+    public void setBulkheads(@Nullable Bulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    public void addListener(CommandListener listener) {
+        checkNotNull(listener, "listener");
+        synchronized (this.lock) {
+            final CommandListener[] current = this.listeners;
+            final CommandListener[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = listener;
+            this.listeners = updated;
+        }
+    }
+
+    @Override
+    public void removeListener(CommandListener listener) {
+        synchronized (this.lock) {
+            final CommandListener[] current = this.listeners;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == listener) {
+                    final CommandListener[] updated = new CommandListener[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    this.listeners = updated.length == 0 ? NO_LISTENERS : updated;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the latency histograms and outcome counters of every command
+     * processed so far. Snapshots can be taken while commands keep running.
+     *
+     * @return The command metrics
+     */
+    public CommandMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    public boolean isMetricsEnabled() {
+        return this.metricsEnabled;
+    }
+
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    public Optional<CommandJournal> getJournal() {
+        return Optional.ofNullable(this.journal);
+    }
+
+    /**
+     * Appends every processed command line to a journal, with its source,
+     * outcome and latency. The manager does not close the journal.
+     *
+     * @param journal The journal, or null to stop journaling
+     */
+    public void setJournal(@Nullable CommandJournal journal) {
+        this.journal = journal;
+    }
+
+    public Optional<ParseProfiler> getParseProfiler() {
+        return Optional.ofNullable(this.parseProfiler);
+    }
+
+    /**
+     * Profiles every element of every command parsed from now on. The
+     * profiler reports each spec under the primary alias it was first
+     * parsed with.
+     *
+     * @param parseProfiler The profiler, or null to stop profiling
+     */
+    public void setParseProfiler(@Nullable ParseProfiler parseProfiler) {
+        this.parseProfiler = parseProfiler;
+    }
+
+    public Optional<SlowCommandLog> getSlowCommandLog() {
+        return Optional.ofNullable(this.slowCommandLog);
+    }
+
+    /**
+     * Logs commands and tab completions that take longer than the log's
+     * threshold, together with their phase timings and the element that
+     * took longest to parse.
+     *
+     * @param slowCommandLog The log, or null to stop detecting slow calls
+     */
+    public void setSlowCommandLog(@Nullable SlowCommandLog slowCommandLog) {
+        this.slowCommandLog = slowCommandLog;
+    }
+
+    public Optional<ResourceAccountant> getResourceAccountant() {
+        return Optional.ofNullable(this.resourceAccountant);
+    }
+
+    /**
+     * Measures the CPU time and allocation of command executions per plugin
+     * and command. Plugins over their quota have their commands refused
+     * until the quota window has passed.
+     *
+     * @param resourceAccountant The accountant, or null to stop measuring
+     */
+    public void setResourceAccountant(@Nullable ResourceAccountant resourceAccountant) {
+        this.resourceAccountant = resourceAccountant;
+    }
+
+    public Optional<AdmissionController> getAdmissionController() {
+        return Optional.ofNullable(this.admissionController);
+    }
+
+    /**
+     * Rate limits commands and tab completions before they are parsed.
+     * Shed commands are reported to their source like any other failure.
+     *
+     * @param admissionController The controller, or null to admit everything
+     */
+    public void setAdmissionController(@Nullable AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    /**
+     * Sets how many "did you mean" suggestions are offered for an unknown
+     * command, and how long looking them up may take.
+     *
+     * @param maxSuggestions The maximum number of suggestions, 0 to disable
+     * @param budget The time allowed for each lookup
+     */
+    public void setSuggestionLimits(int maxSuggestions, Duration budget) {
+        checkArgument(maxSuggestions >= 0, "maxSuggestions must not be negative");
+        this.maxSuggestions = maxSuggestions;
+        this.suggestionBudget = checkNotNull(budget, "budget");
+    }
+
+    private void rejectUnknown(CommandSource source, String commandLine, String alias) {
+        final Supplier<List<String>> suggestions = similarAliases(alias);
+        final CommandListener[] listeners = this.listeners;
+        if (listeners.length != 0) {
+            fireError(listeners, source, commandLine, new CommandNotFoundException("commands.generic.notFound", alias, suggestions));
+        }
+        commandNotFound(source, alias, suggestions);
+    }
+
+    private void firePreDispatch(CommandListener[] listeners, CommandSource source, String commandLine) {
+        for (CommandListener listener : listeners) {
+            try {
+                listener.onPreDispatch(source, commandLine);
+            } catch (RuntimeException e) {
+                this.logger.error("Error occurred in command listener " + listener, e);
+            }
+        }
+    }
+
+    private void firePostParse(CommandListener[] listeners, CommandSource source, CommandMapping mapping, CommandContext context) {
+        for (CommandListener listener : listeners) {
+            try {
+                listener.onPostParse(source, mapping, context);
+            } catch (RuntimeException e) {
+                this.logger.error("Error occurred in command listener " + listener, e);
+            }
+        }
+    }
+
+    private void firePostExecute(CommandListener[] listeners, CommandSource source, CommandMapping mapping, CommandResult result,
+            long executionNanos) {
+        for (CommandListener listener : listeners) {
+            try {
+                listener.onPostExecute(source, mapping, result, executionNanos);
+            } catch (RuntimeException e) {
+                this.logger.error("Error occurred in command listener " + listener, e);
+            }
+        }
+    }
+
+    private void fireError(CommandListener[] listeners, CommandSource source, String commandLine, Throwable error) {
+        for (CommandListener listener : listeners) {
+            try {
+                listener.onError(source, commandLine, error);
+            } catch (RuntimeException e) {
+                this.logger.error("Error occurred in command listener " + listener, e);
+            }
+        }
+    }
+
+    private void commandNotFound(CommandSource source, String alias, Supplier<List<String>> suggestions) {
+        if (this.metricsEnabled) {
+            this.metrics.recordNotFound();
+        }
+        this.notFoundHandler.handle(source, alias, suggestions);
+    }
+
+    // Shared by the exception and the not found handler, so the registry is searched at most once
+    private Supplier<List<String>> similarAliases(String alias) {
+        return Suppliers.memoize(() -> getSimilarAliases(alias));
+    }
+
+    public List<String> getSimilarAliases(String alias) {
+        var limit = this.maxSuggestions;
+        if (limit == 0 || alias.isEmpty()) {
+            return ImmutableList.of();
+        }
+        return this.dispatcher.getSimilarAliases(alias, Math.min(3, 1 + alias.length() / 4), limit, this.suggestionBudget);
+    }
+
     @Override
     public Optional<CommandMapping> register(MetaData metaData, CommandCallable callable, String... alias) {
         return register(metaData, callable, Arrays.asList(alias));
@@ -77,11 +476,11 @@ public class CommandManagerImpl implements CommandManager {
         checkNotNull(metaData, "plugin");
 
         synchronized (this.lock) {
-            // <namespace>:<alias> for all commands
-            List<String> aliasesWithPrefix = new ArrayList<>(aliases.size() * 3);
+            // <namespace>:<alias> for all commands, offered to the callback like the plain aliases
+            List<String> fixedAliases = new ArrayList<>(aliases.size() * 2);
             for (final String originalAlias : aliases) {
                 final String alias = this.fixAlias(metaData, originalAlias);
-                if (aliasesWithPrefix.contains(alias)) {
+                if (fixedAliases.contains(alias)) {
                     this.logger.debug("Plugin '{}' is attempting to register duplicate alias '{}'", metaData.id, alias);
                     continue;
                 }
@@ -92,21 +491,44 @@ public class CommandManagerImpl implements CommandManager {
                     }
                 }
 
-                aliasesWithPrefix.add(alias);
-                aliasesWithPrefix.add(metaData.id + ':' + alias);
+                fixedAliases.add(alias);
+                fixedAliases.add(metaData.id + ':' + alias);
             }
 
-            Optional<CommandMapping> mapping = this.dispatcher.register(callable, aliasesWithPrefix, callback);
+            final CommandRegistrationEvent event = new CommandRegistrationEvent();
+            event.begin();
+            Optional<CommandMapping> mapping = this.dispatcher.register(callable, fixedAliases,
+                    offered -> withoutResolvedNamespaces(metaData, callback.apply(offered)));
 
             if (mapping.isPresent()) {
                 this.owners.put(metaData, mapping.get());
                 this.reverseOwners.put(mapping.get(), metaData);
             }
 
+            event.end();
+            if (event.shouldCommit()) {
+                event.alias = mapping.map(CommandMapping::getPrimaryAlias).orElse(aliases.isEmpty() ? null : aliases.get(0));
+                event.plugin = metaData.getId();
+                event.aliases = mapping.map(registered -> registered.getAllAliases().size()).orElse(0);
+                event.failed = mapping.isEmpty();
+                event.commit();
+            }
             return mapping;
         }
     }
 
+    // A namespaced alias is resolved from the owner of its plain alias, so it is only registered if the plain one was not
+    private static List<String> withoutResolvedNamespaces(final MetaData metaData, final List<String> aliases) {
+        final String prefix = metaData.id + ':';
+        final List<String> kept = new ArrayList<>(aliases.size());
+        for (String alias : aliases) {
+            if (!alias.startsWith(prefix) || !aliases.contains(alias.substring(prefix.length()))) {
+                kept.add(alias);
+            }
+        }
+        return kept;
+    }
+
     private String fixAlias(final MetaData metaData, final String original) {
         String fixed = original.toLowerCase(Locale.ENGLISH);
         final boolean caseChanged = !original.equals(fixed);
@@ -125,10 +547,22 @@ public class CommandManagerImpl implements CommandManager {
     @Override
     public Optional<CommandMapping> removeMapping(CommandMapping mapping) {
         synchronized (this.lock) {
+            final CommandRegistrationEvent event = new CommandRegistrationEvent();
+            event.begin();
             Optional<CommandMapping> removed = this.dispatcher.removeMapping(mapping);
 
             removed.ifPresent(this::forgetMapping);
 
+            event.end();
+            if (event.shouldCommit()) {
+                final MetaData owner = this.reverseOwners.get(mapping);
+                event.alias = mapping.getPrimaryAlias();
+                event.plugin = owner == null ? null : owner.getId();
+                event.removal = true;
+                event.aliases = mapping.getAllAliases().size();
+                event.failed = removed.isEmpty();
+                event.commit();
+            }
             return removed;
         }
     }
@@ -166,17 +600,43 @@ public class CommandManagerImpl implements CommandManager {
 
     @Override
     public Optional<CommandMapping> get(String alias) {
-        return this.dispatcher.get(alias);
+        return lookup(alias, null);
     }
 
     @Override
     public Optional<? extends CommandMapping> get(String alias, @Nullable CommandSource source) {
-        return this.dispatcher.get(alias, source);
+        return lookup(alias, source);
+    }
+
+    private Optional<CommandMapping> lookup(final String alias, @Nullable final CommandSource source) {
+        final Optional<CommandMapping> mapping = this.dispatcher.get(alias, source);
+        final int colon = alias.indexOf(':');
+        if (mapping.isPresent() || colon == -1) {
+            return mapping;
+        }
+        // <namespace>:<alias> picks the mapping of the alias owned by that plugin, a plugin owns at most one
+        final String namespace = alias.substring(0, colon);
+        return this.dispatcher.find(alias.substring(colon + 1), candidate -> {
+            final MetaData owner = this.reverseOwners.get(candidate);
+            return owner != null && owner.id.equalsIgnoreCase(namespace);
+        });
+    }
+
+    private boolean mightContainAlias(final String alias) {
+        if (this.dispatcher.mightContainAlias(alias)) {
+            return true;
+        }
+        final int colon = alias.indexOf(':');
+        return colon != -1 && this.dispatcher.mightContainAlias(alias.substring(colon + 1));
     }
 
     @Override
     public Set<? extends CommandMapping> getAll(String alias) {
-        return this.dispatcher.getAll(alias);
+        final Set<CommandMapping> mappings = this.dispatcher.getAll(alias);
+        if (!mappings.isEmpty() || alias.indexOf(':') == -1) {
+            return mappings;
+        }
+        return lookup(alias, null).map(ImmutableSet::of).orElse(ImmutableSet.of());
     }
 
     @Override
@@ -186,7 +646,7 @@ public class CommandManagerImpl implements CommandManager {
 
     @Override
     public boolean containsAlias(String alias) {
-        return this.dispatcher.containsAlias(alias);
+        return this.dispatcher.containsAlias(alias) || alias.indexOf(':') != -1 && lookup(alias, null).isPresent();
     }
 
     @Override
@@ -194,78 +654,835 @@ public class CommandManagerImpl implements CommandManager {
         return this.dispatcher.containsMapping(mapping);
     }
 
+    @Override
+    public long getVersion() {
+        return this.dispatcher.getVersion();
+    }
+
     @Override
     public CommandResult process(final CommandSource source, final String command) {
+        final SourceMailboxes mailboxes = this.sourceMailboxes;
+        if (mailboxes != null && ExecutionContext.getCurrentSource().isEmpty()) {
+            return processAsync(source, command).join();
+        }
+
+        final CommandDispatchEvent event = new CommandDispatchEvent();
+        event.begin();
+        try {
+            return dispatch(source, command, event);
+        } finally {
+            commitDispatchEvent(event, source);
+        }
+    }
 
-        String commandLine;
-        final String[] argSplit = command.split(" ", 2);
-        commandLine = command;
+    private static void commitDispatchEvent(final CommandDispatchEvent event, final CommandSource source) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = source.getName();
+            event.commit();
+        }
+    }
 
+    private CommandResult dispatch(final CommandSource source, final String command, final CommandDispatchEvent event) {
+        final CommandListener[] listeners = this.listeners;
+        if (listeners.length != 0) {
+            firePreDispatch(listeners, source, command);
+        }
+        final SlowCommandLog slowLog = this.slowCommandLog;
+        final CommandJournal journal = this.journal;
+        final long dispatchStart = slowLog == null && journal == null ? 0 : System.nanoTime();
+        final long receivedAt = journal == null ? 0 : System.currentTimeMillis();
+        // Reject unknown commands before splitting the line or touching the dispatcher
+        final String alias = getAlias(command);
+        event.alias = alias;
+        if (!mightContainAlias(alias)) {
+            event.failed = true;
+            rejectUnknown(source, command, alias);
+            if (journal != null) {
+                journal(journal, source, command, CommandMetrics.Outcome.NOT_FOUND, receivedAt, dispatchStart);
+            }
+            return CommandResult.empty();
+        }
+
+        PreparedCommand prepared = null;
         try {
+            prepared = prepare(source, command);
+            event.tokens = prepared.tokenCount;
+            final Bulkhead bulkhead = bulkheadFor(prepared);
+            final long ticket = bulkhead == null ? 0 : bulkhead.acquire();
+            final ResourceAccountant accountant = this.resourceAccountant;
+            final ResourceAccountant.Sample sample = accountant == null ? null : accountant.start();
+            final ExecutionContext.Scope scope = ExecutionContext.enter(source);
+            Throwable failure = null;
+            final long start = prepared.stats == null && listeners.length == 0 && slowLog == null ? 0 : System.nanoTime();
             try {
-                return this.dispatcher.process(source, commandLine);
-            } catch (InvocationCommandException ex) {
-                if (ex.getCause() != null) {
-                    throw ex.getCause();
+                final CommandResult result = prepared.execute(source);
+                if (prepared.stats != null) {
+                    prepared.stats.count(CommandMetrics.Outcome.SUCCESS);
+                }
+                if (listeners.length != 0) {
+                    firePostExecute(listeners, source, prepared.mapping, result, System.nanoTime() - start);
+                }
+                if (journal != null) {
+                    journal(journal, source, command, CommandMetrics.Outcome.SUCCESS, receivedAt, dispatchStart);
                 }
-            } catch (CommandPermissionException ex) {
-                String text = ex.getMessage();
-                if (text != null) {
-                    source.sendMessage(error(text));
+                return result;
+            } catch (Throwable thr) {
+                failure = thr;
+                throw thr;
+            } finally {
+                final long end = prepared.stats == null && slowLog == null ? 0 : System.nanoTime();
+                if (prepared.stats != null) {
+                    prepared.stats.record(CommandMetrics.Phase.EXECUTE, end - start);
                 }
-            } catch (CommandException ex) {
-                String text = ex.getMessage();
-                if (text != null) {
-                    source.sendMessage(error(text));
+                if (slowLog != null && slowLog.isSlow(end - dispatchStart)) {
+                    logSlowCommand(slowLog, alias, prepared, end - start, end - dispatchStart);
                 }
+                scope.close();
+                if (accountant != null) {
+                    accountant.record(sample, prepared.getOwnerId(), prepared.mapping.getPrimaryAlias());
+                }
+                if (bulkhead != null) {
+                    bulkhead.release(ticket, failure);
+                }
+            }
+        } catch (Throwable thr) {
+            event.failed = true;
+            if (prepared == null && slowLog != null && slowLog.isSlow(System.nanoTime() - dispatchStart)) {
+                // Failed while parsing, there are no phase timings to report
+                slowLog.command(alias, getArguments(command), -1, -1, -1, System.nanoTime() - dispatchStart, null, -1);
+            }
+            if (thr instanceof ArgumentParseException) {
+                event.failedElement = ((ArgumentParseException) thr).getElementKey().orElse(null);
+            }
+            if (journal != null) {
+                journal(journal, source, command, outcomeOf(thr), receivedAt, dispatchStart);
+            }
+            return handleFailure(source, command, thr);
+        }
+    }
 
-                if (ex.shouldIncludeUsage()) {
-                    final Optional<CommandMapping> mapping = this.dispatcher.get(argSplit[0], source);
-                    if (mapping.isPresent()) {
-                        String usage;
-                        if (ex instanceof ArgumentParseException.WithUsage) {
-                            usage = ((ArgumentParseException.WithUsage) ex).getUsage();
-                        } else {
-                            usage = mapping.get().getCallable().getUsage(source);
+    @Override
+    public CompletableFuture<CommandResult> processAsync(final CommandSource source, final String command) {
+        // Ends on whichever thread completes the command, so the event spans the whole asynchronous dispatch
+        final CommandDispatchEvent event = new CommandDispatchEvent();
+        event.begin();
+        final CommandListener[] listeners = this.listeners;
+        if (listeners.length != 0) {
+            firePreDispatch(listeners, source, command);
+        }
+        final CommandJournal journal = this.journal;
+        final long start = System.nanoTime();
+        final long receivedAt = journal == null ? 0 : System.currentTimeMillis();
+        final String alias = getAlias(command);
+        event.alias = alias;
+        if (!mightContainAlias(alias)) {
+            event.failed = true;
+            rejectUnknown(source, command, alias);
+            if (journal != null) {
+                journal(journal, source, command, CommandMetrics.Outcome.NOT_FOUND, receivedAt, start);
+            }
+            commitDispatchEvent(event, source);
+            return CompletableFuture.completedFuture(CommandResult.empty());
+        }
+
+        final SourceMailboxes mailboxes = this.sourceMailboxes;
+        final CompletableFuture<CommandResult> result;
+        if (mailboxes != null && ExecutionContext.getCurrentSource().isEmpty()) {
+            // Failures of the command itself are handled by processAsyncNow, this only sees rejections by the mailbox
+            result = mailboxes.submit(source, () -> processAsyncNow(source, command, alias, event, journal, receivedAt, start))
+                    .exceptionally(thr -> {
+                        final Throwable cause = unwrap(thr);
+                        event.failed = true;
+                        if (journal != null) {
+                            journal(journal, source, command, outcomeOf(cause), receivedAt, start);
                         }
+                        return handleFailure(source, command, cause);
+                    });
+        } else {
+            result = processAsyncNow(source, command, alias, event, journal, receivedAt, start);
+        }
+        return result.whenComplete((value, thr) -> commitDispatchEvent(event, source));
+    }
 
-                        source.sendMessage(error(String.format("Usage: /%s %s", argSplit[0], usage)));
-                    }
+    private CompletableFuture<CommandResult> processAsyncNow(final CommandSource source, final String command, final String alias,
+            final CommandDispatchEvent event, @Nullable final CommandJournal journal, final long receivedAt, final long start) {
+        final SlowCommandLog slowLog = this.slowCommandLog;
+        final Executor parserExecutor = this.parserExecutor;
+        CompletableFuture<PreparedCommand> prepared;
+        if (parserExecutor == null) {
+            try {
+                prepared = CompletableFuture.completedFuture(prepare(source, command));
+            } catch (Throwable thr) {
+                prepared = CompletableFuture.failedFuture(thr);
+            }
+        } else {
+            prepared = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return prepare(source, command);
+                } catch (CommandException ex) {
+                    throw new CompletionException(ex);
+                }
+            }, parserExecutor);
+        }
+        final CompletableFuture<PreparedCommand> parsed = prepared;
+        final CompletableFuture<CommandResult> result = parsed.thenCompose(preparedCommand -> {
+            event.tokens = preparedCommand.tokenCount;
+            final CompletableFuture<CommandResult> executed = executeOn(executorFor(source, preparedCommand), source, preparedCommand);
+            if (slowLog == null) {
+                return executed;
+            }
+            // Measured from the hand-off to the executor, so time spent waiting for a thread counts as execution
+            final long executeStart = System.nanoTime();
+            return executed.whenComplete((value, thr) -> {
+                final long end = System.nanoTime();
+                if (slowLog.isSlow(end - start)) {
+                    logSlowCommand(slowLog, alias, preparedCommand, end - executeStart, end - start);
+                }
+            });
+        });
+        return result.handle((value, thr) -> {
+            if (thr == null) {
+                if (journal != null) {
+                    journal(journal, source, command, CommandMetrics.Outcome.SUCCESS, receivedAt, start);
+                }
+                return value;
+            }
+            final Throwable cause = unwrap(thr);
+            event.failed = true;
+            if (cause instanceof ArgumentParseException) {
+                event.failedElement = ((ArgumentParseException) cause).getElementKey().orElse(null);
+            }
+            if (slowLog != null && parsed.isCompletedExceptionally() && slowLog.isSlow(System.nanoTime() - start)) {
+                // Failed while parsing, there are no phase timings to report
+                slowLog.command(alias, getArguments(command), -1, -1, -1, System.nanoTime() - start, null, -1);
+            }
+            if (journal != null) {
+                journal(journal, source, command, outcomeOf(cause), receivedAt, start);
+            }
+            return handleFailure(source, command, cause);
+        });
+    }
+
+    private Executor executorFor(final CommandSource source, final PreparedCommand prepared) {
+        final Executor executor = this.executor;
+        if (executor instanceof PriorityExecutor) {
+            CommandPriority priority = source.getPriority();
+            if (prepared.spec != null && prepared.spec.getPriority().isPresent()) {
+                priority = CommandPriority.highest(priority, prepared.spec.getPriority().get());
+            }
+            return ((PriorityExecutor) executor).withPriority(priority);
+        }
+        return executor;
+    }
+
+    private CompletableFuture<CommandResult> executeOn(final Executor executor, final CommandSource source,
+            final PreparedCommand prepared) {
+        final Bulkhead bulkhead = bulkheadFor(prepared);
+        if (bulkhead != null) {
+            // Waits for a slot in the bulkhead's queue rather than on a pool thread
+            return bulkhead.submit(executor, ticket -> executeLimited(source, prepared, bulkhead, ticket));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return executeLimited(source, prepared, null, 0);
+                } catch (CommandException ex) {
+                    throw new CompletionException(ex);
                 }
+            }, executor).thenCompose(Function.identity());
+        } catch (RejectedExecutionException ex) {
+            return CompletableFuture.failedFuture(new CommandRejectedException("The server is too busy to run this command, try again later"));
+        }
+    }
+
+    @Override
+    public BatchResult processBatch(final List<BatchCommand> commands, final boolean independent) {
+        checkNotNull(commands, "commands");
+        final int size = commands.size();
+
+        // Parsing has no side effects, so every line is parsed on the fork/join pool regardless of the mode
+        final Object[] prepared = new Object[size];
+        final long parseStart = System.nanoTime();
+        final long receivedAt = System.currentTimeMillis();
+        IntStream.range(0, size).parallel().forEach(i -> prepared[i] = tryPrepare(commands.get(i)));
+        final long parseNanos = System.nanoTime() - parseStart;
+
+        final List<CompletableFuture<BatchResult.Entry>> pending = new ArrayList<>(size);
+        final long executeStart = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            final BatchCommand command = commands.get(i);
+            final Object parsed = prepared[i];
+            if (parsed instanceof Throwable) {
+                pending.add(journalBatched(CompletableFuture.completedFuture(batchFailure(command, (Throwable) parsed)), receivedAt, parseStart));
+                continue;
+            }
+            CompletableFuture<BatchResult.Entry> entry = independent
+                    ? executeOn(executorFor(command.getSource(), (PreparedCommand) parsed), command.getSource(), (PreparedCommand) parsed)
+                            .handle((result, thr) -> thr == null
+                                    ? BatchResult.Entry.success(command, result)
+                                    : batchFailure(command, unwrap(thr)))
+                    : executeBatched(command, (PreparedCommand) parsed);
+            entry = journalBatched(entry, receivedAt, parseStart);
+            if (!independent) {
+                // Wait for each command before starting the next to keep submission order
+                entry.join();
+            }
+            pending.add(entry);
+        }
+        final List<BatchResult.Entry> entries = new ArrayList<>(size);
+        for (CompletableFuture<BatchResult.Entry> entry : pending) {
+            entries.add(entry.join());
+        }
+        return new BatchResult(entries, parseNanos, System.nanoTime() - executeStart);
+    }
+
+    // Batched commands are journaled as received with the batch, with their latency since then, parsing included
+    private CompletableFuture<BatchResult.Entry> journalBatched(final CompletableFuture<BatchResult.Entry> entry, final long receivedAt,
+            final long batchStart) {
+        final CommandJournal journal = this.journal;
+        if (journal == null) {
+            return entry;
+        }
+        return entry.whenComplete((done, thr) -> {
+            if (done != null) {
+                final BatchCommand command = done.getCommand();
+                final CommandMetrics.Outcome outcome = done.getError().map(CommandManagerImpl::outcomeOf).orElse(CommandMetrics.Outcome.SUCCESS);
+                journal(journal, command.getSource(), command.getCommandLine(), outcome, receivedAt, batchStart);
             }
+        });
+    }
+
+    private Object tryPrepare(final BatchCommand command) {
+        final CommandListener[] listeners = this.listeners;
+        if (listeners.length != 0) {
+            firePreDispatch(listeners, command.getSource(), command.getCommandLine());
+        }
+        try {
+            return prepare(command.getSource(), command.getCommandLine());
         } catch (Throwable thr) {
-            StringBuilder excBuilder;
-            if (thr instanceof Exception) {
-                String text = thr.getMessage();
-                excBuilder = text == null ? new StringBuilder("null") : new StringBuilder();
+            return thr;
+        }
+    }
+
+    private CompletableFuture<BatchResult.Entry> executeBatched(final BatchCommand command, final PreparedCommand prepared) {
+        try {
+            return executeLimited(command.getSource(), prepared).toCompletableFuture()
+                    .handle((result, thr) -> thr == null
+                            ? BatchResult.Entry.success(command, result)
+                            : batchFailure(command, unwrap(thr)));
+        } catch (Throwable thr) {
+            return CompletableFuture.completedFuture(batchFailure(command, thr));
+        }
+    }
+
+    private BatchResult.Entry batchFailure(final BatchCommand command, Throwable thr) {
+        final CommandListener[] listeners = this.listeners;
+        if (listeners.length != 0) {
+            fireError(listeners, command.getSource(), command.getCommandLine(), thr);
+        }
+        if (this.metricsEnabled) {
+            if (thr instanceof CommandNotFoundException) {
+                this.metrics.recordNotFound();
             } else {
-                excBuilder = new StringBuilder(thr.getMessage());
+                recordFailure(command.getSource(), command.getCommandLine(), thr, -1);
             }
-            final StringWriter writer = new StringWriter();
-            thr.printStackTrace(new PrintWriter(writer));
-            excBuilder.append(writer.toString()
-                    .replace("\t", "    ")
-                    .replace("\r\n", "\n")
-                    .replace("\r", "\n"));
+        }
+        if (thr instanceof InvocationCommandException && thr.getCause() != null) {
+            thr = thr.getCause();
+        }
+        if (!(thr instanceof CommandException)) {
+            this.logger.error(String.format("Error occurred while executing batched command '%s' for source %s",
+                    command.getCommandLine(), command.getSource().getName()), thr);
+        }
+        return BatchResult.Entry.failure(command, thr);
+    }
+
+    // Runs on the caller's thread, which waits for a bulkhead slot if needed
+    private CompletionStage<CommandResult> executeLimited(final CommandSource source, final PreparedCommand prepared)
+            throws CommandException {
+        final Bulkhead bulkhead = bulkheadFor(prepared);
+        final long ticket = bulkhead == null ? 0 : bulkhead.acquire();
+        return executeLimited(source, prepared, bulkhead, ticket);
+    }
 
-            source.sendMessage(error(String.format("Error occurred while executing command: %s", excBuilder.toString())));
-            this.logger.error(String
-                    .format("Error occurred while executing command '%s' for source %s: %s", commandLine, source.toString(), thr.getMessage()), thr);
+    private CompletionStage<CommandResult> executeLimited(final CommandSource source, final PreparedCommand prepared,
+            @Nullable final Bulkhead bulkhead, final long ticket) throws CommandException {
+        final ConcurrencyLimiter limiter = this.concurrencyLimiter;
+        final String key = prepared.mapping.getPrimaryAlias();
+        if (limiter != null) {
+            try {
+                limiter.acquire(key);
+            } catch (InterruptedException e) {
+                if (bulkhead != null) {
+                    bulkhead.releaseUnused(ticket);
+                }
+                Thread.currentThread().interrupt();
+                throw new CommandException("Interrupted while waiting to execute the command", e);
+            }
         }
+        final CompletionStage<CommandResult> result;
+        final ResourceAccountant accountant = this.resourceAccountant;
+        final ResourceAccountant.Sample sample = accountant == null ? null : accountant.start();
+        final CommandListener[] listeners = this.listeners;
+        final long start = prepared.stats == null && listeners.length == 0 ? 0 : System.nanoTime();
+        final ExecutionContext.Scope scope = ExecutionContext.enter(source);
+        try {
+            result = prepared.executeAsync(source);
+        } catch (CommandException | RuntimeException | Error ex) {
+            if (limiter != null) {
+                limiter.release(key);
+            }
+            if (bulkhead != null) {
+                bulkhead.release(ticket, ex);
+            }
+            throw ex;
+        } finally {
+            scope.close();
+            if (accountant != null) {
+                // Only the part of an asynchronous executor that runs on this thread is measured
+                accountant.record(sample, prepared.getOwnerId(), key);
+            }
+        }
+        if (limiter != null || bulkhead != null || prepared.stats != null || listeners.length != 0) {
+            // Asynchronous executors hold their permits until the stage completes
+            result.whenComplete((value, thr) -> {
+                final long executionNanos = System.nanoTime() - start;
+                if (prepared.stats != null) {
+                    prepared.stats.record(CommandMetrics.Phase.EXECUTE, executionNanos);
+                    if (thr == null) {
+                        prepared.stats.count(CommandMetrics.Outcome.SUCCESS);
+                    }
+                }
+                if (thr == null && listeners.length != 0) {
+                    firePostExecute(listeners, source, prepared.mapping, value, executionNanos);
+                }
+                if (limiter != null) {
+                    limiter.release(key);
+                }
+                if (bulkhead != null) {
+                    bulkhead.release(ticket, thr == null ? null : unwrap(thr));
+                }
+            });
+        }
+        return result;
+    }
+
+    @Nullable
+    private Bulkhead bulkheadFor(final PreparedCommand prepared) {
+        final Bulkheads bulkheads = this.bulkheads;
+        if (bulkheads == null) {
+            return null;
+        }
+        final String ownerId = prepared.getOwnerId();
+        return ownerId == null ? null : bulkheads.get(ownerId);
+    }
+
+    private static void logSlowCommand(SlowCommandLog slowLog, String alias, PreparedCommand prepared, long executeNanos, long totalNanos) {
+        String slowestElement = null;
+        long slowestElementNanos = -1;
+        if (prepared.context != null && prepared.context.getSlowestElement().isPresent()) {
+            final CommandElement element = prepared.context.getSlowestElement().get();
+            slowestElement = element.getKey() == null ? element.getClass().getSimpleName() : element.getKey();
+            slowestElementNanos = prepared.context.getSlowestElementNanos();
+        }
+        slowLog.command(alias, prepared.arguments, prepared.tokenizeNanos, prepared.parseNanos, executeNanos, totalNanos,
+                slowestElement, slowestElementNanos);
+    }
+
+    private static String getArguments(String commandLine) {
+        final int aliasEnd = commandLine.indexOf(' ');
+        return aliasEnd == -1 ? "" : commandLine.substring(aliasEnd + 1);
+    }
+
+    private static String getAlias(String commandLine) {
+        final int aliasEnd = commandLine.indexOf(' ');
+        return aliasEnd == -1 ? commandLine : commandLine.substring(0, aliasEnd);
+    }
+
+    private static Throwable unwrap(Throwable thr) {
+        if (thr instanceof CompletionException && thr.getCause() != null) {
+            return thr.getCause();
+        }
+        return thr;
+    }
+
+    private PreparedCommand prepare(final CommandSource source, final String commandLine) throws CommandException {
+        final String[] argSplit = commandLine.split(" ", 2);
+        final Optional<CommandMapping> mapping = lookup(argSplit[0], source);
+        if (mapping.isEmpty()) {
+            throw new CommandNotFoundException("commands.generic.notFound", argSplit[0], similarAliases(argSplit[0]));
+        }
+        final String arguments = argSplit.length > 1 ? argSplit[1] : "";
+        final CommandCallable callable = mapping.get().getCallable();
+        final MetaData owner = this.reverseOwners.get(mapping.get());
+        final AdmissionController admission = this.admissionController;
+        if (admission != null) {
+            admission.admit(source, mapping.get().getPrimaryAlias(), owner,
+                    callable instanceof CommandSpec ? ((CommandSpec) callable).getRateLimit() : Optional.empty());
+        }
+        final ResourceAccountant accountant = this.resourceAccountant;
+        if (accountant != null && owner != null && accountant.isThrottled(owner.getId())) {
+            throw new CommandRejectedException("The server is busy, please try again later");
+        }
+        final CommandSpec spec = callable instanceof CommandSpec ? (CommandSpec) callable : null;
+        Duration timeout = this.defaultTimeout;
+        if (spec != null && spec.getTimeout().isPresent()) {
+            timeout = spec.getTimeout().get();
+        }
+        // Only bounds parsing, PreparedCommand starts a fresh deadline for the execution
+        final CancellationToken token = timeout == null ? CancellationToken.none() : CancellationToken.withTimeout(timeout);
+        final CommandMetrics.AliasMetrics stats = this.metricsEnabled ? this.metrics.forAlias(mapping.get().getPrimaryAlias()) : null;
+        if (spec != null) {
+            final boolean timed = stats != null || this.slowCommandLog != null;
+            final CommandContext context = new CommandContext();
+            context.setCancellationToken(token);
+            context.setElementTiming(this.slowCommandLog != null);
+            final int tokenCount;
+            final long start;
+            final long tokenized;
+            final long parsed;
+            try {
+                start = timed ? System.nanoTime() : 0;
+                final CommandArgs args = spec.tokenize(arguments);
+                tokenized = timed ? System.nanoTime() : 0;
+                tokenCount = args.size();
+                final ParseProfiler profiler = this.parseProfiler;
+                if (profiler == null) {
+                    spec.populateContext(source, args, context);
+                } else {
+                    profiler.populateContext(mapping.get().getPrimaryAlias(), spec, source, args, context);
+                }
+                parsed = timed ? System.nanoTime() : 0;
+                if (stats != null) {
+                    stats.record(CommandMetrics.Phase.TOKENIZE, tokenized - start);
+                    stats.record(CommandMetrics.Phase.PARSE, parsed - tokenized);
+                }
+            } catch (ArgumentParseException ex) {
+                token.throwIfCancelled();
+                throw ex;
+            }
+            final CommandListener[] listeners = this.listeners;
+            if (listeners.length != 0) {
+                firePostParse(listeners, source, mapping.get(), context);
+            }
+            final PreparedCommand prepared = new PreparedCommand(mapping.get(), owner, stats, arguments, tokenCount, spec, context, timeout);
+            prepared.tokenizeNanos = tokenized - start;
+            prepared.parseNanos = parsed - tokenized;
+            return prepared;
+        }
+        return new PreparedCommand(mapping.get(), owner, stats, arguments, 0, null, null, timeout);
+    }
+
+    private void journal(final CommandJournal journal, final CommandSource source, final String commandLine,
+            final CommandMetrics.Outcome outcome, final long receivedAt, final long start) {
+        try {
+            journal.append(receivedAt, source.getName(), commandLine, outcome, System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            this.logger.error(String.format("Could not journal command '%s' for source %s", commandLine, source.getName()), e);
+        }
+    }
+
+    private CommandResult handleFailure(final CommandSource source, final String commandLine, final Throwable thr) {
+        final CommandListener[] listeners = this.listeners;
+        if (listeners.length != 0) {
+            fireError(listeners, source, commandLine, thr);
+        }
+        if (!this.metricsEnabled) {
+            return reportFailure(source, commandLine, thr);
+        }
+        final long start = System.nanoTime();
+        try {
+            return reportFailure(source, commandLine, thr);
+        } finally {
+            recordFailure(source, commandLine, thr, System.nanoTime() - start);
+        }
+    }
+
+    private void recordFailure(final CommandSource source, final String commandLine, final Throwable thr, final long errorNanos) {
+        if (thr instanceof CommandNotFoundException) {
+            // Counted when the not found handler is called
+            return;
+        }
+        final Optional<CommandMapping> mapping = lookup(getAlias(commandLine), source);
+        if (mapping.isEmpty()) {
+            return;
+        }
+        final CommandMetrics.AliasMetrics stats = this.metrics.forAlias(mapping.get().getPrimaryAlias());
+        stats.count(outcomeOf(thr));
+        if (errorNanos >= 0) {
+            stats.record(CommandMetrics.Phase.ERROR, errorNanos);
+        }
+    }
+
+    private static CommandMetrics.Outcome outcomeOf(Throwable thr) {
+        if (thr instanceof ArgumentParseException) {
+            return CommandMetrics.Outcome.PARSE_ERROR;
+        } else if (thr instanceof CommandPermissionException) {
+            return CommandMetrics.Outcome.PERMISSION_ERROR;
+        } else if (thr instanceof CommandTimeoutException) {
+            return CommandMetrics.Outcome.TIMED_OUT;
+        } else if (thr instanceof CommandRejectedException) {
+            return CommandMetrics.Outcome.REJECTED;
+        } else if (thr instanceof CommandNotFoundException) {
+            return CommandMetrics.Outcome.NOT_FOUND;
+        }
+        return CommandMetrics.Outcome.EXECUTION_ERROR;
+    }
+
+    private CommandResult reportFailure(final CommandSource source, final String commandLine, Throwable thr) {
+        if (thr instanceof InvocationCommandException) {
+            if (thr.getCause() == null) {
+                return CommandResult.empty();
+            }
+            thr = thr.getCause();
+        } else if (thr instanceof CommandNotFoundException) {
+            final CommandNotFoundException notFound = (CommandNotFoundException) thr;
+            commandNotFound(source, notFound.getCommand(), notFound::getSuggestions);
+            return CommandResult.empty();
+        } else if (thr instanceof CommandPermissionException) {
+            String text = thr.getMessage();
+            if (text != null) {
+                source.sendMessage(error(text));
+            }
+            return CommandResult.empty();
+        } else if (thr instanceof CommandException) {
+            final CommandException ex = (CommandException) thr;
+            String text = ex.getMessage();
+            if (text != null) {
+                source.sendMessage(error(text));
+            }
+
+            if (ex.shouldIncludeUsage()) {
+                final String alias = getAlias(commandLine);
+                final Optional<CommandMapping> mapping = lookup(alias, source);
+                if (mapping.isPresent()) {
+                    String usage;
+                    if (ex instanceof ArgumentParseException.WithUsage) {
+                        usage = ((ArgumentParseException.WithUsage) ex).getUsage();
+                    } else {
+                        usage = mapping.get().getCallable().getUsage(source);
+                    }
+
+                    source.sendMessage(error(String.format("Usage: /%s %s", alias, usage)));
+                }
+            }
+            return CommandResult.empty();
+        }
+
+        StringBuilder excBuilder;
+        if (thr instanceof Exception) {
+            String text = thr.getMessage();
+            excBuilder = text == null ? new StringBuilder("null") : new StringBuilder();
+        } else {
+            excBuilder = new StringBuilder(thr.getMessage());
+        }
+        final StringWriter writer = new StringWriter();
+        thr.printStackTrace(new PrintWriter(writer));
+        excBuilder.append(writer.toString()
+                .replace("\t", "    ")
+                .replace("\r\n", "\n")
+                .replace("\r", "\n"));
+
+        source.sendMessage(error(String.format("Error occurred while executing command: %s", excBuilder.toString())));
+        this.logger.error(String
+                .format("Error occurred while executing command '%s' for source %s: %s", commandLine, source.toString(), thr.getMessage()), thr);
         return CommandResult.empty();
     }
 
+    private static final class PreparedCommand {
+
+        final CommandMapping mapping;
+        @Nullable
+        final MetaData owner;
+        @Nullable
+        final CommandMetrics.AliasMetrics stats;
+        final String arguments;
+        final int tokenCount;
+        @Nullable
+        final CommandSpec spec;
+        @Nullable
+        final CommandContext context;
+        @Nullable
+        final Duration timeout;
+        long tokenizeNanos = -1;
+        long parseNanos = -1;
+
+        PreparedCommand(CommandMapping mapping, @Nullable MetaData owner, @Nullable CommandMetrics.AliasMetrics stats, String arguments,
+                int tokenCount, @Nullable CommandSpec spec, @Nullable CommandContext context, @Nullable Duration timeout) {
+            this.mapping = mapping;
+            this.owner = owner;
+            this.stats = stats;
+            this.arguments = arguments;
+            this.tokenCount = tokenCount;
+            this.spec = spec;
+            this.context = context;
+            this.timeout = timeout;
+        }
+
+        @Nullable
+        String getOwnerId() {
+            return this.owner == null ? null : this.owner.getId();
+        }
+
+        CommandResult execute(CommandSource source) throws CommandException {
+            if (this.timeout == null) {
+                return invoke(source);
+            }
+            final CancellationToken token = startDeadline();
+            final ExecutionWatchdog.Guard guard = ExecutionWatchdog.watch(token);
+            final CommandResult result;
+            try {
+                result = invoke(source);
+            } catch (CommandException | RuntimeException | Error ex) {
+                if (guard.finish()) {
+                    throw timedOut(token);
+                }
+                throw ex;
+            }
+            if (guard.finish()) {
+                throw timedOut(token);
+            }
+            return result;
+        }
+
+        CompletionStage<CommandResult> executeAsync(CommandSource source) throws CommandException {
+            if (this.timeout == null) {
+                return invokeAsync(source);
+            }
+            final CancellationToken token = startDeadline();
+            final ExecutionWatchdog.Guard guard = ExecutionWatchdog.watch(token);
+            final CompletionStage<CommandResult> result;
+            try {
+                result = invokeAsync(source);
+            } catch (CommandException | RuntimeException | Error ex) {
+                if (guard.finish()) {
+                    throw timedOut(token);
+                }
+                throw ex;
+            }
+            if (guard.finish()) {
+                throw timedOut(token);
+            }
+            return ExecutionWatchdog.within(token, result);
+        }
+
+        // Replaces the parse deadline in the context, so executors see the one of the execution
+        private CancellationToken startDeadline() {
+            final CancellationToken token = CancellationToken.withTimeout(checkNotNull(this.timeout));
+            if (this.context != null) {
+                this.context.setCancellationToken(token);
+            }
+            return token;
+        }
+
+        private static CommandTimeoutException timedOut(CancellationToken token) {
+            return new CommandTimeoutException(token.getTimeout().orElse(Duration.ZERO));
+        }
+
+        private CommandResult invoke(CommandSource source) throws CommandException {
+            try {
+                if (this.spec != null && this.context != null) {
+                    return this.spec.getExecutor().execute(source, this.context);
+                }
+                return this.mapping.getCallable().process(source, this.arguments);
+            } catch (CommandNotFoundException e) {
+                throw new CommandException(String.format("No such child command: %s", e.getCommand()));
+            }
+        }
+
+        private CompletionStage<CommandResult> invokeAsync(CommandSource source) throws CommandException {
+            try {
+                if (this.spec != null && this.context != null) {
+                    return this.spec.executeAsync(source, this.context);
+                }
+                return this.mapping.getCallable().processAsync(source, this.arguments);
+            } catch (CommandNotFoundException e) {
+                throw new CommandException(String.format("No such child command: %s", e.getCommand()));
+            }
+        }
+    }
+
     @Override
     public List<String> getSuggestions(CommandSource src, String arguments) {
+        final AdmissionController admission = this.admissionController;
+        if (admission != null && !admission.admitSuggestions(src)) {
+            return Collections.emptyList();
+        }
+        final SlowCommandLog slowLog = this.slowCommandLog;
+        final long start = slowLog == null ? 0 : System.nanoTime();
+        final CommandCompletionEvent event = new CommandCompletionEvent();
+        event.begin();
         try {
-            List<String> suggestions = new ArrayList<>(this.dispatcher.getSuggestions(src, arguments));
+            List<String> suggestions = new ArrayList<>(suggest(src, arguments));
+            event.suggestions = suggestions.size();
+            if (slowLog != null) {
+                final long elapsed = System.nanoTime() - start;
+                if (slowLog.isSlow(elapsed)) {
+                    slowLog.completion(getAlias(arguments), getArguments(arguments), suggestions.size(), elapsed);
+                }
+            }
             return ImmutableList.copyOf(suggestions);
         } catch (CommandException e) {
+            event.failed = true;
             src.sendMessage(error(String.format("Error getting suggestions: %s", e.getMessage())));
             return Collections.emptyList();
         } catch (Exception e) {
+            event.failed = true;
             throw new RuntimeException(String.format("Error occured while tab completing '%s'", arguments), e);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.alias = getAlias(arguments);
+                event.source = src.getName();
+                event.inputLength = arguments.length();
+                event.commit();
+            }
+        }
+    }
+
+    private List<String> suggest(final CommandSource src, final String arguments) throws CommandException {
+        final int space = arguments.indexOf(' ');
+        final String alias = space == -1 ? arguments : arguments.substring(0, space);
+        if (alias.indexOf(':') == -1) {
+            return this.dispatcher.getSuggestions(src, arguments);
+        }
+        if (space == -1) {
+            final List<String> suggestions = new ArrayList<>(this.dispatcher.getSuggestions(src, arguments));
+            suggestions.addAll(suggestNamespaced(alias));
+            Collections.sort(suggestions);
+            return suggestions;
+        }
+        final Optional<CommandMapping> mapping = lookup(alias, src);
+        if (mapping.isEmpty()) {
+            return ImmutableList.of();
+        }
+        return mapping.get().getCallable().getSuggestions(src, arguments.substring(space + 1));
+    }
+
+    // Namespaced forms are only offered once the prefix names a namespace
+    private List<String> suggestNamespaced(final String prefix) {
+        final int colon = prefix.indexOf(':');
+        final String namespace = prefix.substring(0, colon);
+        final String start = prefix.substring(colon + 1).toLowerCase(Locale.ENGLISH);
+        final List<String> suggestions = new ArrayList<>();
+        synchronized (this.lock) {
+            for (MetaData metaData : this.owners.keySet()) {
+                if (!metaData.id.equalsIgnoreCase(namespace)) {
+                    continue;
+                }
+                final String id = metaData.id.toLowerCase(Locale.ENGLISH);
+                for (CommandMapping mapping : this.owners.get(metaData)) {
+                    for (String alias : mapping.getAllAliases()) {
+                        // Namespaced aliases kept by the registration callback already come from the dispatcher
+                        if (alias.startsWith(start) && !alias.startsWith(id + ':')) {
+                            suggestions.add(id + ':' + alias);
+                        }
+                    }
+                }
+            }
         }
+        return suggestions;
     }
 
     @Override
@@ -2,23 +2,54 @@ package com.github.mikucat0309.command;
 
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.function.Supplier;
 
 public class CommandNotFoundException extends CommandException {
 
 
     private static final long serialVersionUID = -7737592851768876427L;
     private final String command;
+    // Not serialized, looking up similar aliases needs the registry
+    private final transient Supplier<ImmutableList<String>> suggestions;
 
     public CommandNotFoundException(String command) {
         this("No such command", command);
     }
 
     public CommandNotFoundException(String message, String command) {
+        this(message, command, ImmutableList.of());
+    }
+
+    public CommandNotFoundException(String message, String command, List<String> suggestions) {
         super(message);
         this.command = Preconditions.checkNotNull(command, "command");
+        this.suggestions = Suppliers.ofInstance(ImmutableList.copyOf(suggestions));
+    }
+
+    /**
+     * Creates an exception whose suggestions are looked up when first
+     * requested, so unknown commands nobody reports on cost no search.
+     *
+     * @param message The message
+     * @param command The unknown command
+     * @param suggestions Looks up similar commands, called at most once
+     */
+    public CommandNotFoundException(String message, String command, Supplier<? extends List<String>> suggestions) {
+        super(message);
+        this.command = Preconditions.checkNotNull(command, "command");
+        Preconditions.checkNotNull(suggestions, "suggestions");
+        this.suggestions = Suppliers.memoize(() -> ImmutableList.copyOf(suggestions.get()));
     }
 
     public String getCommand() {
         return this.command;
     }
+
+    public List<String> getSuggestions() {
+        return this.suggestions == null ? ImmutableList.of() : this.suggestions.get();
+    }
 }
@@ -0,0 +1,55 @@
+package com.github.mikucat0309.command;
+
+import static com.github.mikucat0309.command.CommandMessageFormatting.error;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.github.mikucat0309.command.util.TokenBucket;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+@FunctionalInterface
+public interface CommandNotFoundHandler {
+
+    static CommandNotFoundHandler errorMessage() {
+        return (source, alias, suggestions) -> {
+            var similar = suggestions.get();
+            if (similar.isEmpty()) {
+                source.sendMessage(error(String.format("No such command: %s", alias)));
+            } else {
+                source.sendMessage(error(String.format("No such command: %s. Did you mean: %s?", alias, String.join(", ", similar))));
+            }
+        };
+    }
+
+    static CommandNotFoundHandler silent() {
+        return (source, alias, suggestions) -> {
+        };
+    }
+
+    /**
+     * Limits how often the given handler is invoked. Misses over the limit
+     * are dropped, so a flood of unknown commands does not turn into a flood
+     * of messages.
+     */
+    static CommandNotFoundHandler rateLimited(CommandNotFoundHandler handler, double permitsPerSecond, int burst) {
+        checkNotNull(handler, "handler");
+        var bucket = new TokenBucket(permitsPerSecond, burst);
+        return (source, alias, suggestions) -> {
+            if (bucket.tryAcquire()) {
+                handler.handle(source, alias, suggestions);
+            }
+        };
+    }
+
+    /**
+     * Handles an unknown command.
+     *
+     * @param source The source that sent the command
+     * @param alias The unknown alias
+     * @param suggestions Similar registered aliases, only looked up when
+     *     the supplier is called
+     */
+    void handle(CommandSource source, String alias, Supplier<List<String>> suggestions);
+
+}
@@ -0,0 +1,24 @@
+package com.github.mikucat0309.command;
+
+/**
+ * Scheduling classes for queued command execution, highest first.
+ */
+public enum CommandPriority {
+    /**
+     * Operator and console commands, which should run even when the server is saturated.
+     */
+    HIGH,
+    NORMAL,
+    /**
+     * Background work that may wait behind everything else.
+     */
+    LOW;
+
+    public boolean isHigherThan(CommandPriority other) {
+        return ordinal() < other.ordinal();
+    }
+
+    public static CommandPriority highest(CommandPriority a, CommandPriority b) {
+        return a.isHigherThan(b) ? a : b;
+    }
+}
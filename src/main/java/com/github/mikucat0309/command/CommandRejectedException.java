@@ -0,0 +1,16 @@
+package com.github.mikucat0309.command;
+
+/**
+ * Thrown when a command is refused before it runs, for example because a
+ * queue is full or a limit has been reached. Rejections are expected under
+ * load, so no stack trace is captured.
+ */
+public class CommandRejectedException extends CommandException {
+
+    private static final long serialVersionUID = 4417263102815939374L;
+
+    public CommandRejectedException(String message) {
+        super(message, null, false, false);
+    }
+
+}
@@ -17,4 +17,8 @@ public interface CommandSource {
         return Locales.DEFAULT;
     }
 
+    default CommandPriority getPriority() {
+        return CommandPriority.NORMAL;
+    }
+
 }
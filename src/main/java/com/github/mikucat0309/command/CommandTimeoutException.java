@@ -0,0 +1,24 @@
+package com.github.mikucat0309.command;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a command does not finish parsing or executing before its
+ * timeout. The thread running it, if any, is interrupted.
+ */
+public class CommandTimeoutException extends CommandException {
+
+    private static final long serialVersionUID = -2716380541953381125L;
+
+    private final Duration timeout;
+
+    public CommandTimeoutException(Duration timeout) {
+        super(String.format("The command did not complete within %d ms", timeout.toMillis()), null, false, false);
+        this.timeout = timeout;
+    }
+
+    public Duration getTimeout() {
+        return this.timeout;
+    }
+
+}
@@ -2,16 +2,17 @@ package com.github.mikucat0309.command;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 public final class ImmutableCommandMapping implements CommandMapping {
 
-    private final String primary;
-    private final Set<String> aliases;
+    // The primary alias first, shared with the dispatcher's keys rather than held in a set of its own
+    private final String[] aliases;
     private final CommandCallable callable;
 
     public ImmutableCommandMapping(CommandCallable callable, String primary, String... alias) {
@@ -21,20 +22,21 @@ public final class ImmutableCommandMapping implements CommandMapping {
     public ImmutableCommandMapping(CommandCallable callable, String primary, Collection<String> aliases) {
         checkNotNull(primary, "primary");
         checkNotNull(aliases, "aliases");
-        this.primary = primary;
-        this.aliases = new HashSet<>(aliases);
-        this.aliases.add(primary);
+        var unique = new LinkedHashSet<String>(aliases.size() + 1);
+        unique.add(primary);
+        unique.addAll(aliases);
+        this.aliases = unique.toArray(new String[0]);
         this.callable = checkNotNull(callable, "callable");
     }
 
     @Override
     public String getPrimaryAlias() {
-        return this.primary;
+        return this.aliases[0];
     }
 
     @Override
     public Set<String> getAllAliases() {
-        return Collections.unmodifiableSet(this.aliases);
+        return new AliasSet(this.aliases);
     }
 
     @Override
@@ -45,9 +47,28 @@ public final class ImmutableCommandMapping implements CommandMapping {
     @Override
     public String toString() {
         return "ImmutableCommandMapping{"
-                + "primary='" + this.primary + '\''
-                + ", aliases=" + this.aliases
+                + "primary='" + this.aliases[0] + '\''
+                + ", aliases=" + Arrays.toString(this.aliases)
                 + ", spec=" + this.callable
                 + '}';
     }
+
+    private static final class AliasSet extends AbstractSet<String> {
+
+        private final String[] aliases;
+
+        AliasSet(String[] aliases) {
+            this.aliases = aliases;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return Arrays.asList(this.aliases).iterator();
+        }
+
+        @Override
+        public int size() {
+            return this.aliases.length;
+        }
+    }
 }
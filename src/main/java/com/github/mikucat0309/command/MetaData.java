@@ -30,6 +30,10 @@ public class MetaData {
         this.authors = authors;
     }
 
+    public String getId() {
+        return this.id;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -3,11 +3,17 @@ package com.github.mikucat0309.command.args;
 import com.github.mikucat0309.command.CommandException;
 import com.google.common.base.Strings;
 
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
 public class ArgumentParseException extends CommandException {
 
     private static final long serialVersionUID = 8689033230447619239L;
     private final String source;
     private final int position;
+    @Nullable
+    private String elementKey;
 
     public ArgumentParseException(String message, String source, int position) {
         super(message, true);
@@ -61,6 +67,21 @@ public class ArgumentParseException extends CommandException {
         return this.source;
     }
 
+    /**
+     * Gets the key of the innermost keyed element that failed to parse.
+     *
+     * @return The element key, if known
+     */
+    public Optional<String> getElementKey() {
+        return Optional.ofNullable(this.elementKey);
+    }
+
+    void recordElementKey(String elementKey) {
+        if (this.elementKey == null) {
+            this.elementKey = elementKey;
+        }
+    }
+
     public static class WithUsage extends ArgumentParseException {
 
         private static final long serialVersionUID = -8184628779569449691L;
@@ -68,6 +89,7 @@ public class ArgumentParseException extends CommandException {
 
         public WithUsage(ArgumentParseException wrapped, String usage) {
             super(wrapped.getMessage(), wrapped.getCause(), wrapped.getSourceString(), wrapped.getPosition());
+            wrapped.getElementKey().ifPresent(this::recordElementKey);
             this.usage = usage;
         }
 
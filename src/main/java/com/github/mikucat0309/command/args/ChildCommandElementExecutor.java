@@ -9,6 +9,7 @@ import com.github.mikucat0309.command.CommandMessageFormatting;
 import com.github.mikucat0309.command.CommandResult;
 import com.github.mikucat0309.command.CommandSource;
 import com.github.mikucat0309.command.dispatcher.SimpleDispatcher;
+import com.github.mikucat0309.command.spec.AsyncCommandExecutor;
 import com.github.mikucat0309.command.spec.CommandExecutor;
 import com.github.mikucat0309.command.spec.CommandSpec;
 import com.github.mikucat0309.command.util.StartsWithPredicate;
@@ -19,11 +20,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nullable;
 
-public class ChildCommandElementExecutor extends CommandElement implements CommandExecutor {
+public class ChildCommandElementExecutor extends CommandElement implements AsyncCommandExecutor {
 
     private static final AtomicInteger COUNTER = new AtomicInteger();
     private static final CommandElement NONE = GenericArguments.none();
@@ -109,7 +111,7 @@ public class ChildCommandElementExecutor extends CommandElement implements Comma
         if (this.fallbackExecutor != null && !args.hasNext()) {
             if (this.fallbackElements != null) {
                 // there might be optionals to take account of that would parse this successfully.
-                this.fallbackElements.parse(source, args, context);
+                ParseProfiler.parse(this.fallbackElements, source, args, context);
             }
 
             return; // execute the fallback regardless in this scenario.
@@ -137,11 +139,13 @@ public class ChildCommandElementExecutor extends CommandElement implements Comma
 
                 // Success, add to context now so that we don't execute the wrong executor in the first place.
                 context.putArg(getKey(), mapping);
+            } catch (ParseCancelledException ex) {
+                throw ex;
             } catch (ArgumentParseException ex) {
                 // If we get here, fallback to the elements, if they exist.
                 args.applySnapshot(state);
                 if (this.fallbackOnFail && this.fallbackElements != null) {
-                    this.fallbackElements.parse(source, args, context);
+                    ParseProfiler.parse(this.fallbackElements, source, args, context);
                     return;
                 }
 
@@ -158,7 +162,7 @@ public class ChildCommandElementExecutor extends CommandElement implements Comma
             // Not a child, so let's continue with the fallback.
             if (this.fallbackExecutor != null && this.fallbackElements != null) {
                 args.applySnapshot(state);
-                this.fallbackElements.parse(source, args, context);
+                ParseProfiler.parse(this.fallbackElements, source, args, context);
             } else {
                 // If we have no elements to parse, then we throw this error - this is the only element
                 // so specifying it implicitly means we have a child command to execute.
@@ -190,6 +194,24 @@ public class ChildCommandElementExecutor extends CommandElement implements Comma
         return mapping.getCallable().process(src, arguments);
     }
 
+    @Override
+    public CompletionStage<CommandResult> executeAsync(CommandSource src, CommandContext args) throws CommandException {
+        var mapping = args.<CommandMapping>getOne(getKey()).orElse(null);
+        if (mapping == null) {
+            if (this.fallbackExecutor == null) {
+                throw new CommandException(
+                        String.format("Invalid subcommand state -- no more than one mapping may be provided for child arg %s", getKey()));
+            }
+            return AsyncCommandExecutor.adapt(this.fallbackExecutor).executeAsync(src, args);
+        }
+        if (mapping.getCallable() instanceof CommandSpec) {
+            var spec = ((CommandSpec) mapping.getCallable());
+            return spec.executeAsync(src, args);
+        }
+        var arguments = args.<String>getOne(getKey() + "_args").orElse("");
+        return mapping.getCallable().processAsync(src, arguments);
+    }
+
     @Override
     public String getUsage(CommandSource src) {
         var usage = this.dispatcher.getUsage(src);
@@ -10,11 +10,15 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
+
 public final class CommandArgs {
 
     private final String rawInput;
     private final List<SingleArg> args;
     private int index = -1;
+    @Nullable
+    ParseProfiler.Session profile;
 
     public CommandArgs(String rawInput, List<SingleArg> args) {
         this.rawInput = rawInput;
@@ -47,6 +51,10 @@ public final class CommandArgs {
         return new ArgumentParseException(message, this.rawInput, this.index < 0 ? 0 : this.args.get(this.index).getStartIdx());
     }
 
+    ParseCancelledException createCancelledError(String message) {
+        return new ParseCancelledException(message, this.rawInput, this.index < 0 ? 0 : this.args.get(this.index).getStartIdx());
+    }
+
     public List<String> getAll() {
         return this.args.stream().map(SingleArg::getValue).collect(Collectors.toUnmodifiableList());
     }
@@ -123,6 +131,9 @@ public final class CommandArgs {
     }
 
     public Snapshot getSnapshot() {
+        if (this.profile != null) {
+            this.profile.snapshot();
+        }
         return new Snapshot(this.index, this.args);
     }
 
@@ -131,6 +142,9 @@ public final class CommandArgs {
     }
 
     public void applySnapshot(Snapshot snapshot, boolean resetArgs) {
+        if (this.profile != null) {
+            this.profile.backtrack();
+        }
         this.index = snapshot.index;
         if (resetArgs) {
             this.args.clear();
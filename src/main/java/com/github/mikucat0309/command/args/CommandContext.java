@@ -2,6 +2,7 @@ package com.github.mikucat0309.command.args;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.github.mikucat0309.command.execution.CancellationToken;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 
@@ -10,6 +11,8 @@ import java.util.Collections;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
+import javax.annotation.Nullable;
+
 public final class CommandContext {
 
     public static final String TARGET_BLOCK_ARG = "targetblock-pos048658"; // Random junk afterwards so we don't accidentally conflict with other args
@@ -17,11 +20,67 @@ public final class CommandContext {
     public static final String TAB_COMPLETION = "tab-complete-50456"; // Random junk afterwards so we don't accidentally conflict with other args
 
     private final Multimap<String, Object> parsedArgs;
+    private CancellationToken cancellationToken = CancellationToken.none();
+    private boolean elementTiming;
+    @Nullable
+    private CommandElement slowestElement;
+    private long slowestElementNanos;
+    @Nullable
+    ParseProfiler.Session profile;
 
     public CommandContext() {
         this.parsedArgs = ArrayListMultimap.create();
     }
 
+    /**
+     * Gets the token that tells parsers and executors to stop because the
+     * command has timed out or was cancelled.
+     *
+     * @return The cancellation token
+     */
+    public CancellationToken getCancellationToken() {
+        return this.cancellationToken;
+    }
+
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = checkNotNull(cancellationToken, "cancellationToken");
+    }
+
+    public boolean isElementTiming() {
+        return this.elementTiming;
+    }
+
+    /**
+     * Times each top-level element while parsing into this context, so the
+     * element that took longest can be found afterwards.
+     *
+     * @param elementTiming Whether to time the elements
+     */
+    public void setElementTiming(boolean elementTiming) {
+        this.elementTiming = elementTiming;
+    }
+
+    void recordElementTime(CommandElement element, long nanos) {
+        if (this.slowestElement == null || nanos > this.slowestElementNanos) {
+            this.slowestElement = element;
+            this.slowestElementNanos = nanos;
+        }
+    }
+
+    /**
+     * Gets the top-level element that took longest to parse, if element
+     * timing was enabled.
+     *
+     * @return The slowest element
+     */
+    public Optional<CommandElement> getSlowestElement() {
+        return Optional.ofNullable(this.slowestElement);
+    }
+
+    public long getSlowestElementNanos() {
+        return this.slowestElementNanos;
+    }
+
     @SuppressWarnings("unchecked")
     public <T> Collection<T> getAll(String key) {
         return Collections.unmodifiableCollection((Collection<T>) this.parsedArgs.get(key));
@@ -59,6 +118,7 @@ public final class CommandContext {
     }
 
     public Snapshot createSnapshot() {
+        // Not counted by the profiler, the context is only saved along with the arguments
         return new Snapshot(this.parsedArgs);
     }
 
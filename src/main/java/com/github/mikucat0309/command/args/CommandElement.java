@@ -21,8 +21,16 @@ public abstract class CommandElement {
     }
 
     public void parse(CommandSource source, CommandArgs args, CommandContext context) throws ArgumentParseException {
-        var val = parseValue(source, args);
         var key = getKey();
+        Object val;
+        try {
+            val = parseValue(source, args);
+        } catch (ArgumentParseException e) {
+            if (key != null) {
+                e.recordElementKey(key);
+            }
+            throw e;
+        }
         if (key != null && val != null) {
             if (val instanceof Iterable<?>) {
                 for (Object ent : ((Iterable<?>) val)) {
@@ -42,6 +42,7 @@ public final class CommandFlags extends CommandElement {
     public void parse(CommandSource source, CommandArgs args, CommandContext context) throws ArgumentParseException {
         var state = args.getSnapshot();
         while (args.hasNext()) {
+            GenericArguments.checkCancelled(args, context);
             var arg = args.next();
             if (arg.startsWith("-")) {
                 var start = args.getSnapshot();
@@ -62,7 +63,7 @@ public final class CommandFlags extends CommandElement {
         // so don't restore them here!
         args.applySnapshot(state, false);
         if (this.childElement != null) {
-            this.childElement.parse(source, args, context);
+            ParseProfiler.parse(this.childElement, source, args, context);
         }
     }
 
@@ -88,7 +89,7 @@ public final class CommandFlags extends CommandElement {
         } else if (flagSplit.length == 2) {
             args.insertArg(flagSplit[1]);
         }
-        element.parse(source, args, context);
+        ParseProfiler.parse(element, source, args, context);
         return true;
     }
 
@@ -115,7 +116,7 @@ public final class CommandFlags extends CommandElement {
                         throw new Error("New UnknownFlagBehavior added without corresponding case clauses");
                 }
             } else {
-                element.parse(source, args, context);
+                ParseProfiler.parse(element, source, args, context);
             }
         }
         return true;
@@ -267,6 +267,12 @@ public final class GenericArguments {
         }
     }
 
+    static void checkCancelled(CommandArgs args, CommandContext context) throws ParseCancelledException {
+        if (context.getCancellationToken().isCancelled()) {
+            throw args.createCancelledError("Parsing took too long");
+        }
+    }
+
     private static class SequenceCommandElement extends CommandElement {
 
         private final List<CommandElement> elements;
@@ -278,8 +284,23 @@ public final class GenericArguments {
 
         @Override
         public void parse(CommandSource source, CommandArgs args, CommandContext context) throws ArgumentParseException {
+            if (context.isElementTiming()) {
+                parseTimed(source, args, context);
+                return;
+            }
+            for (CommandElement element : this.elements) {
+                ParseProfiler.parse(element, source, args, context);
+            }
+        }
+
+        private void parseTimed(CommandSource source, CommandArgs args, CommandContext context) throws ArgumentParseException {
             for (CommandElement element : this.elements) {
-                element.parse(source, args, context);
+                var start = System.nanoTime();
+                try {
+                    ParseProfiler.parse(element, source, args, context);
+                } finally {
+                    context.recordElementTime(element, System.nanoTime() - start);
+                }
             }
         }
 
@@ -414,8 +435,10 @@ public final class GenericArguments {
                 var startState = args.getSnapshot();
                 var contextSnapshot = context.createSnapshot();
                 try {
-                    element.parse(source, args, context);
+                    ParseProfiler.parse(element, source, args, context);
                     return;
+                } catch (ParseCancelledException ex) {
+                    throw ex;
                 } catch (ArgumentParseException ex) {
                     lastException = ex;
                     args.applySnapshot(startState);
@@ -487,7 +510,9 @@ public final class GenericArguments {
             }
             var startState = args.getSnapshot();
             try {
-                this.element.parse(source, args, context);
+                ParseProfiler.parse(this.element, source, args, context);
+            } catch (ParseCancelledException ex) {
+                throw ex;
             } catch (ArgumentParseException ex) {
                 if (this.considerInvalidFormatEmpty || args.hasNext()) { // If there are more args, suppress. Otherwise, throw the error
                     args.applySnapshot(startState);
@@ -535,7 +560,8 @@ public final class GenericArguments {
         @Override
         public void parse(CommandSource source, CommandArgs args, CommandContext context) throws ArgumentParseException {
             for (int i = 0; i < this.times; ++i) {
-                this.element.parse(source, args, context);
+                checkCancelled(args, context);
+                ParseProfiler.parse(this.element, source, args, context);
             }
         }
 
@@ -577,7 +603,8 @@ public final class GenericArguments {
         @Override
         public void parse(CommandSource source, CommandArgs args, CommandContext context) throws ArgumentParseException {
             while (args.hasNext()) {
-                this.element.parse(source, args, context);
+                checkCancelled(args, context);
+                ParseProfiler.parse(this.element, source, args, context);
             }
         }
 
@@ -845,7 +872,7 @@ public final class GenericArguments {
 
         @Override
         public void parse(CommandSource source, CommandArgs args, CommandContext context) throws ArgumentParseException {
-            this.element.parse(source, args, context);
+            ParseProfiler.parse(this.element, source, args, context);
             if (context.getAll(this.element.getKey()).size() > 1) {
                 var key = this.element.getKey();
                 throw args.createError(String.format("Argument %s may have only one value!", key != null ? key : "unknown"));
@@ -0,0 +1,18 @@
+package com.github.mikucat0309.command.args;
+
+/**
+ * Thrown when parsing stops because the cancellation token of the context
+ * was cancelled. Elements that fall back on a parse error, such as
+ * {@link GenericArguments#optional(CommandElement)} and
+ * {@link GenericArguments#firstParsing(CommandElement...)}, rethrow it
+ * instead of trying the next alternative.
+ */
+public class ParseCancelledException extends ArgumentParseException {
+
+    private static final long serialVersionUID = 3541209658123902764L;
+
+    public ParseCancelledException(String message, String source, int position) {
+        super(message, source, position);
+    }
+
+}
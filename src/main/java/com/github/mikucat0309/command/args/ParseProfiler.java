@@ -0,0 +1,200 @@
+package com.github.mikucat0309.command.args;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.github.mikucat0309.command.CommandSource;
+import com.github.mikucat0309.command.spec.CommandSpec;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+/**
+ * Profiles parsing per {@link CommandElement}. Every element of a profiled
+ * parse is recorded at its position in the element tree, with the number of
+ * invocations and failures, the time spent in it and its children, and the
+ * argument snapshots and backtracks it caused. Parses that do not go through
+ * {@link #populateContext} are not affected.
+ *
+ * <p>An element only shows up in the tree if its parent parses it through
+ * {@link #parse}, as the elements of {@link GenericArguments},
+ * {@link CommandFlags} and {@link ChildCommandElementExecutor} do. The
+ * children of a custom composite element that calls
+ * {@link CommandElement#parse} directly are not recorded, and their time is
+ * attributed to the composite.</p>
+ */
+public final class ParseProfiler {
+
+    private final Map<CommandSpec, Node> profiles = new ConcurrentHashMap<>();
+
+    /**
+     * Parses an element, recording it in the profile of the context if the
+     * context is being profiled.
+     *
+     * @param element The element to parse
+     * @param source The source of the command
+     * @param args The arguments to parse
+     * @param context The context to parse into
+     * @throws ArgumentParseException If the element failed to parse
+     */
+    public static void parse(CommandElement element, CommandSource source, CommandArgs args, CommandContext context)
+            throws ArgumentParseException {
+        var session = context.profile;
+        if (session == null) {
+            element.parse(source, args, context);
+            return;
+        }
+        var parent = session.current;
+        var node = parent.child(element);
+        session.current = node;
+        var start = System.nanoTime();
+        try {
+            element.parse(source, args, context);
+        } catch (ArgumentParseException e) {
+            node.failures.increment();
+            throw e;
+        } finally {
+            node.nanos.add(System.nanoTime() - start);
+            node.invocations.increment();
+            session.current = parent;
+        }
+    }
+
+    /**
+     * Parses the arguments of a command into the context, profiling every
+     * element of the spec.
+     *
+     * @param name The name the spec is reported under
+     * @param spec The spec to parse with
+     * @param source The source of the command
+     * @param args The arguments to parse
+     * @param context The context to parse into
+     * @throws ArgumentParseException If the arguments could not be parsed
+     */
+    public void populateContext(String name, CommandSpec spec, CommandSource source, CommandArgs args, CommandContext context)
+            throws ArgumentParseException {
+        var root = this.profiles.computeIfAbsent(spec, s -> new Node(checkNotNull(name, "name")));
+        var session = new Session(root);
+        args.profile = session;
+        context.profile = session;
+        var start = System.nanoTime();
+        try {
+            spec.populateContext(source, args, context);
+        } catch (ArgumentParseException e) {
+            root.failures.increment();
+            throw e;
+        } finally {
+            root.nanos.add(System.nanoTime() - start);
+            root.invocations.increment();
+            args.profile = null;
+            context.profile = null;
+        }
+    }
+
+    /**
+     * Prints the element tree of every profiled spec with its counters.
+     *
+     * @return The report, one line per element
+     */
+    public String report() {
+        var builder = new StringBuilder();
+        for (var root : this.profiles.values()) {
+            root.print(builder, 0);
+        }
+        return builder.toString();
+    }
+
+    public String report(CommandSpec spec) {
+        var builder = new StringBuilder();
+        var root = this.profiles.get(spec);
+        if (root != null) {
+            root.print(builder, 0);
+        }
+        return builder.toString();
+    }
+
+    public void reset() {
+        this.profiles.clear();
+    }
+
+    static final class Session {
+
+        Node current;
+
+        Session(Node root) {
+            this.current = root;
+        }
+
+        void snapshot() {
+            this.current.snapshots.increment();
+        }
+
+        void backtrack() {
+            this.current.backtracks.increment();
+        }
+    }
+
+    private static final class Node {
+
+        final String name;
+        @Nullable
+        final CommandElement element;
+        final List<Node> children = new CopyOnWriteArrayList<>();
+        final LongAdder invocations = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder snapshots = new LongAdder();
+        final LongAdder backtracks = new LongAdder();
+
+        Node(String name) {
+            this.name = name;
+            this.element = null;
+        }
+
+        Node(CommandElement element) {
+            var key = element.getKey();
+            var type = element.getClass().getSimpleName();
+            if (type.isEmpty()) {
+                type = element.getClass().getName().substring(element.getClass().getName().lastIndexOf('.') + 1);
+            }
+            this.name = key == null ? type : key + " (" + type + ")";
+            this.element = element;
+        }
+
+        Node child(CommandElement element) {
+            for (var child : this.children) {
+                if (child.element == element) {
+                    return child;
+                }
+            }
+            synchronized (this) {
+                for (var child : this.children) {
+                    if (child.element == element) {
+                        return child;
+                    }
+                }
+                var child = new Node(element);
+                this.children.add(child);
+                return child;
+            }
+        }
+
+        void print(StringBuilder builder, int depth) {
+            builder.append("  ".repeat(depth))
+                    .append(this.name)
+                    .append(": ").append(this.invocations.sum()).append(" calls")
+                    .append(", ").append(String.format("%.3f", this.nanos.sum() / 1e6)).append(" ms")
+                    .append(", ").append(this.failures.sum()).append(" failed")
+                    .append(", ").append(this.backtracks.sum()).append(" backtracks")
+                    .append(", ").append(this.snapshots.sum()).append(" snapshots")
+                    .append('\n');
+            for (var child : this.children) {
+                child.print(builder, depth + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.mikucat0309.command.batch;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.github.mikucat0309.command.CommandSource;
+import com.google.common.base.MoreObjects;
+
+public final class BatchCommand {
+
+    private final CommandSource source;
+    private final String commandLine;
+
+    private BatchCommand(CommandSource source, String commandLine) {
+        this.source = source;
+        this.commandLine = commandLine;
+    }
+
+    public static BatchCommand of(CommandSource source, String commandLine) {
+        return new BatchCommand(checkNotNull(source, "source"), checkNotNull(commandLine, "commandLine"));
+    }
+
+    public CommandSource getSource() {
+        return this.source;
+    }
+
+    public String getCommandLine() {
+        return this.commandLine;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("source", this.source.getName())
+                .add("commandLine", this.commandLine)
+                .toString();
+    }
+}
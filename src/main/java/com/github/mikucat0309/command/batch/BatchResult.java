@@ -0,0 +1,115 @@
+package com.github.mikucat0309.command.batch;
+
+import com.github.mikucat0309.command.CommandResult;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+public final class BatchResult {
+
+    private final ImmutableList<Entry> entries;
+    private final long parseNanos;
+    private final long executeNanos;
+    private final int failures;
+
+    public BatchResult(List<Entry> entries, long parseNanos, long executeNanos) {
+        this.entries = ImmutableList.copyOf(entries);
+        this.parseNanos = parseNanos;
+        this.executeNanos = executeNanos;
+        this.failures = (int) this.entries.stream().filter(entry -> entry.getError().isPresent()).count();
+    }
+
+    /**
+     * Gets the outcome of every command, in submission order.
+     *
+     * @return The outcomes
+     */
+    public List<Entry> getEntries() {
+        return this.entries;
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public int getFailures() {
+        return this.failures;
+    }
+
+    public int getSuccesses() {
+        return size() - this.failures;
+    }
+
+    public Duration getParseTime() {
+        return Duration.ofNanos(this.parseNanos);
+    }
+
+    public Duration getExecuteTime() {
+        return Duration.ofNanos(this.executeNanos);
+    }
+
+    public Duration getTotalTime() {
+        return Duration.ofNanos(this.parseNanos + this.executeNanos);
+    }
+
+    /**
+     * Gets the number of commands processed per second of wall time.
+     *
+     * @return The throughput
+     */
+    public double getThroughput() {
+        var total = this.parseNanos + this.executeNanos;
+        return total == 0 ? 0 : size() * 1_000_000_000.0 / total;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("size", size())
+                .add("failures", this.failures)
+                .add("parseTime", getParseTime())
+                .add("executeTime", getExecuteTime())
+                .add("throughput", getThroughput())
+                .toString();
+    }
+
+    public static final class Entry {
+
+        private final BatchCommand command;
+        @Nullable
+        private final CommandResult result;
+        @Nullable
+        private final Throwable error;
+
+        private Entry(BatchCommand command, @Nullable CommandResult result, @Nullable Throwable error) {
+            this.command = command;
+            this.result = result;
+            this.error = error;
+        }
+
+        public static Entry success(BatchCommand command, CommandResult result) {
+            return new Entry(command, result, null);
+        }
+
+        public static Entry failure(BatchCommand command, Throwable error) {
+            return new Entry(command, null, error);
+        }
+
+        public BatchCommand getCommand() {
+            return this.command;
+        }
+
+        public Optional<CommandResult> getResult() {
+            return Optional.ofNullable(this.result);
+        }
+
+        public Optional<Throwable> getError() {
+            return Optional.ofNullable(this.error);
+        }
+    }
+}
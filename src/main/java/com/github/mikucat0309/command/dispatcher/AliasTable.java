@@ -0,0 +1,268 @@
+package com.github.mikucat0309.command.dispatcher;
+
+import com.github.mikucat0309.command.CommandMapping;
+import com.google.common.collect.ImmutableList;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+
+/**
+ * An open-addressing hash table from lower case aliases to the mappings
+ * registered for them, stored in two flat arrays. A slot holds either the
+ * single mapping of its alias or, for the rare alias shared by several
+ * mappings, an array of them, so the common case costs two array slots and
+ * no objects of its own.
+ *
+ * <p>Lookups take no lock. Writers must hold a common lock; they publish a
+ * slot by writing its value before its key, and grow the table by building
+ * a new one that replaces the old in a single volatile write. Removed keys
+ * are left as tombstones until the next rebuild.</p>
+ */
+final class AliasTable {
+
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(String[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final String TOMBSTONE = new String("");
+    private static final int MIN_CAPACITY = 16;
+
+    private volatile Slots slots = new Slots(MIN_CAPACITY);
+    // Live keys, key-mapping pairs and occupied slots including tombstones, guarded by the writers' lock
+    private int keys;
+    private int entries;
+    private int used;
+
+    /**
+     * Gets the mappings of an alias without taking a lock.
+     *
+     * @param key The lower case alias
+     * @return The mapping, an array of mappings or null if there is none
+     */
+    @Nullable
+    Object find(String key) {
+        var slots = this.slots;
+        var mask = slots.keys.length - 1;
+        for (int i = spread(key.hashCode()) & mask; ; i = (i + 1) & mask) {
+            var candidate = (String) KEYS.getAcquire(slots.keys, i);
+            if (candidate == null) {
+                return null;
+            }
+            if (candidate != TOMBSTONE && candidate.equals(key)) {
+                // Null if the key was removed since it was read
+                return VALUES.getAcquire(slots.values, i);
+            }
+        }
+    }
+
+    static int count(@Nullable Object value) {
+        return value == null ? 0 : value instanceof CommandMapping ? 1 : ((CommandMapping[]) value).length;
+    }
+
+    static CommandMapping get(Object value, int index) {
+        return value instanceof CommandMapping ? (CommandMapping) value : ((CommandMapping[]) value)[index];
+    }
+
+    static ImmutableList<CommandMapping> asList(@Nullable Object value) {
+        if (value == null) {
+            return ImmutableList.of();
+        }
+        return value instanceof CommandMapping ? ImmutableList.of((CommandMapping) value) : ImmutableList.copyOf((CommandMapping[]) value);
+    }
+
+    void put(String key, CommandMapping mapping) {
+        var slots = this.slots;
+        var index = indexOf(slots, key);
+        if (index >= 0) {
+            var value = slots.values[index];
+            if (value instanceof CommandMapping) {
+                value = new CommandMapping[] {(CommandMapping) value, mapping};
+            } else {
+                var mappings = (CommandMapping[]) value;
+                mappings = Arrays.copyOf(mappings, mappings.length + 1);
+                mappings[mappings.length - 1] = mapping;
+                value = mappings;
+            }
+            VALUES.setRelease(slots.values, index, value);
+        } else {
+            if ((this.used + 1) * 4 > slots.keys.length * 3) {
+                slots = rebuild(this.keys + 1);
+            }
+            insert(slots, key, mapping);
+            this.used++;
+            this.keys++;
+        }
+        this.entries++;
+    }
+
+    /**
+     * Removes every mapping of an alias.
+     *
+     * @param key The lower case alias
+     * @return The removed mappings
+     */
+    ImmutableList<CommandMapping> remove(String key) {
+        var slots = this.slots;
+        var index = indexOf(slots, key);
+        if (index < 0) {
+            return ImmutableList.of();
+        }
+        var removed = asList(slots.values[index]);
+        clear(slots, index);
+        this.entries -= removed.size();
+        compact();
+        return removed;
+    }
+
+    /**
+     * Removes the matching mappings from every alias they are registered under.
+     *
+     * @param filter Selects the mappings to remove
+     * @param removed Called with the alias of each removed key-mapping pair
+     * @return Whether any mapping was removed
+     */
+    boolean removeIf(Predicate<CommandMapping> filter, Consumer<String> removed) {
+        var found = false;
+        var slots = this.slots;
+        for (int i = 0; i < slots.keys.length; i++) {
+            var key = slots.keys[i];
+            if (key == null || key == TOMBSTONE) {
+                continue;
+            }
+            var value = slots.values[i];
+            if (value instanceof CommandMapping) {
+                if (!filter.test((CommandMapping) value)) {
+                    continue;
+                }
+                clear(slots, i);
+                this.entries--;
+                removed.accept(key);
+            } else {
+                var mappings = (CommandMapping[]) value;
+                var remaining = new ArrayList<CommandMapping>(mappings.length);
+                for (var mapping : mappings) {
+                    if (filter.test(mapping)) {
+                        this.entries--;
+                        removed.accept(key);
+                    } else {
+                        remaining.add(mapping);
+                    }
+                }
+                if (remaining.size() == mappings.length) {
+                    continue;
+                }
+                if (remaining.isEmpty()) {
+                    clear(slots, i);
+                } else {
+                    VALUES.setRelease(slots.values, i,
+                            remaining.size() == 1 ? remaining.get(0) : remaining.toArray(new CommandMapping[0]));
+                }
+            }
+            found = true;
+        }
+        compact();
+        return found;
+    }
+
+    /**
+     * Visits every alias and its mappings, in no particular order. Without the
+     * writers' lock, concurrent changes may or may not be seen.
+     *
+     * @param action Called with each alias and its mapping or array of mappings
+     */
+    void forEach(BiConsumer<String, Object> action) {
+        var slots = this.slots;
+        for (int i = 0; i < slots.keys.length; i++) {
+            var key = (String) KEYS.getAcquire(slots.keys, i);
+            if (key != null && key != TOMBSTONE) {
+                var value = VALUES.getAcquire(slots.values, i);
+                if (value != null) {
+                    action.accept(key, value);
+                }
+            }
+        }
+    }
+
+    int keys() {
+        return this.keys;
+    }
+
+    int entries() {
+        return this.entries;
+    }
+
+    private void clear(Slots slots, int index) {
+        KEYS.setRelease(slots.keys, index, TOMBSTONE);
+        VALUES.setRelease(slots.values, index, null);
+        this.keys--;
+    }
+
+    // Drops the tombstones once they make up most of the table
+    private void compact() {
+        if (this.used - this.keys > this.slots.keys.length / 2) {
+            rebuild(this.keys);
+        }
+    }
+
+    private Slots rebuild(int expectedKeys) {
+        // At most 3/8 full after a rebuild, so the table grows by doubling at 3/4
+        var capacity = MIN_CAPACITY;
+        while (capacity * 3 < expectedKeys * 8) {
+            capacity <<= 1;
+        }
+        var old = this.slots;
+        var slots = new Slots(capacity);
+        for (int i = 0; i < old.keys.length; i++) {
+            var key = old.keys[i];
+            if (key != null && key != TOMBSTONE) {
+                insert(slots, key, old.values[i]);
+            }
+        }
+        this.used = this.keys;
+        this.slots = slots;
+        return slots;
+    }
+
+    private static void insert(Slots slots, String key, Object value) {
+        var mask = slots.keys.length - 1;
+        var i = spread(key.hashCode()) & mask;
+        while (slots.keys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        VALUES.setRelease(slots.values, i, value);
+        KEYS.setRelease(slots.keys, i, key);
+    }
+
+    private static int indexOf(Slots slots, String key) {
+        var mask = slots.keys.length - 1;
+        for (int i = spread(key.hashCode()) & mask; ; i = (i + 1) & mask) {
+            var candidate = slots.keys[i];
+            if (candidate == null) {
+                return -1;
+            }
+            if (candidate != TOMBSTONE && candidate.equals(key)) {
+                return i;
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Slots {
+
+        final String[] keys;
+        final Object[] values;
+
+        Slots(int capacity) {
+            this.keys = new String[capacity];
+            this.values = new Object[capacity];
+        }
+    }
+}
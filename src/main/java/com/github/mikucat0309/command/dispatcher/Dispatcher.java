@@ -29,4 +29,13 @@ public interface Dispatcher extends CommandCallable {
     boolean containsAlias(String alias);
 
     boolean containsMapping(CommandMapping mapping);
+
+    /**
+     * Gets the registry version. It changes every time a mapping is added or
+     * removed, and views returned by this dispatcher stay the same object
+     * until it does.
+     *
+     * @return The current registry version
+     */
+    long getVersion();
 }
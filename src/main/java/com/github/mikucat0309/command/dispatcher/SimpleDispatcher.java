@@ -11,23 +11,27 @@ import com.github.mikucat0309.command.CommandNotFoundException;
 import com.github.mikucat0309.command.CommandResult;
 import com.github.mikucat0309.command.CommandSource;
 import com.github.mikucat0309.command.ImmutableCommandMapping;
-import com.google.common.collect.ArrayListMultimap;
+import com.github.mikucat0309.command.util.BkTree;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
@@ -43,8 +47,33 @@ public final class SimpleDispatcher implements Dispatcher {
         return Optional.of(availableOptions.get(0));
     };
 
+    private static final int MIN_ALIAS_FILTER_CAPACITY = 64;
+    private static final double ALIAS_FILTER_FPP = 0.01;
+
     private final Disambiguator disambiguatorFunc;
-    private final ListMultimap<String, CommandMapping> commands = ArrayListMultimap.create();
+    // Lower case alias to mappings, read without locking
+    private final AliasTable commands = new AliasTable();
+
+    // Immutable views of the registry, rebuilt lazily after each modification. Only the whole-registry
+    // getters use them; point lookups read the alias table, or registering N commands would cost O(N^2)
+    private volatile long version;
+    @Nullable
+    private volatile ImmutableListMultimap<String, CommandMapping> allView;
+    @Nullable
+    private volatile ImmutableSet<CommandMapping> commandsView;
+    @Nullable
+    private volatile ImmutableSet<String> primaryAliasesView;
+    @Nullable
+    private volatile ImmutableSet<String> aliasesView;
+
+    // Negative lookup filter over all registered aliases. Bloom filters cannot forget keys, so removed
+    // aliases stay in it as false positives until there are enough of them to justify a rebuild.
+    private volatile BloomFilter<CharSequence> aliasFilter = createAliasFilter(MIN_ALIAS_FILTER_CAPACITY);
+    private int aliasFilterCapacity = MIN_ALIAS_FILTER_CAPACITY;
+    private int aliasFilterInsertions;
+
+    // Metric index over the aliases for "did you mean" suggestions
+    private final BkTree aliasIndex = new BkTree();
 
     public SimpleDispatcher() {
         this(FIRST_DISAMBIGUATOR);
@@ -79,14 +108,32 @@ public final class SimpleDispatcher implements Dispatcher {
         var mapping = new ImmutableCommandMapping(callable, primary, secondary);
 
         for (String alias : aliases) {
-            this.commands.put(alias.toLowerCase(), mapping);
+            var key = alias.toLowerCase();
+            this.commands.put(key, mapping);
+            this.aliasFilter.put(key);
+            this.aliasFilterInsertions++;
+            this.aliasIndex.add(key);
         }
+        invalidateViews();
 
         return Optional.of(mapping);
     }
 
     public synchronized Collection<CommandMapping> remove(String alias) {
-        return this.commands.removeAll(alias.toLowerCase());
+        var removed = removeKey(alias.toLowerCase());
+        if (!removed.isEmpty()) {
+            invalidateViews();
+        }
+        return removed;
+    }
+
+    // Must be called while holding the monitor
+    private List<CommandMapping> removeKey(String key) {
+        var removed = this.commands.remove(key);
+        for (int i = 0; i < removed.size(); i++) {
+            this.aliasIndex.remove(key);
+        }
+        return removed;
     }
 
     public synchronized boolean removeAll(Collection<?> aliases) {
@@ -95,72 +142,167 @@ public final class SimpleDispatcher implements Dispatcher {
         boolean found = false;
 
         for (Object alias : aliases) {
-            if (!this.commands.removeAll(alias.toString().toLowerCase()).isEmpty()) {
+            if (!removeKey(alias.toString().toLowerCase()).isEmpty()) {
                 found = true;
             }
         }
 
+        if (found) {
+            invalidateViews();
+        }
         return found;
     }
 
     public synchronized Optional<CommandMapping> removeMapping(CommandMapping mapping) {
         checkNotNull(mapping, "mapping");
 
-        CommandMapping found = null;
-
-        var it = this.commands.values().iterator();
-        while (it.hasNext()) {
-            var current = it.next();
-            if (current.equals(mapping)) {
-                it.remove();
-                found = current;
-            }
+        if (!this.commands.removeIf(mapping::equals, this.aliasIndex::remove)) {
+            return Optional.empty();
         }
-
-        return Optional.ofNullable(found);
+        invalidateViews();
+        return Optional.of(mapping);
     }
 
     public synchronized boolean removeMappings(Collection<?> mappings) {
         checkNotNull(mappings, "mappings");
 
-        boolean found = false;
+        var found = this.commands.removeIf(mappings::contains, this.aliasIndex::remove);
+        if (found) {
+            invalidateViews();
+        }
+        return found;
+    }
 
-        var it = this.commands.values().iterator();
-        while (it.hasNext()) {
-            if (mappings.contains(it.next())) {
-                it.remove();
-                found = true;
-            }
+    // Must be called while holding the monitor
+    private void invalidateViews() {
+        this.allView = null;
+        this.commandsView = null;
+        this.primaryAliasesView = null;
+        this.aliasesView = null;
+        this.version++;
+
+        var keys = this.commands.keys();
+        var stale = this.aliasFilterInsertions - keys;
+        if (this.aliasFilterInsertions > this.aliasFilterCapacity || stale > Math.max(keys, MIN_ALIAS_FILTER_CAPACITY)) {
+            rebuildAliasFilter(keys);
         }
+    }
 
-        return found;
+    private void rebuildAliasFilter(int keys) {
+        var capacity = Math.max(MIN_ALIAS_FILTER_CAPACITY, keys * 2);
+        var filter = createAliasFilter(capacity);
+        this.commands.forEach((key, mappings) -> filter.put(key));
+        this.aliasFilter = filter;
+        this.aliasFilterCapacity = capacity;
+        this.aliasFilterInsertions = keys;
     }
 
-    @Override
-    public synchronized Set<CommandMapping> getCommands() {
-        return ImmutableSet.copyOf(this.commands.values());
+    private static BloomFilter<CharSequence> createAliasFilter(int capacity) {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), capacity, ALIAS_FILTER_FPP);
+    }
+
+    /**
+     * Finds the registered aliases closest to a mistyped alias, nearest first.
+     * The search stops once {@code budget} has elapsed and returns what it
+     * has found so far.
+     *
+     * @param alias The unknown alias
+     * @param maxDistance The maximum edit distance of a suggestion
+     * @param limit The maximum number of suggestions
+     * @param budget The time allowed for the search
+     * @return The suggested aliases
+     */
+    public List<String> getSimilarAliases(String alias, int maxDistance, int limit, Duration budget) {
+        return this.aliasIndex.search(alias.toLowerCase(), maxDistance, limit, System.nanoTime() + budget.toNanos());
+    }
+
+    /**
+     * Checks whether the given alias may be registered, without taking any
+     * lock. A {@code false} return means the alias is definitely unknown;
+     * {@code true} may be a false positive.
+     *
+     * @param alias The alias to check
+     * @return Whether the alias might be registered
+     */
+    public boolean mightContainAlias(String alias) {
+        return this.aliasFilter.mightContain(alias.toLowerCase());
     }
 
     @Override
-    public synchronized Set<String> getPrimaryAliases() {
-        var aliases = new HashSet<String>();
+    public long getVersion() {
+        return this.version;
+    }
 
-        for (CommandMapping mapping : this.commands.values()) {
-            aliases.add(mapping.getPrimaryAlias());
-        }
+    // Lets tests check that point lookups and registration leave the views unbuilt
+    boolean hasCachedViews() {
+        return this.allView != null || this.commandsView != null || this.primaryAliasesView != null || this.aliasesView != null;
+    }
 
-        return Collections.unmodifiableSet(aliases);
+    private ImmutableListMultimap<String, CommandMapping> allView() {
+        var view = this.allView;
+        if (view == null) {
+            synchronized (this) {
+                view = this.allView;
+                if (view == null) {
+                    var builder = ImmutableListMultimap.<String, CommandMapping>builder().orderKeysBy(Comparator.naturalOrder());
+                    this.commands.forEach((key, mappings) -> builder.putAll(key, AliasTable.asList(mappings)));
+                    view = builder.build();
+                    this.allView = view;
+                }
+            }
+        }
+        return view;
     }
 
     @Override
-    public synchronized Set<String> getAliases() {
-        var aliases = new HashSet<String>();
+    public Set<CommandMapping> getCommands() {
+        var view = this.commandsView;
+        if (view == null) {
+            synchronized (this) {
+                view = this.commandsView;
+                if (view == null) {
+                    var builder = ImmutableSet.<CommandMapping>builder();
+                    this.commands.forEach((key, mappings) -> builder.addAll(AliasTable.asList(mappings)));
+                    view = builder.build();
+                    this.commandsView = view;
+                }
+            }
+        }
+        return view;
+    }
 
-        for (CommandMapping mapping : this.commands.values()) {
-            aliases.addAll(mapping.getAllAliases());
+    @Override
+    public Set<String> getPrimaryAliases() {
+        var view = this.primaryAliasesView;
+        if (view == null) {
+            synchronized (this) {
+                view = this.primaryAliasesView;
+                if (view == null) {
+                    view = getCommands().stream()
+                            .map(CommandMapping::getPrimaryAlias)
+                            .collect(ImmutableSet.toImmutableSet());
+                    this.primaryAliasesView = view;
+                }
+            }
         }
+        return view;
+    }
 
-        return Collections.unmodifiableSet(aliases);
+    @Override
+    public Set<String> getAliases() {
+        var view = this.aliasesView;
+        if (view == null) {
+            synchronized (this) {
+                view = this.aliasesView;
+                if (view == null) {
+                    view = getCommands().stream()
+                            .flatMap(mapping -> mapping.getAllAliases().stream())
+                            .collect(ImmutableSet.toImmutableSet());
+                    this.aliasesView = view;
+                }
+            }
+        }
+        return view;
     }
 
     @Override
@@ -169,33 +311,46 @@ public final class SimpleDispatcher implements Dispatcher {
     }
 
     @Override
-    public synchronized Optional<CommandMapping> get(String alias, @Nullable CommandSource source) {
-        var results = this.commands.get(alias.toLowerCase());
+    public Optional<CommandMapping> get(String alias, @Nullable CommandSource source) {
+        var mappings = this.commands.find(alias.toLowerCase());
+        var count = AliasTable.count(mappings);
         var result = Optional.<CommandMapping>empty();
-        if (results.size() == 1) {
-            result = Optional.of(results.get(0));
-        } else if (results.size() > 1) {
-            result = this.disambiguatorFunc.disambiguate(source, alias, results);
+        if (count == 1) {
+            result = Optional.of(AliasTable.get(mappings, 0));
+        } else if (count > 1) {
+            result = this.disambiguatorFunc.disambiguate(source, alias, AliasTable.asList(mappings));
         }
         return result;
     }
 
+    /**
+     * Gets the first mapping of an alias that matches a filter, without
+     * consulting the disambiguator.
+     *
+     * @param alias The alias
+     * @param filter The filter the mapping must match
+     * @return The mapping, if any matched
+     */
+    public Optional<CommandMapping> find(String alias, Predicate<? super CommandMapping> filter) {
+        var mappings = this.commands.find(alias.toLowerCase());
+        for (int i = 0, count = AliasTable.count(mappings); i < count; i++) {
+            var mapping = AliasTable.get(mappings, i);
+            if (filter.test(mapping)) {
+                return Optional.of(mapping);
+            }
+        }
+        return Optional.empty();
+    }
+
     @Override
-    public synchronized boolean containsAlias(String alias) {
-        return this.commands.containsKey(alias.toLowerCase());
+    public boolean containsAlias(String alias) {
+        return this.commands.find(alias.toLowerCase()) != null;
     }
 
     @Override
     public boolean containsMapping(CommandMapping mapping) {
         checkNotNull(mapping, "mapping");
-
-        for (CommandMapping test : this.commands.values()) {
-            if (mapping.equals(test)) {
-                return true;
-            }
-        }
-
-        return false;
+        return getCommands().contains(mapping);
     }
 
     @Override
@@ -215,6 +370,21 @@ public final class SimpleDispatcher implements Dispatcher {
         }
     }
 
+    @Override
+    public CompletionStage<CommandResult> processAsync(CommandSource source, String commandLine) throws CommandException {
+        final String[] argSplit = commandLine.split(" ", 2);
+        var cmdOptional = get(argSplit[0], source);
+        if (cmdOptional.isEmpty()) {
+            throw new CommandNotFoundException("commands.generic.notFound", argSplit[0]);
+        }
+        var arguments = argSplit.length > 1 ? argSplit[1] : "";
+        try {
+            return cmdOptional.get().getCallable().processAsync(source, arguments);
+        } catch (CommandNotFoundException e) {
+            throw new CommandException(String.format("No such child command: %s", e.getCommand()));
+        }
+    }
+
     @Override
     public List<String> getSuggestions(CommandSource src, final String arguments) throws CommandException {
         final String[] argSplit = arguments.split(" ", 2);
@@ -234,7 +404,7 @@ public final class SimpleDispatcher implements Dispatcher {
 
     @Override
     public Optional<String> getHelp(CommandSource source) {
-        if (this.commands.isEmpty()) {
+        if (this.commands.keys() == 0) {
             return Optional.empty();
         }
         var build = new StringBuilder("Available commands:\n");
@@ -256,18 +426,24 @@ public final class SimpleDispatcher implements Dispatcher {
     }
 
     private Set<String> filterCommands(final CommandSource src) {
-        return this.commands.keySet();
+        return allView().keySet();
     }
 
     // Filter out commands by String first
     private Set<String> filterCommands(final CommandSource src, String start) {
-        ListMultimap<String, CommandMapping> map = Multimaps.filterKeys(this.commands,
-                input -> input != null && input.toLowerCase().startsWith(start.toLowerCase()));
-        return map.keySet();
+        var lowerStart = start.toLowerCase();
+        var matches = new ArrayList<String>();
+        this.commands.forEach((key, mappings) -> {
+            if (key.startsWith(lowerStart)) {
+                matches.add(key);
+            }
+        });
+        matches.sort(null);
+        return ImmutableSet.copyOf(matches);
     }
 
     public synchronized int size() {
-        return this.commands.size();
+        return this.commands.entries();
     }
 
     @Override
@@ -293,12 +469,12 @@ public final class SimpleDispatcher implements Dispatcher {
     }
 
     @Override
-    public synchronized Set<CommandMapping> getAll(String alias) {
-        return ImmutableSet.copyOf(this.commands.get(alias));
+    public Set<CommandMapping> getAll(String alias) {
+        return ImmutableSet.copyOf(AliasTable.asList(this.commands.find(alias)));
     }
 
     @Override
     public Multimap<String, CommandMapping> getAll() {
-        return ImmutableMultimap.copyOf(this.commands);
+        return allView();
     }
 }
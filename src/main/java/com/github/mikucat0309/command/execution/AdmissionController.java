@@ -0,0 +1,156 @@
+package com.github.mikucat0309.command.execution;
+
+import com.github.mikucat0309.command.CommandRejectedException;
+import com.github.mikucat0309.command.CommandSource;
+import com.github.mikucat0309.command.MetaData;
+import com.github.mikucat0309.command.util.TokenBucket;
+import com.google.common.cache.CacheBuilder;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+/**
+ * Admission control in front of command processing. Requests are checked
+ * against token buckets for the source, the plugin that owns the command
+ * and the command itself; any empty bucket sheds the request. A shed request
+ * returns the tokens it already took from the other levels, so being shed
+ * by one level does not use up the budget of another.
+ *
+ * <p>Buckets are created on first use and dropped after they have been idle
+ * for a while, at which point they would have been full again anyway.</p>
+ */
+public final class AdmissionController {
+
+    private static final Duration IDLE_EXPIRY = Duration.ofMinutes(10);
+
+    @Nullable
+    private final RateLimit sourceLimit;
+    @Nullable
+    private final RateLimit pluginLimit;
+    @Nullable
+    private final RateLimit commandLimit;
+    private final ConcurrentMap<String, TokenBucket> sourceBuckets = newBucketMap();
+    private final ConcurrentMap<String, TokenBucket> suggestionBuckets = newBucketMap();
+    private final ConcurrentMap<String, TokenBucket> pluginBuckets = newBucketMap();
+    private final ConcurrentMap<String, TokenBucket> commandBuckets = newBucketMap();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shedBySource = new LongAdder();
+    private final LongAdder shedByPlugin = new LongAdder();
+    private final LongAdder shedByCommand = new LongAdder();
+
+    /**
+     * Create a new controller. A {@code null} limit disables that level;
+     * commands can still declare their own limit on their spec.
+     *
+     * @param sourceLimit The limit applied to each source
+     * @param pluginLimit The limit applied to all commands of each plugin
+     * @param commandLimit The default limit applied to each command
+     */
+    public AdmissionController(@Nullable RateLimit sourceLimit, @Nullable RateLimit pluginLimit, @Nullable RateLimit commandLimit) {
+        this.sourceLimit = sourceLimit;
+        this.pluginLimit = pluginLimit;
+        this.commandLimit = commandLimit;
+    }
+
+    private static ConcurrentMap<String, TokenBucket> newBucketMap() {
+        return CacheBuilder.newBuilder().expireAfterAccess(IDLE_EXPIRY).<String, TokenBucket>build().asMap();
+    }
+
+    private static TokenBucket bucket(ConcurrentMap<String, TokenBucket> buckets, String key, RateLimit limit) {
+        var bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> limit.newBucket());
+        }
+        return bucket;
+    }
+
+    private static boolean tryAcquire(ConcurrentMap<String, TokenBucket> buckets, String key, RateLimit limit) {
+        return bucket(buckets, key, limit).tryAcquire();
+    }
+
+    private static void release(@Nullable TokenBucket first, @Nullable TokenBucket second) {
+        if (first != null) {
+            first.release(1);
+        }
+        if (second != null) {
+            second.release(1);
+        }
+    }
+
+    /**
+     * Admit a command invocation or reject it.
+     *
+     * @param source The source of the command
+     * @param alias The primary alias of the command
+     * @param owner The plugin owning the command, if known
+     * @param specLimit The limit the command declared, if any
+     * @throws CommandRejectedException If any of the limits was exceeded
+     */
+    public void admit(CommandSource source, String alias, @Nullable MetaData owner, Optional<RateLimit> specLimit)
+            throws CommandRejectedException {
+        TokenBucket sourceBucket = null;
+        if (this.sourceLimit != null) {
+            sourceBucket = bucket(this.sourceBuckets, source.getName(), this.sourceLimit);
+            if (!sourceBucket.tryAcquire()) {
+                this.shedBySource.increment();
+                throw new CommandRejectedException("You are sending commands too quickly, please slow down");
+            }
+        }
+        TokenBucket pluginBucket = null;
+        if (this.pluginLimit != null && owner != null) {
+            pluginBucket = bucket(this.pluginBuckets, owner.getId(), this.pluginLimit);
+            if (!pluginBucket.tryAcquire()) {
+                release(sourceBucket, null);
+                this.shedByPlugin.increment();
+                throw new CommandRejectedException("The server is busy, please try again later");
+            }
+        }
+        var commandLimit = specLimit.orElse(this.commandLimit);
+        if (commandLimit != null && !tryAcquire(this.commandBuckets, alias, commandLimit)) {
+            release(sourceBucket, pluginBucket);
+            this.shedByCommand.increment();
+            throw new CommandRejectedException(String.format("The command %s is busy, please try again later", alias));
+        }
+        this.admitted.increment();
+    }
+
+    /**
+     * Check whether a source may request tab completions. Completions use
+     * their own buckets so typing does not eat into the command budget.
+     *
+     * @param source The source asking for completions
+     * @return Whether the request was admitted
+     */
+    public boolean admitSuggestions(CommandSource source) {
+        if (this.sourceLimit != null && !tryAcquire(this.suggestionBuckets, source.getName(), this.sourceLimit)) {
+            this.shedBySource.increment();
+            return false;
+        }
+        this.admitted.increment();
+        return true;
+    }
+
+    public long getAdmitted() {
+        return this.admitted.sum();
+    }
+
+    public long getShed() {
+        return this.shedBySource.sum() + this.shedByPlugin.sum() + this.shedByCommand.sum();
+    }
+
+    public long getShedBySource() {
+        return this.shedBySource.sum();
+    }
+
+    public long getShedByPlugin() {
+        return this.shedByPlugin.sum();
+    }
+
+    public long getShedByCommand() {
+        return this.shedByCommand.sum();
+    }
+}
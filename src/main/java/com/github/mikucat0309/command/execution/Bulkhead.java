@@ -0,0 +1,290 @@
+package com.github.mikucat0309.command.execution;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.github.mikucat0309.command.CommandException;
+import com.github.mikucat0309.command.CommandRejectedException;
+import com.github.mikucat0309.command.CommandTimeoutException;
+import com.github.mikucat0309.command.InvocationCommandException;
+import com.google.common.base.MoreObjects;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+/**
+ * Isolates the commands of one plugin from the others: only a bounded
+ * number of them run at once, a bounded number may wait for a slot, and a
+ * {@link CircuitBreaker} short-circuits them after repeated failures.
+ *
+ * <p>Commands run on the caller's thread wait for a slot with
+ * {@link #acquire()}, while those handed to an executor are queued with
+ * {@link #submit(Executor, Task)} and only given to the executor once a
+ * slot is free, so waiting never holds a pooled thread.</p>
+ */
+public final class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Queue<Waiter<?>> waiting = new ConcurrentLinkedQueue<>();
+    private final CircuitBreaker circuitBreaker;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueued, CircuitBreaker circuitBreaker) {
+        checkArgument(maxConcurrent > 0, "maxConcurrent must be positive");
+        checkArgument(maxQueued >= 0, "maxQueued must not be negative");
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Takes a slot, waiting for one if the queue has room.
+     *
+     * @return The circuit breaker ticket to hand back on release
+     * @throws CommandException If the circuit is open, the queue is full or
+     *     the thread was interrupted while waiting
+     */
+    public long acquire() throws CommandException {
+        final long ticket = this.circuitBreaker.tryAcquire();
+        if (ticket == CircuitBreaker.REFUSED) {
+            throw shortCircuited();
+        }
+        if (!this.permits.tryAcquire()) {
+            if (this.queued.incrementAndGet() > this.maxQueued) {
+                throw rejected(ticket);
+            }
+            try {
+                this.permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.circuitBreaker.onSkipped(ticket);
+                throw new CommandException("Interrupted while waiting to execute the command", e);
+            } finally {
+                this.queued.decrementAndGet();
+            }
+        }
+        return ticket;
+    }
+
+    /**
+     * Runs a task on an executor once a slot is free, queueing it in the
+     * bulkhead if the queue has room. The task takes over the slot and must
+     * free it with {@link #release(long, Throwable)} or
+     * {@link #releaseUnused(long)}, passing the ticket it is given.
+     *
+     * @param executor The executor to run the task on
+     * @param task The task
+     * @param <T> The result type of the task
+     * @return The result of the task, failed with a
+     *     {@link CommandRejectedException} if the circuit is open, the queue
+     *     is full or the executor refused the task
+     */
+    public <T> CompletableFuture<T> submit(Executor executor, Task<T> task) {
+        final long ticket = this.circuitBreaker.tryAcquire();
+        if (ticket == CircuitBreaker.REFUSED) {
+            return CompletableFuture.failedFuture(shortCircuited());
+        }
+        final Waiter<T> waiter = new Waiter<>(executor, ticket, task);
+        if (this.permits.tryAcquire()) {
+            if (!start(waiter)) {
+                startWaiting();
+            }
+        } else if (this.queued.incrementAndGet() > this.maxQueued) {
+            waiter.result.completeExceptionally(rejected(ticket));
+        } else {
+            this.waiting.add(waiter);
+            // A slot may have been released since tryAcquire failed
+            startWaiting();
+        }
+        return waiter.result;
+    }
+
+    /**
+     * Frees the slot taken by {@link #acquire()} and records the outcome.
+     * Failures of the command's own making, such as usage errors, do not
+     * count towards opening the circuit.
+     *
+     * @param ticket The ticket returned by {@link #acquire()}
+     * @param failure What the command failed with, or null on success
+     */
+    public void release(long ticket, @Nullable Throwable failure) {
+        this.permits.release();
+        startWaiting();
+        this.completed.increment();
+        if (failure instanceof CommandTimeoutException) {
+            this.timedOut.increment();
+            this.circuitBreaker.onFailure(ticket);
+        } else if (failure != null && (!(failure instanceof CommandException) || failure instanceof InvocationCommandException)) {
+            this.failed.increment();
+            this.circuitBreaker.onFailure(ticket);
+        } else {
+            this.circuitBreaker.onSuccess(ticket);
+        }
+    }
+
+    /**
+     * Frees a slot taken by {@link #acquire()} for a command that never ran.
+     *
+     * @param ticket The ticket returned by {@link #acquire()}
+     */
+    public void releaseUnused(long ticket) {
+        this.permits.release();
+        startWaiting();
+        this.circuitBreaker.onSkipped(ticket);
+    }
+
+    // Hands free slots to queued tasks. Called after every enqueue and release, so no task is left waiting next to a free slot
+    private void startWaiting() {
+        while (!this.waiting.isEmpty() && this.permits.tryAcquire()) {
+            final Waiter<?> next = this.waiting.poll();
+            if (next == null) {
+                // Another thread took the last one
+                this.permits.release();
+            } else {
+                this.queued.decrementAndGet();
+                start(next);
+            }
+        }
+    }
+
+    private boolean start(Waiter<?> waiter) {
+        try {
+            waiter.executor.execute(waiter);
+            return true;
+        } catch (RejectedExecutionException e) {
+            this.permits.release();
+            this.circuitBreaker.onSkipped(waiter.ticket);
+            waiter.result.completeExceptionally(new CommandRejectedException("The server is too busy to run this command, try again later"));
+            return false;
+        }
+    }
+
+    private CommandRejectedException shortCircuited() {
+        this.shortCircuited.increment();
+        return new CommandRejectedException(String.format("Commands of %s are temporarily disabled after repeated failures", this.name));
+    }
+
+    private CommandRejectedException rejected(long ticket) {
+        this.queued.decrementAndGet();
+        this.rejected.increment();
+        this.circuitBreaker.onSkipped(ticket);
+        return new CommandRejectedException(String.format("Too many commands of %s are running, try again later", this.name));
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public CircuitBreaker.State getState() {
+        return this.circuitBreaker.getState();
+    }
+
+    public int getActive() {
+        return this.maxConcurrent - this.permits.availablePermits();
+    }
+
+    public int getQueued() {
+        return this.queued.get();
+    }
+
+    public long getCompleted() {
+        return this.completed.sum();
+    }
+
+    public long getFailed() {
+        return this.failed.sum();
+    }
+
+    public long getTimedOut() {
+        return this.timedOut.sum();
+    }
+
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+    public long getShortCircuited() {
+        return this.shortCircuited.sum();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("name", this.name)
+                .add("state", getState())
+                .add("active", getActive())
+                .add("queued", getQueued())
+                .add("maxQueued", this.maxQueued)
+                .add("completed", getCompleted())
+                .add("failed", getFailed())
+                .add("timedOut", getTimedOut())
+                .add("rejected", getRejected())
+                .add("shortCircuited", getShortCircuited())
+                .toString();
+    }
+
+    /**
+     * A command run through {@link #submit(Executor, Task)}.
+     *
+     * @param <T> The result type
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+
+        /**
+         * Runs the command in the slot it was given.
+         *
+         * @param ticket The circuit breaker ticket to free the slot with
+         * @return The result of the command
+         * @throws CommandException If the command could not be started
+         */
+        CompletionStage<T> run(long ticket) throws CommandException;
+    }
+
+    private static final class Waiter<T> implements Runnable {
+
+        final Executor executor;
+        final long ticket;
+        final Task<T> task;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Waiter(Executor executor, long ticket, Task<T> task) {
+            this.executor = executor;
+            this.ticket = ticket;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.task.run(this.ticket).whenComplete((value, thr) -> {
+                    if (thr == null) {
+                        this.result.complete(value);
+                    } else {
+                        this.result.completeExceptionally(thr);
+                    }
+                });
+            } catch (Throwable thr) {
+                this.result.completeExceptionally(thr);
+            }
+        }
+    }
+}
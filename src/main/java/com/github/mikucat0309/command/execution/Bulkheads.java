@@ -0,0 +1,64 @@
+package com.github.mikucat0309.command.execution;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates one {@link Bulkhead} per plugin id, all with the same limits.
+ */
+public final class Bulkheads {
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new set of bulkheads.
+     *
+     * @param maxConcurrent How many commands of a plugin may run at once
+     * @param maxQueued How many commands of a plugin may wait for a slot
+     * @param failureThreshold How many consecutive failures or timeouts open the circuit
+     * @param openDuration How long an open circuit refuses commands
+     */
+    public Bulkheads(int maxConcurrent, int maxQueued, int failureThreshold, Duration openDuration) {
+        checkArgument(maxConcurrent > 0, "maxConcurrent must be positive");
+        checkArgument(maxQueued >= 0, "maxQueued must not be negative");
+        checkArgument(failureThreshold > 0, "failureThreshold must be positive");
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = checkNotNull(openDuration, "openDuration");
+    }
+
+    public Bulkhead get(String pluginId) {
+        var bulkhead = this.bulkheads.get(pluginId);
+        if (bulkhead == null) {
+            bulkhead = this.bulkheads.computeIfAbsent(pluginId, id ->
+                    new Bulkhead(id, this.maxConcurrent, this.maxQueued, new CircuitBreaker(this.failureThreshold, this.openDuration)));
+        }
+        return bulkhead;
+    }
+
+    public Optional<Bulkhead> getIfPresent(String pluginId) {
+        return Optional.ofNullable(this.bulkheads.get(pluginId));
+    }
+
+    /**
+     * Gets the bulkheads of every plugin that has run a command so far,
+     * for reporting their metrics.
+     *
+     * @return The bulkheads by plugin id
+     */
+    public Map<String, Bulkhead> getAll() {
+        return ImmutableMap.copyOf(this.bulkheads);
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.mikucat0309.command.execution;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.github.mikucat0309.command.CommandTimeoutException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+/**
+ * Lets long running parsers and executors notice that their command should
+ * stop. A token is cancelled once its deadline passes or {@link #cancel()}
+ * is called; checking it costs a volatile read and a clock read.
+ */
+public final class CancellationToken {
+
+    private static final CancellationToken NONE = new CancellationToken(null);
+
+    @Nullable
+    private final Duration timeout;
+    private final long deadlineNanos;
+    private volatile boolean cancelled;
+
+    private CancellationToken(@Nullable Duration timeout) {
+        this.timeout = timeout;
+        this.deadlineNanos = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+    }
+
+    /**
+     * Gets a token that is never cancelled.
+     *
+     * @return The token
+     */
+    public static CancellationToken none() {
+        return NONE;
+    }
+
+    public static CancellationToken withTimeout(Duration timeout) {
+        checkArgument(!timeout.isNegative() && !timeout.isZero(), "timeout must be positive");
+        return new CancellationToken(timeout);
+    }
+
+    public Optional<Duration> getTimeout() {
+        return Optional.ofNullable(this.timeout);
+    }
+
+    /**
+     * Gets the time left until the deadline, which is negative once it has passed.
+     *
+     * @return The remaining time, or {@link Long#MAX_VALUE} without a deadline
+     */
+    public long getRemainingNanos() {
+        return this.timeout == null ? Long.MAX_VALUE : this.deadlineNanos - System.nanoTime();
+    }
+
+    public boolean isCancelled() {
+        return this.cancelled || this.timeout != null && this.deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Cancels this token. Has no effect on {@link #none()}.
+     */
+    public void cancel() {
+        if (this != NONE) {
+            this.cancelled = true;
+        }
+    }
+
+    public void throwIfCancelled() throws CommandTimeoutException {
+        if (isCancelled()) {
+            throw new CommandTimeoutException(this.timeout == null ? Duration.ZERO : this.timeout);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.mikucat0309.command.execution;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.time.Duration;
+
+/**
+ * Stops calling into code that keeps failing. After a number of consecutive
+ * failures the breaker opens and refuses calls for a while; then a single
+ * trial call decides whether it closes again or stays open.
+ *
+ * <p>Every permitted call gets a ticket naming the state it was admitted
+ * in. Outcomes reported with the ticket of an earlier state are ignored,
+ * so a slow call admitted before the breaker opened cannot close it again
+ * or cut short the trial call of a later half open state.</p>
+ */
+public final class CircuitBreaker {
+
+    /**
+     * Returned by {@link #tryAcquire()} when the call is refused.
+     */
+    public static final long REFUSED = -1;
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private volatile State state = State.CLOSED;
+    // Incremented on every state change, read before the state by the lock-free path of tryAcquire
+    private volatile long generation;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        checkArgument(failureThreshold > 0, "failureThreshold must be positive");
+        checkArgument(!openDuration.isNegative(), "openDuration must not be negative");
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Checks whether a call may go ahead. Every permitted call must be
+     * followed by {@link #onSuccess(long)}, {@link #onFailure(long)} or
+     * {@link #onSkipped(long)} with the returned ticket.
+     *
+     * @return The ticket of the call, or {@link #REFUSED}
+     */
+    public long tryAcquire() {
+        final long generation = this.generation;
+        if (this.state == State.CLOSED) {
+            // Stale if the breaker opened in between, then the outcome is ignored
+            return generation;
+        }
+        synchronized (this) {
+            switch (this.state) {
+                case CLOSED:
+                    return this.generation;
+                case OPEN:
+                    if (System.nanoTime() - this.openedAt < this.openNanos) {
+                        return REFUSED;
+                    }
+                    transition(State.HALF_OPEN);
+                    this.trialInFlight = true;
+                    return this.generation;
+                default:
+                    if (this.trialInFlight) {
+                        return REFUSED;
+                    }
+                    this.trialInFlight = true;
+                    return this.generation;
+            }
+        }
+    }
+
+    public synchronized void onSuccess(long ticket) {
+        if (ticket != this.generation) {
+            return;
+        }
+        this.consecutiveFailures = 0;
+        if (this.state == State.HALF_OPEN) {
+            this.trialInFlight = false;
+            transition(State.CLOSED);
+        }
+    }
+
+    /**
+     * Gives back a permitted call that did not run, without recording an outcome.
+     *
+     * @param ticket The ticket of the call
+     */
+    public synchronized void onSkipped(long ticket) {
+        if (ticket == this.generation && this.state == State.HALF_OPEN) {
+            this.trialInFlight = false;
+        }
+    }
+
+    public synchronized void onFailure(long ticket) {
+        if (ticket != this.generation) {
+            return;
+        }
+        if (this.state == State.HALF_OPEN || ++this.consecutiveFailures >= this.failureThreshold) {
+            this.consecutiveFailures = 0;
+            this.trialInFlight = false;
+            this.openedAt = System.nanoTime();
+            transition(State.OPEN);
+        }
+    }
+
+    public State getState() {
+        return this.state;
+    }
+
+    private void transition(State state) {
+        this.generation++;
+        this.state = state;
+    }
+
+    public enum State {
+        /**
+         * Calls go through.
+         */
+        CLOSED,
+        /**
+         * Calls are refused until the open duration has passed.
+         */
+        OPEN,
+        /**
+         * One trial call is going through to test the waters.
+         */
+        HALF_OPEN
+    }
+}
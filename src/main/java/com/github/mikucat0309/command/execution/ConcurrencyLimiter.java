@@ -0,0 +1,53 @@
+package com.github.mikucat0309.command.execution;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounds how many commands run at once, both in total and per command.
+ * Acquiring blocks, which is cheap when commands run on virtual threads.
+ */
+public final class ConcurrencyLimiter {
+
+    private final Semaphore global;
+    private final int perKeyLimit;
+    private final Map<String, Semaphore> perKey = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimiter(int globalLimit, int perKeyLimit) {
+        checkArgument(globalLimit > 0, "globalLimit must be positive");
+        checkArgument(perKeyLimit > 0, "perKeyLimit must be positive");
+        this.global = new Semaphore(globalLimit, true);
+        this.perKeyLimit = perKeyLimit;
+    }
+
+    public void acquire(String key) throws InterruptedException {
+        var semaphore = this.perKey.computeIfAbsent(key, k -> new Semaphore(this.perKeyLimit, true));
+        semaphore.acquire();
+        try {
+            this.global.acquire();
+        } catch (InterruptedException e) {
+            semaphore.release();
+            throw e;
+        }
+    }
+
+    public void release(String key) {
+        this.global.release();
+        var semaphore = this.perKey.get(key);
+        if (semaphore != null) {
+            semaphore.release();
+        }
+    }
+
+    public int getAvailable() {
+        return this.global.availablePermits();
+    }
+
+    public int getAvailable(String key) {
+        var semaphore = this.perKey.get(key);
+        return semaphore == null ? this.perKeyLimit : semaphore.availablePermits();
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.mikucat0309.command.execution;
+
+import com.github.mikucat0309.command.CommandSource;
+
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+/**
+ * The source of the command running on the current thread, so code called
+ * by a command executor can find it without it being passed down.
+ */
+public final class ExecutionContext {
+
+    private static final ThreadLocal<CommandSource> CURRENT_SOURCE = new ThreadLocal<>();
+
+    private ExecutionContext() {
+    }
+
+    public static Optional<CommandSource> getCurrentSource() {
+        return Optional.ofNullable(CURRENT_SOURCE.get());
+    }
+
+    /**
+     * Makes the given source current until the returned scope is closed,
+     * after which the previous one is restored.
+     *
+     * @param source The source of the command about to run
+     * @return The scope
+     */
+    public static Scope enter(CommandSource source) {
+        var scope = new Scope(CURRENT_SOURCE.get());
+        CURRENT_SOURCE.set(source);
+        return scope;
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        @Nullable
+        private final CommandSource previous;
+
+        Scope(@Nullable CommandSource previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (this.previous == null) {
+                CURRENT_SOURCE.remove();
+            } else {
+                CURRENT_SOURCE.set(this.previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.mikucat0309.command.execution;
+
+import com.github.mikucat0309.command.CommandTimeoutException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+/**
+ * Enforces the deadline of a {@link CancellationToken} on running commands.
+ * When the deadline passes the token is cancelled and the thread running a
+ * synchronous command is interrupted, so a runaway executor does not keep
+ * its worker forever.
+ */
+public final class ExecutionWatchdog {
+
+    private static final ScheduledThreadPoolExecutor TIMER;
+
+    static {
+        TIMER = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+                .setNameFormat("command-watchdog")
+                .setDaemon(true)
+                .build());
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private ExecutionWatchdog() {
+    }
+
+    /**
+     * Starts watching the current thread. {@link Guard#finish()} must be
+     * called once the guarded code has returned.
+     *
+     * @param token The token whose deadline is enforced
+     * @return The guard
+     */
+    public static Guard watch(CancellationToken token) {
+        var guard = new Guard(token, Thread.currentThread());
+        guard.timer = TIMER.schedule(guard::fire, token.getRemainingNanos(), TimeUnit.NANOSECONDS);
+        return guard;
+    }
+
+    /**
+     * Completes the returned future with a {@link CommandTimeoutException} if
+     * the stage does not complete before the token's deadline.
+     *
+     * @param token The token whose deadline is enforced
+     * @param stage The stage to watch
+     * @param <T> The result type
+     * @return A future completed by the stage or by the timeout, whichever comes first
+     */
+    public static <T> CompletableFuture<T> within(CancellationToken token, CompletionStage<T> stage) {
+        var future = stage.toCompletableFuture();
+        if (future.isDone()) {
+            return future;
+        }
+        var result = new CompletableFuture<T>();
+        var timer = TIMER.schedule(() -> {
+            token.cancel();
+            result.completeExceptionally(new CommandTimeoutException(token.getTimeout().orElse(Duration.ZERO)));
+        }, token.getRemainingNanos(), TimeUnit.NANOSECONDS);
+        future.whenComplete((value, thr) -> {
+            timer.cancel(false);
+            if (thr == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(thr);
+            }
+        });
+        return result;
+    }
+
+    public static final class Guard {
+
+        private static final int RUNNING = 0;
+        private static final int INTERRUPTING = 1;
+        private static final int TIMED_OUT = 2;
+        private static final int DONE = 3;
+
+        private final CancellationToken token;
+        private final Thread thread;
+        private final AtomicInteger state = new AtomicInteger(RUNNING);
+        @Nullable
+        private ScheduledFuture<?> timer;
+
+        Guard(CancellationToken token, Thread thread) {
+            this.token = token;
+            this.thread = thread;
+        }
+
+        private void fire() {
+            if (this.state.compareAndSet(RUNNING, INTERRUPTING)) {
+                this.token.cancel();
+                this.thread.interrupt();
+                this.state.set(TIMED_OUT);
+            }
+        }
+
+        /**
+         * Stops watching. Must be called on the watched thread.
+         *
+         * @return Whether the deadline passed while the code was running
+         */
+        public boolean finish() {
+            if (this.state.compareAndSet(RUNNING, DONE)) {
+                if (this.timer != null) {
+                    this.timer.cancel(false);
+                }
+                return false;
+            }
+            while (this.state.get() == INTERRUPTING) {
+                Thread.onSpinWait();
+            }
+            // Clear the interrupt raised by the watchdog so it does not leak into the next task
+            Thread.interrupted();
+            return true;
+        }
+    }
+}
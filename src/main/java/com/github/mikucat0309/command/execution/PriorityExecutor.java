@@ -0,0 +1,198 @@
+package com.github.mikucat0309.command.execution;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.github.mikucat0309.command.CommandPriority;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+
+/**
+ * A fixed pool of workers that always takes the highest priority task first.
+ * Each priority has its own bounded queue, so a full queue of player commands
+ * does not stop operator commands from being accepted.
+ *
+ * <p>To prevent starvation, a lower priority task that has waited longer than
+ * the configured maximum is run before any higher priority work.</p>
+ */
+public final class PriorityExecutor implements Executor {
+
+    private static final CommandPriority[] PRIORITIES = CommandPriority.values();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    private final ArrayDeque<Task>[] queues;
+    private final Executor[] views;
+    private final int capacity;
+    private final long maxWaitNanos;
+    private final List<Thread> workers;
+    private boolean shutdown;
+
+    /**
+     * Create a new executor and start its workers.
+     *
+     * @param name The prefix for worker thread names
+     * @param threads The number of workers
+     * @param capacity The maximum number of queued tasks per priority
+     * @param maxWait How long a task may wait before it runs ahead of higher priorities
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PriorityExecutor(String name, int threads, int capacity, Duration maxWait) {
+        checkNotNull(name, "name");
+        checkArgument(threads > 0, "threads must be positive");
+        checkArgument(capacity > 0, "capacity must be positive");
+        checkArgument(!maxWait.isNegative() && !maxWait.isZero(), "maxWait must be positive");
+        this.capacity = capacity;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.queues = new ArrayDeque[PRIORITIES.length];
+        this.views = new Executor[PRIORITIES.length];
+        for (var priority : PRIORITIES) {
+            this.queues[priority.ordinal()] = new ArrayDeque<>();
+            this.views[priority.ordinal()] = task -> execute(priority, task);
+        }
+        var threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat(name + "-%d")
+                .setDaemon(true)
+                .build();
+        this.workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            var worker = threadFactory.newThread(this::work);
+            this.workers.add(worker);
+            worker.start();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        execute(CommandPriority.NORMAL, task);
+    }
+
+    public void execute(CommandPriority priority, Runnable task) {
+        checkNotNull(task, "task");
+        this.lock.lock();
+        try {
+            if (this.shutdown) {
+                throw new RejectedExecutionException("The executor has been shut down");
+            }
+            var queue = this.queues[priority.ordinal()];
+            if (queue.size() >= this.capacity) {
+                throw new RejectedExecutionException("The " + priority + " priority queue is full");
+            }
+            queue.add(new Task(task, System.nanoTime()));
+            this.notEmpty.signal();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets a view of this executor that submits every task with the given priority.
+     *
+     * @param priority The priority
+     * @return The executor view
+     */
+    public Executor withPriority(CommandPriority priority) {
+        return this.views[priority.ordinal()];
+    }
+
+    public int getQueued(CommandPriority priority) {
+        this.lock.lock();
+        try {
+            return this.queues[priority.ordinal()].size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting new tasks. Queued tasks still run before the workers exit.
+     */
+    public void shutdown() {
+        this.lock.lock();
+        try {
+            this.shutdown = true;
+            this.notEmpty.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public boolean awaitTermination(Duration timeout) throws InterruptedException {
+        var deadline = System.nanoTime() + timeout.toNanos();
+        for (var worker : this.workers) {
+            var remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedJoin(worker, remaining);
+            if (worker.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void work() {
+        while (true) {
+            Task task;
+            this.lock.lock();
+            try {
+                while ((task = next()) == null) {
+                    if (this.shutdown) {
+                        return;
+                    }
+                    this.notEmpty.awaitUninterruptibly();
+                }
+            } finally {
+                this.lock.unlock();
+            }
+            try {
+                task.runnable.run();
+            } catch (Throwable thr) {
+                var thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, thr);
+            }
+        }
+    }
+
+    @Nullable
+    private Task next() {
+        var now = System.nanoTime();
+        // The highest priority queue never starves, so only the others are checked
+        for (int i = this.queues.length - 1; i > 0; i--) {
+            var head = this.queues[i].peek();
+            if (head != null && now - head.enqueued > this.maxWaitNanos) {
+                return this.queues[i].poll();
+            }
+        }
+        for (var queue : this.queues) {
+            var task = queue.poll();
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private static final class Task {
+
+        final Runnable runnable;
+        final long enqueued;
+
+        Task(Runnable runnable, long enqueued) {
+            this.runnable = runnable;
+            this.enqueued = enqueued;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.mikucat0309.command.execution;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.github.mikucat0309.command.util.TokenBucket;
+import com.google.common.base.MoreObjects;
+
+import java.util.Objects;
+
+/**
+ * A sustained rate together with the burst that may be spent at once.
+ */
+public final class RateLimit {
+
+    private final double permitsPerSecond;
+    private final int burst;
+
+    private RateLimit(double permitsPerSecond, int burst) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+    }
+
+    public static RateLimit of(double permitsPerSecond, int burst) {
+        checkArgument(permitsPerSecond > 0, "permitsPerSecond must be positive");
+        checkArgument(burst > 0, "burst must be positive");
+        return new RateLimit(permitsPerSecond, burst);
+    }
+
+    public double getPermitsPerSecond() {
+        return this.permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return this.burst;
+    }
+
+    TokenBucket newBucket() {
+        return new TokenBucket(this.permitsPerSecond, this.burst);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RateLimit)) {
+            return false;
+        }
+        var that = (RateLimit) o;
+        return Double.compare(this.permitsPerSecond, that.permitsPerSecond) == 0 && this.burst == that.burst;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.permitsPerSecond, this.burst);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("permitsPerSecond", this.permitsPerSecond)
+                .add("burst", this.burst)
+                .toString();
+    }
+}
@@ -0,0 +1,276 @@
+package com.github.mikucat0309.command.execution;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+/**
+ * Measures the thread CPU time and heap allocation of command executions
+ * with {@link ThreadMXBean}, attributed to the owning plugin and to the
+ * command's primary alias.
+ *
+ * <p>Reading the thread counters costs around a microsecond, so only one
+ * in {@code sampleInterval} executions is measured; totals are estimated
+ * from the samples. Plugins that exceed their {@link ResourceQuota} within
+ * a second are throttled until the second is over.</p>
+ */
+public final class ResourceAccountant {
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    @Nullable
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationBean();
+
+    private final int sampleInterval;
+    @Nullable
+    private final ResourceQuota defaultQuota;
+    private final Map<String, ResourceQuota> quotas = new ConcurrentHashMap<>();
+    private final Map<String, Usage> byPlugin = new ConcurrentHashMap<>();
+    private final Map<String, Usage> byAlias = new ConcurrentHashMap<>();
+    private final Map<String, QuotaWindow> windows = new ConcurrentHashMap<>();
+    private final LongAdder throttled = new LongAdder();
+
+    /**
+     * Create a new accountant.
+     *
+     * @param sampleInterval Measure one in this many executions, 1 to measure all of them
+     * @param defaultQuota The quota of plugins without their own, or null for none
+     */
+    public ResourceAccountant(int sampleInterval, @Nullable ResourceQuota defaultQuota) {
+        checkArgument(sampleInterval > 0, "sampleInterval must be positive");
+        this.sampleInterval = sampleInterval;
+        this.defaultQuota = defaultQuota;
+        if (THREADS.isCurrentThreadCpuTimeSupported() && !THREADS.isThreadCpuTimeEnabled()) {
+            THREADS.setThreadCpuTimeEnabled(true);
+        }
+        if (ALLOCATIONS != null && !ALLOCATIONS.isThreadAllocatedMemoryEnabled()) {
+            ALLOCATIONS.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    @Nullable
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            var bean = (com.sun.management.ThreadMXBean) THREADS;
+            if (bean.isThreadAllocatedMemorySupported()) {
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    public static boolean isAllocationAccountingSupported() {
+        return ALLOCATIONS != null;
+    }
+
+    public void setQuota(String pluginId, @Nullable ResourceQuota quota) {
+        checkNotNull(pluginId, "pluginId");
+        if (quota == null) {
+            this.quotas.remove(pluginId);
+        } else {
+            this.quotas.put(pluginId, quota);
+        }
+    }
+
+    /**
+     * Checks whether a plugin has used up its quota for the current second.
+     *
+     * @param pluginId The plugin id
+     * @return Whether the plugin's commands should be refused
+     */
+    public boolean isThrottled(String pluginId) {
+        var window = this.windows.get(pluginId);
+        if (window == null) {
+            return false;
+        }
+        var quota = this.quotas.getOrDefault(pluginId, this.defaultQuota);
+        if (quota == null || !window.isExceeded(quota, System.nanoTime())) {
+            return false;
+        }
+        this.throttled.increment();
+        return true;
+    }
+
+    /**
+     * Starts measuring an execution on the current thread, if it is sampled.
+     *
+     * @return The sample to pass to {@link #record}, or null if this execution is not measured
+     */
+    @Nullable
+    public Sample start() {
+        if (this.sampleInterval > 1 && ThreadLocalRandom.current().nextInt(this.sampleInterval) != 0) {
+            return null;
+        }
+        var thread = Thread.currentThread().getId();
+        return new Sample(thread, THREADS.getCurrentThreadCpuTime(), ALLOCATIONS == null ? 0 : ALLOCATIONS.getThreadAllocatedBytes(thread));
+    }
+
+    /**
+     * Records a finished execution. Must be called on the thread that
+     * called {@link #start()}.
+     *
+     * @param sample The sample returned by {@link #start()}
+     * @param pluginId The owning plugin, if known
+     * @param alias The primary alias of the command
+     */
+    public void record(@Nullable Sample sample, @Nullable String pluginId, String alias) {
+        long cpuNanos = 0;
+        long bytes = 0;
+        if (sample != null) {
+            cpuNanos = Math.max(0, THREADS.getCurrentThreadCpuTime() - sample.cpuNanos);
+            if (ALLOCATIONS != null) {
+                bytes = Math.max(0, ALLOCATIONS.getThreadAllocatedBytes(sample.threadId) - sample.allocatedBytes);
+            }
+        }
+        this.byAlias.computeIfAbsent(alias, k -> new Usage()).add(sample != null, cpuNanos, bytes);
+        if (pluginId != null) {
+            this.byPlugin.computeIfAbsent(pluginId, k -> new Usage()).add(sample != null, cpuNanos, bytes);
+            if (sample != null && (this.defaultQuota != null || this.quotas.containsKey(pluginId))) {
+                this.windows.computeIfAbsent(pluginId, k -> new QuotaWindow())
+                        .add(cpuNanos * this.sampleInterval, bytes * this.sampleInterval, System.nanoTime());
+            }
+        }
+    }
+
+    public Optional<Usage> getPluginUsage(String pluginId) {
+        return Optional.ofNullable(this.byPlugin.get(pluginId));
+    }
+
+    public Optional<Usage> getAliasUsage(String alias) {
+        return Optional.ofNullable(this.byAlias.get(alias));
+    }
+
+    public Map<String, Usage> getPluginUsage() {
+        return ImmutableMap.copyOf(this.byPlugin);
+    }
+
+    public Map<String, Usage> getAliasUsage() {
+        return ImmutableMap.copyOf(this.byAlias);
+    }
+
+    public long getThrottled() {
+        return this.throttled.sum();
+    }
+
+    public static final class Sample {
+
+        final long threadId;
+        final long cpuNanos;
+        final long allocatedBytes;
+
+        Sample(long threadId, long cpuNanos, long allocatedBytes) {
+            this.threadId = threadId;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    /**
+     * Cumulative resource usage of a plugin or command.
+     */
+    public static final class Usage {
+
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder samples = new LongAdder();
+        private final LongAdder cpuNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+
+        void add(boolean sampled, long cpuNanos, long allocatedBytes) {
+            this.invocations.increment();
+            if (sampled) {
+                this.samples.increment();
+                this.cpuNanos.add(cpuNanos);
+                this.allocatedBytes.add(allocatedBytes);
+            }
+        }
+
+        public long getInvocations() {
+            return this.invocations.sum();
+        }
+
+        public long getSamples() {
+            return this.samples.sum();
+        }
+
+        /**
+         * Gets the CPU time used by the sampled invocations.
+         *
+         * @return The CPU time in nanoseconds
+         */
+        public long getSampledCpuNanos() {
+            return this.cpuNanos.sum();
+        }
+
+        public long getSampledAllocatedBytes() {
+            return this.allocatedBytes.sum();
+        }
+
+        /**
+         * Gets the CPU time used by all invocations, extrapolated from the samples.
+         *
+         * @return The estimated CPU time in nanoseconds
+         */
+        public long getEstimatedCpuNanos() {
+            return estimate(this.cpuNanos.sum());
+        }
+
+        public long getEstimatedAllocatedBytes() {
+            return estimate(this.allocatedBytes.sum());
+        }
+
+        private long estimate(long sampled) {
+            var samples = this.samples.sum();
+            return samples == 0 ? 0 : (long) ((double) sampled / samples * this.invocations.sum());
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("invocations", getInvocations())
+                    .add("samples", getSamples())
+                    .add("estimatedCpuNanos", getEstimatedCpuNanos())
+                    .add("estimatedAllocatedBytes", getEstimatedAllocatedBytes())
+                    .toString();
+        }
+    }
+
+    private static final class QuotaWindow {
+
+        private final AtomicLong start = new AtomicLong(System.nanoTime());
+        private final AtomicLong cpuNanos = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+
+        void add(long cpuNanos, long bytes, long now) {
+            roll(now);
+            this.cpuNanos.addAndGet(cpuNanos);
+            this.bytes.addAndGet(bytes);
+        }
+
+        boolean isExceeded(ResourceQuota quota, long now) {
+            roll(now);
+            return this.cpuNanos.get() > quota.getCpuNanosPerSecond() || this.bytes.get() > quota.getBytesPerSecond();
+        }
+
+        private void roll(long now) {
+            var start = this.start.get();
+            // Only the thread that moves the window resets it; racing updates may land in either window
+            if (now - start >= WINDOW_NANOS && this.start.compareAndSet(start, now)) {
+                this.cpuNanos.set(0);
+                this.bytes.set(0);
+            }
+        }
+    }
+}
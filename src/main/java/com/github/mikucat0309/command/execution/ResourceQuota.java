@@ -0,0 +1,51 @@
+package com.github.mikucat0309.command.execution;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.MoreObjects;
+
+import java.time.Duration;
+
+/**
+ * How much CPU time and heap allocation the commands of one plugin may use
+ * per second before the plugin is throttled for the rest of that second.
+ */
+public final class ResourceQuota {
+
+    private final long cpuNanosPerSecond;
+    private final long bytesPerSecond;
+
+    private ResourceQuota(long cpuNanosPerSecond, long bytesPerSecond) {
+        this.cpuNanosPerSecond = cpuNanosPerSecond;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Create a new quota.
+     *
+     * @param cpuPerSecond The CPU time allowed per second
+     * @param bytesPerSecond The bytes allowed to be allocated per second, or {@link Long#MAX_VALUE} for no limit
+     * @return The quota
+     */
+    public static ResourceQuota of(Duration cpuPerSecond, long bytesPerSecond) {
+        checkArgument(!cpuPerSecond.isNegative() && !cpuPerSecond.isZero(), "cpuPerSecond must be positive");
+        checkArgument(bytesPerSecond > 0, "bytesPerSecond must be positive");
+        return new ResourceQuota(cpuPerSecond.toNanos(), bytesPerSecond);
+    }
+
+    public long getCpuNanosPerSecond() {
+        return this.cpuNanosPerSecond;
+    }
+
+    public long getBytesPerSecond() {
+        return this.bytesPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("cpuNanosPerSecond", this.cpuNanosPerSecond)
+                .add("bytesPerSecond", this.bytesPerSecond)
+                .toString();
+    }
+}
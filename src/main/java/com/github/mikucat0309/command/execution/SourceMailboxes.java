@@ -0,0 +1,244 @@
+package com.github.mikucat0309.command.execution;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.github.mikucat0309.command.CommandRejectedException;
+import com.github.mikucat0309.command.CommandSource;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+/**
+ * Runs tasks from different sources in parallel while keeping the tasks of
+ * each source in submission order. Every source gets a bounded mailbox that
+ * is drained by one task at a time on a shared pool; a task that completes
+ * asynchronously holds its mailbox until its stage completes.
+ *
+ * <p>Mailboxes are keyed by the source itself unless a key function is
+ * given, so two sources that merely share a name do not wait on each other.</p>
+ */
+public final class SourceMailboxes {
+
+    private static final int DRAIN_BATCH = 16;
+
+    private final Executor pool;
+    @Nullable private final ForkJoinPool ownedPool;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Function<? super CommandSource, ?> keyFunction;
+    private final Map<Object, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    /**
+     * Creates mailboxes drained on a pool owned by this instance, which is
+     * released by {@link #shutdown()}.
+     */
+    public SourceMailboxes(int capacity, OverflowPolicy overflowPolicy) {
+        this(new ForkJoinPool(Runtime.getRuntime().availableProcessors(), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true),
+                true, capacity, overflowPolicy, Function.identity());
+    }
+
+    public SourceMailboxes(Executor pool, int capacity, OverflowPolicy overflowPolicy) {
+        this(pool, capacity, overflowPolicy, Function.identity());
+    }
+
+    /**
+     * @param keyFunction Maps a source to the key of its mailbox, sources with
+     *     equal keys share a mailbox
+     */
+    public SourceMailboxes(Executor pool, int capacity, OverflowPolicy overflowPolicy, Function<? super CommandSource, ?> keyFunction) {
+        this(pool, false, capacity, overflowPolicy, keyFunction);
+    }
+
+    private SourceMailboxes(Executor pool, boolean owned, int capacity, OverflowPolicy overflowPolicy,
+            Function<? super CommandSource, ?> keyFunction) {
+        checkArgument(capacity > 0, "capacity must be positive");
+        this.pool = checkNotNull(pool, "pool");
+        this.ownedPool = owned ? (ForkJoinPool) pool : null;
+        this.capacity = capacity;
+        this.overflowPolicy = checkNotNull(overflowPolicy, "overflowPolicy");
+        this.keyFunction = checkNotNull(keyFunction, "keyFunction");
+    }
+
+    /**
+     * Shuts down the pool created by {@link #SourceMailboxes(int, OverflowPolicy)}.
+     * A pool passed in by the caller is left running. Tasks submitted
+     * afterwards are rejected.
+     */
+    public void shutdown() {
+        if (this.ownedPool != null) {
+            this.ownedPool.shutdown();
+        }
+    }
+
+    private Object keyOf(CommandSource source) {
+        return checkNotNull(this.keyFunction.apply(source), "The key function returned null for %s", source);
+    }
+
+    /**
+     * Queues a task behind the pending tasks of the same source.
+     *
+     * @param source The source the task belongs to
+     * @param task The task, started once all earlier tasks have completed
+     * @param <T> The result type
+     * @return A future completed with the result of the task's stage
+     */
+    public <T> CompletableFuture<T> submit(CommandSource source, Supplier<? extends CompletionStage<T>> task) {
+        var key = keyOf(source);
+        var item = new Item<T>(task);
+        while (true) {
+            var mailbox = this.mailboxes.computeIfAbsent(key, k -> new Mailbox(k, executorFor(source)));
+            Item<?> dropped = null;
+            boolean start;
+            synchronized (mailbox) {
+                if (mailbox.closed) {
+                    continue;
+                }
+                if (mailbox.queue.size() >= this.capacity) {
+                    if (this.overflowPolicy == OverflowPolicy.REJECT) {
+                        return CompletableFuture.failedFuture(new CommandRejectedException("Too many commands are pending, try again later"));
+                    }
+                    dropped = mailbox.queue.poll();
+                }
+                mailbox.queue.add(item);
+                start = !mailbox.running;
+                mailbox.running = true;
+            }
+            if (dropped != null) {
+                dropped.future.completeExceptionally(new CommandRejectedException("Dropped in favour of a newer command"));
+            }
+            if (start) {
+                schedule(mailbox);
+            }
+            return item.future;
+        }
+    }
+
+    private Executor executorFor(CommandSource source) {
+        if (this.pool instanceof PriorityExecutor) {
+            return ((PriorityExecutor) this.pool).withPriority(source.getPriority());
+        }
+        return this.pool;
+    }
+
+    public int getPending(CommandSource source) {
+        var mailbox = this.mailboxes.get(keyOf(source));
+        if (mailbox == null) {
+            return 0;
+        }
+        synchronized (mailbox) {
+            return mailbox.queue.size();
+        }
+    }
+
+    private void drain(Mailbox mailbox) {
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+            Item<?> item;
+            synchronized (mailbox) {
+                item = mailbox.queue.poll();
+                if (item == null) {
+                    // Retire the empty mailbox so idle sources do not accumulate
+                    mailbox.running = false;
+                    mailbox.closed = true;
+                    this.mailboxes.remove(mailbox.key, mailbox);
+                    return;
+                }
+            }
+            var future = item.run();
+            if (!future.isDone()) {
+                future.whenComplete((result, thr) -> schedule(mailbox));
+                return;
+            }
+        }
+        // Give other mailboxes a turn before continuing with this one
+        schedule(mailbox);
+    }
+
+    private void schedule(Mailbox mailbox) {
+        try {
+            mailbox.executor.execute(() -> drain(mailbox));
+        } catch (RejectedExecutionException e) {
+            // A saturated pool, e.g. a full PriorityExecutor queue, would otherwise leave the mailbox running forever
+            reject(mailbox);
+        }
+    }
+
+    private void reject(Mailbox mailbox) {
+        List<Item<?>> rejected;
+        synchronized (mailbox) {
+            rejected = new ArrayList<>(mailbox.queue);
+            mailbox.queue.clear();
+            mailbox.running = false;
+            mailbox.closed = true;
+            this.mailboxes.remove(mailbox.key, mailbox);
+        }
+        for (var item : rejected) {
+            item.future.completeExceptionally(new CommandRejectedException("The server is too busy, try again later"));
+        }
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * Refuse the new task.
+         */
+        REJECT,
+        /**
+         * Refuse the oldest waiting task and queue the new one.
+         */
+        DROP_OLDEST
+    }
+
+    private static final class Mailbox {
+
+        final Object key;
+        final Executor executor;
+        final ArrayDeque<Item<?>> queue = new ArrayDeque<>();
+        boolean running;
+        boolean closed;
+
+        Mailbox(Object key, Executor executor) {
+            this.key = key;
+            this.executor = executor;
+        }
+    }
+
+    private static final class Item<T> {
+
+        final Supplier<? extends CompletionStage<T>> task;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Item(Supplier<? extends CompletionStage<T>> task) {
+            this.task = task;
+        }
+
+        CompletableFuture<T> run() {
+            CompletionStage<T> stage;
+            try {
+                stage = this.task.get();
+            } catch (Throwable thr) {
+                this.future.completeExceptionally(thr);
+                return this.future;
+            }
+            stage.whenComplete((result, thr) -> {
+                if (thr != null) {
+                    this.future.completeExceptionally(thr);
+                } else {
+                    this.future.complete(result);
+                }
+            });
+            return this.future;
+        }
+    }
+}
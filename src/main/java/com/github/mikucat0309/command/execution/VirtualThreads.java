@@ -0,0 +1,61 @@
+package com.github.mikucat0309.command.execution;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nullable;
+
+/**
+ * Access to virtual threads without requiring a Java runtime that has them.
+ * The project targets Java 11, so the factory method is looked up
+ * reflectively and platform threads are used when it is missing.
+ */
+public final class VirtualThreads {
+
+    @Nullable
+    private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadFactory();
+
+    private VirtualThreads() {
+    }
+
+    @Nullable
+    private static MethodHandle findVirtualThreadFactory() {
+        try {
+            return MethodHandles.publicLookup()
+                    .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    public static boolean isAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor that starts a new thread for every task. The
+     * threads are virtual when the runtime supports them, and daemon
+     * platform threads otherwise.
+     *
+     * @param namePrefix The name prefix for platform threads
+     * @return The executor
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invokeExact();
+            } catch (Throwable thr) {
+                throw new IllegalStateException("Could not create a virtual thread executor", thr);
+            }
+        }
+        return Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat(namePrefix + "-%d")
+                .setDaemon(true)
+                .build());
+    }
+}
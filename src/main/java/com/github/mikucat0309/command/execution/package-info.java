@@ -0,0 +1,2 @@
+@com.github.mikucat0309.command.util.annotation.NonnullByDefault
+package com.github.mikucat0309.command.execution;
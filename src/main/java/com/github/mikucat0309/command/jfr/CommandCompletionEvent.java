@@ -0,0 +1,39 @@
+package com.github.mikucat0309.command.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import javax.annotation.Nullable;
+
+@Name("com.github.mikucat0309.command.Completion")
+@Label("Command Completion")
+@Category("MikuCommand")
+@Description("Tab completions computed for a partial command line")
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public final class CommandCompletionEvent extends Event {
+
+    @Label("Alias")
+    @Nullable
+    public String alias;
+
+    @Label("Source")
+    @Nullable
+    public String source;
+
+    @Label("Input Length")
+    public int inputLength;
+
+    @Label("Suggestions")
+    public int suggestions;
+
+    @Label("Failed")
+    public boolean failed;
+}
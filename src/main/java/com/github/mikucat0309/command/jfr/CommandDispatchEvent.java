@@ -0,0 +1,41 @@
+package com.github.mikucat0309.command.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import javax.annotation.Nullable;
+
+@Name("com.github.mikucat0309.command.Dispatch")
+@Label("Command Dispatch")
+@Category("MikuCommand")
+@Description("A command line processed by the command manager")
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public final class CommandDispatchEvent extends Event {
+
+    @Label("Alias")
+    @Nullable
+    public String alias;
+
+    @Label("Source")
+    @Nullable
+    public String source;
+
+    @Label("Tokens")
+    public int tokens;
+
+    @Label("Failed")
+    public boolean failed;
+
+    @Label("Failed Element")
+    @Description("The key of the argument that could not be parsed")
+    @Nullable
+    public String failedElement;
+}
@@ -0,0 +1,39 @@
+package com.github.mikucat0309.command.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+import javax.annotation.Nullable;
+
+@Name("com.github.mikucat0309.command.Registration")
+@Label("Command Registration")
+@Category("MikuCommand")
+@Description("A command registered with or removed from the command manager")
+@Enabled(false)
+@Threshold("0 ms")
+public final class CommandRegistrationEvent extends Event {
+
+    @Label("Alias")
+    @Description("The primary alias of the command")
+    @Nullable
+    public String alias;
+
+    @Label("Plugin")
+    @Nullable
+    public String plugin;
+
+    @Label("Removal")
+    public boolean removal;
+
+    @Label("Aliases")
+    public int aliases;
+
+    @Label("Failed")
+    @Description("Whether no mapping was registered or removed")
+    public boolean failed;
+}
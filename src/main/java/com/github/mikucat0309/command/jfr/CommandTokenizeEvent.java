@@ -0,0 +1,35 @@
+package com.github.mikucat0309.command.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import javax.annotation.Nullable;
+
+@Name("com.github.mikucat0309.command.Tokenize")
+@Label("Command Tokenize")
+@Category("MikuCommand")
+@Description("An argument string split into tokens")
+@Enabled(false)
+@Threshold("100 us")
+@StackTrace(false)
+public final class CommandTokenizeEvent extends Event {
+
+    @Label("Tokenizer")
+    @Nullable
+    public String tokenizer;
+
+    @Label("Input Length")
+    public int inputLength;
+
+    @Label("Tokens")
+    public int tokens;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,6 @@
+/**
+ * Java Flight Recorder events. All of them are disabled by default, so they
+ * cost nothing until a recording enables them through its settings.
+ */
+@com.github.mikucat0309.command.util.annotation.NonnullByDefault
+package com.github.mikucat0309.command.jfr;
@@ -0,0 +1,245 @@
+package com.github.mikucat0309.command.journal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.github.mikucat0309.command.metrics.CommandMetrics;
+import com.google.common.base.MoreObjects;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An append-only journal of processed commands, written to memory-mapped
+ * segment files of a fixed size.
+ *
+ * <p>Appending never locks: a writer reserves its bytes in the current
+ * segment with an atomic add, fills them in and publishes the record by
+ * writing its length last. The writer whose reservation crosses the end of
+ * a segment opens the next one, while writers that reserved after it wait
+ * for the new segment. A record that is still being written ends the
+ * readable part of its segment, so readers only see complete records.</p>
+ *
+ * <p>Each segment starts with a magic number and a format version, followed
+ * by records aligned to 8 bytes:</p>
+ * <pre>
+ * int   length (of the padded record, 0 marks the end of the segment)
+ * byte  outcome
+ * byte  reserved
+ * short source name length
+ * long  timestamp in epoch milliseconds
+ * long  latency in nanoseconds
+ * int   command line length
+ * byte[] source name and command line in UTF-8, then padding
+ * </pre>
+ */
+public final class CommandJournal implements Closeable {
+
+    static final int MAGIC = 0x4D434A31;
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER = 8;
+    static final int RECORD_HEADER = 28;
+    static final String SUFFIX = ".journal";
+    static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final CommandMetrics.Outcome[] OUTCOMES = CommandMetrics.Outcome.values();
+
+    private final Path directory;
+    private final int segmentSize;
+    private final AtomicReference<Segment> current;
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Opens a journal in a directory. Existing segments are kept and new
+     * records go to a new segment after them.
+     *
+     * @param directory The directory of the segment files
+     * @param segmentSize The size of each segment file in bytes
+     * @throws IOException If the first segment could not be created
+     */
+    public CommandJournal(Path directory, int segmentSize) throws IOException {
+        checkArgument(segmentSize >= SEGMENT_HEADER + RECORD_HEADER + 8, "segmentSize is too small");
+        this.directory = checkNotNull(directory, "directory");
+        this.segmentSize = segmentSize & ~7;
+        Files.createDirectories(directory);
+        var segments = segments(directory);
+        var sequence = segments.isEmpty() ? 0 : sequenceOf(segments.get(segments.size() - 1)) + 1;
+        this.current = new AtomicReference<>(Segment.create(directory, sequence, this.segmentSize));
+    }
+
+    static List<Path> segments(Path directory) throws IOException {
+        var segments = new ArrayList<Path>();
+        try (var files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            files.forEach(segments::add);
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static long sequenceOf(Path segment) {
+        var name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    static CommandMetrics.Outcome outcomeOf(int ordinal) {
+        return OUTCOMES[ordinal];
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param timestamp When the command was received, in epoch milliseconds
+     * @param sourceName The name of the source
+     * @param commandLine The raw command line
+     * @param outcome The outcome of the command
+     * @param latencyNanos How long processing took
+     * @return True if the record was written, false if it is larger than a segment
+     * @throws IllegalStateException If the journal is closed
+     * @throws UncheckedIOException If a new segment could not be created
+     */
+    public boolean append(long timestamp, String sourceName, String commandLine, CommandMetrics.Outcome outcome, long latencyNanos) {
+        var source = sourceName.getBytes(StandardCharsets.UTF_8);
+        var line = commandLine.getBytes(StandardCharsets.UTF_8);
+        var length = (RECORD_HEADER + source.length + line.length + 7) & ~7;
+        if (length > this.segmentSize - SEGMENT_HEADER || source.length > Short.MAX_VALUE) {
+            this.dropped.increment();
+            return false;
+        }
+        while (true) {
+            checkState(!this.closed, "The journal is closed");
+            var segment = this.current.get();
+            var offset = segment.reserve(length);
+            if (offset + length <= this.segmentSize) {
+                segment.write((int) offset, length, timestamp, source, line, outcome, latencyNanos);
+                this.appended.increment();
+                return true;
+            }
+            if (offset <= this.segmentSize) {
+                // This reservation crossed the end of the segment, so this writer rolls over
+                roll(segment);
+            } else {
+                while (this.current.get() == segment && !this.closed) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+    private void roll(Segment full) {
+        try {
+            this.current.set(Segment.create(this.directory, full.sequence + 1, this.segmentSize));
+        } catch (IOException e) {
+            // Writers waiting for the new segment would spin forever
+            this.closed = true;
+            throw new UncheckedIOException(e);
+        }
+        full.buffer.force();
+    }
+
+    /**
+     * Writes the current segment to disk. Earlier segments were written when
+     * they were rolled over.
+     */
+    public void flush() {
+        this.current.get().buffer.force();
+    }
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    public long getAppended() {
+        return this.appended.sum();
+    }
+
+    /**
+     * Gets the number of records that were not written because they were
+     * larger than a segment.
+     *
+     * @return The number of dropped records
+     */
+    public long getDropped() {
+        return this.dropped.sum();
+    }
+
+    /**
+     * Closes the journal. Records being appended concurrently may be lost.
+     */
+    @Override
+    public void close() {
+        if (!this.closed) {
+            this.closed = true;
+            flush();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("directory", this.directory)
+                .add("segmentSize", this.segmentSize)
+                .add("appended", getAppended())
+                .add("dropped", getDropped())
+                .toString();
+    }
+
+    private static final class Segment {
+
+        final long sequence;
+        final MappedByteBuffer buffer;
+        final AtomicLong position = new AtomicLong(SEGMENT_HEADER);
+
+        private Segment(long sequence, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path directory, long sequence, int size) throws IOException {
+            var path = directory.resolve(String.format("%020d%s", sequence, SUFFIX));
+            MappedByteBuffer buffer;
+            try (var channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            return new Segment(sequence, buffer);
+        }
+
+        long reserve(int length) {
+            return this.position.getAndAdd(length);
+        }
+
+        void write(int offset, int length, long timestamp, byte[] source, byte[] line, CommandMetrics.Outcome outcome, long latencyNanos) {
+            var view = this.buffer.duplicate();
+            view.position(offset + 4);
+            view.put((byte) outcome.ordinal());
+            view.put((byte) 0);
+            view.putShort((short) source.length);
+            view.putLong(timestamp);
+            view.putLong(latencyNanos);
+            view.putInt(line.length);
+            view.put(source);
+            view.put(line);
+            // Publish the record, readers stop at the first zero length
+            INT.setRelease(this.buffer, offset, length);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.mikucat0309.command.journal;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.Nullable;
+
+/**
+ * Reads the records of a {@link CommandJournal} back in the order they were
+ * written. Segments are mapped one at a time, so journals larger than memory
+ * can be streamed. Reading a journal that is still being written returns the
+ * records that were complete when their segment was reached.
+ */
+public final class JournalReader implements Iterator<JournalRecord> {
+
+    private final List<Path> segments;
+    private int nextSegment;
+    @Nullable
+    private MappedByteBuffer buffer;
+    private int position;
+    @Nullable
+    private JournalRecord next;
+
+    private JournalReader(List<Path> segments) {
+        this.segments = segments;
+    }
+
+    public static JournalReader open(Path directory) throws IOException {
+        return new JournalReader(ImmutableList.copyOf(CommandJournal.segments(directory)));
+    }
+
+    /**
+     * Streams every record of the journal in a directory.
+     *
+     * @param directory The directory of the segment files
+     * @return The records, in the order they were written
+     * @throws IOException If the directory could not be listed
+     */
+    public static Stream<JournalRecord> stream(Path directory) throws IOException {
+        var reader = open(directory);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.next == null) {
+            this.next = readNext();
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public JournalRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        var record = this.next;
+        this.next = null;
+        return record;
+    }
+
+    @Nullable
+    private JournalRecord readNext() {
+        while (true) {
+            var buffer = this.buffer;
+            if (buffer != null && this.position + CommandJournal.RECORD_HEADER <= buffer.capacity()) {
+                var length = (int) CommandJournal.INT.getAcquire(buffer, this.position);
+                if (length != 0) {
+                    var record = decode(buffer, this.position);
+                    this.position += length;
+                    return record;
+                }
+            }
+            if (this.nextSegment == this.segments.size()) {
+                this.buffer = null;
+                return null;
+            }
+            this.buffer = map(this.segments.get(this.nextSegment++));
+            this.position = CommandJournal.SEGMENT_HEADER;
+        }
+    }
+
+    private static JournalRecord decode(MappedByteBuffer buffer, int offset) {
+        var view = buffer.duplicate();
+        view.position(offset + 4);
+        var outcome = CommandJournal.outcomeOf(view.get());
+        view.get();
+        var source = new byte[view.getShort()];
+        var timestamp = view.getLong();
+        var latency = view.getLong();
+        var line = new byte[view.getInt()];
+        view.get(source);
+        view.get(line);
+        return new JournalRecord(timestamp, new String(source, StandardCharsets.UTF_8), new String(line, StandardCharsets.UTF_8),
+                outcome, latency);
+    }
+
+    private static MappedByteBuffer map(Path segment) {
+        try (var channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < CommandJournal.SEGMENT_HEADER || buffer.getInt(0) != CommandJournal.MAGIC) {
+                throw new IOException("Not a command journal segment: " + segment);
+            }
+            if (buffer.getInt(4) != CommandJournal.VERSION) {
+                throw new IOException("Unsupported journal version " + buffer.getInt(4) + " in " + segment);
+            }
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.mikucat0309.command.journal;
+
+import com.github.mikucat0309.command.metrics.CommandMetrics;
+import com.google.common.base.MoreObjects;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * One processed command, as read back from a {@link CommandJournal}.
+ */
+public final class JournalRecord {
+
+    private final long timestamp;
+    private final String sourceName;
+    private final String commandLine;
+    private final CommandMetrics.Outcome outcome;
+    private final long latencyNanos;
+
+    JournalRecord(long timestamp, String sourceName, String commandLine, CommandMetrics.Outcome outcome, long latencyNanos) {
+        this.timestamp = timestamp;
+        this.sourceName = sourceName;
+        this.commandLine = commandLine;
+        this.outcome = outcome;
+        this.latencyNanos = latencyNanos;
+    }
+
+    public Instant getTimestamp() {
+        return Instant.ofEpochMilli(this.timestamp);
+    }
+
+    public long getTimestampMillis() {
+        return this.timestamp;
+    }
+
+    public String getSourceName() {
+        return this.sourceName;
+    }
+
+    public String getCommandLine() {
+        return this.commandLine;
+    }
+
+    /**
+     * Gets the alias the command was invoked with, the first word of the
+     * command line. It is not stored separately.
+     *
+     * @return The alias
+     */
+    public String getAlias() {
+        var aliasEnd = this.commandLine.indexOf(' ');
+        return aliasEnd == -1 ? this.commandLine : this.commandLine.substring(0, aliasEnd);
+    }
+
+    public CommandMetrics.Outcome getOutcome() {
+        return this.outcome;
+    }
+
+    public Duration getLatency() {
+        return Duration.ofNanos(this.latencyNanos);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("timestamp", getTimestamp())
+                .add("source", this.sourceName)
+                .add("commandLine", this.commandLine)
+                .add("outcome", this.outcome)
+                .add("latency", getLatency())
+                .toString();
+    }
+}
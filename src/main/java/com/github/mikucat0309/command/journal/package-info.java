@@ -0,0 +1,6 @@
+/**
+ * An append-only journal of processed commands, for auditing and for
+ * replaying recorded traffic.
+ */
+@com.github.mikucat0309.command.util.annotation.NonnullByDefault
+package com.github.mikucat0309.command.journal;
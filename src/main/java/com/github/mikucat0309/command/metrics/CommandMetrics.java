@@ -0,0 +1,157 @@
+package com.github.mikucat0309.command.metrics;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and outcome counters per primary alias.
+ */
+public final class CommandMetrics {
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final Map<String, AliasMetrics> byAlias = new ConcurrentHashMap<>();
+    private final LongAdder notFound = new LongAdder();
+
+    public AliasMetrics forAlias(String primaryAlias) {
+        var metrics = this.byAlias.get(primaryAlias);
+        if (metrics == null) {
+            metrics = this.byAlias.computeIfAbsent(primaryAlias, AliasMetrics::new);
+        }
+        return metrics;
+    }
+
+    public void recordNotFound() {
+        this.notFound.increment();
+    }
+
+    /**
+     * Gets how many command lines named no registered command.
+     *
+     * @return The number of unknown commands
+     */
+    public long getNotFound() {
+        return this.notFound.sum();
+    }
+
+    public Optional<Snapshot> snapshot(String primaryAlias) {
+        var metrics = this.byAlias.get(primaryAlias);
+        return metrics == null ? Optional.empty() : Optional.of(metrics.snapshot());
+    }
+
+    public Map<String, Snapshot> snapshot() {
+        return ImmutableMap.copyOf(Maps.transformValues(this.byAlias, AliasMetrics::snapshot));
+    }
+
+    public enum Phase {
+        /**
+         * Splitting the argument string into tokens.
+         */
+        TOKENIZE,
+        /**
+         * Parsing the tokens into the command context.
+         */
+        PARSE,
+        /**
+         * Running the command executor.
+         */
+        EXECUTE,
+        /**
+         * Reporting a failure back to the source.
+         */
+        ERROR
+    }
+
+    public enum Outcome {
+        SUCCESS,
+        PARSE_ERROR,
+        PERMISSION_ERROR,
+        EXECUTION_ERROR,
+        TIMED_OUT,
+        REJECTED,
+        /**
+         * The command line named no registered command. Such lines have no
+         * alias to count against and are counted by {@link #getNotFound()}.
+         */
+        NOT_FOUND
+    }
+
+    public static final class AliasMetrics {
+
+        private final String alias;
+        private final LatencyHistogram[] phases = new LatencyHistogram[PHASES.length];
+        private final LongAdder[] outcomes = new LongAdder[OUTCOMES.length];
+
+        AliasMetrics(String alias) {
+            this.alias = alias;
+            for (int i = 0; i < this.phases.length; i++) {
+                this.phases[i] = new LatencyHistogram();
+            }
+            for (int i = 0; i < this.outcomes.length; i++) {
+                this.outcomes[i] = new LongAdder();
+            }
+        }
+
+        public void record(Phase phase, long nanos) {
+            this.phases[phase.ordinal()].record(nanos);
+        }
+
+        public void count(Outcome outcome) {
+            this.outcomes[outcome.ordinal()].increment();
+        }
+
+        public Snapshot snapshot() {
+            var phases = new EnumMap<Phase, HistogramSnapshot>(Phase.class);
+            for (var phase : PHASES) {
+                phases.put(phase, this.phases[phase.ordinal()].snapshot());
+            }
+            var outcomes = new EnumMap<Outcome, Long>(Outcome.class);
+            for (var outcome : OUTCOMES) {
+                outcomes.put(outcome, this.outcomes[outcome.ordinal()].sum());
+            }
+            return new Snapshot(this.alias, phases, outcomes);
+        }
+    }
+
+    public static final class Snapshot {
+
+        private final String alias;
+        private final Map<Phase, HistogramSnapshot> phases;
+        private final Map<Outcome, Long> outcomes;
+
+        Snapshot(String alias, Map<Phase, HistogramSnapshot> phases, Map<Outcome, Long> outcomes) {
+            this.alias = alias;
+            this.phases = phases;
+            this.outcomes = outcomes;
+        }
+
+        public String getAlias() {
+            return this.alias;
+        }
+
+        public HistogramSnapshot getLatency(Phase phase) {
+            return this.phases.get(phase);
+        }
+
+        public long getCount(Outcome outcome) {
+            return this.outcomes.get(outcome);
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("alias", this.alias)
+                    .add("phases", this.phases)
+                    .add("outcomes", this.outcomes)
+                    .toString();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.mikucat0309.command.metrics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.MoreObjects;
+
+import java.time.Duration;
+
+/**
+ * A point-in-time copy of a {@link LatencyHistogram}.
+ */
+public final class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long count, long sum, long max) {
+        this.counts = counts;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public Duration getMean() {
+        return Duration.ofNanos(this.count == 0 ? 0 : this.sum / this.count);
+    }
+
+    public Duration getMax() {
+        return Duration.ofNanos(this.max);
+    }
+
+    /**
+     * Gets the value below which the given percentage of recorded values fall,
+     * rounded up to the bucket boundary.
+     *
+     * @param percentile The percentile, between 0 and 100
+     * @return The value at the percentile, or zero if nothing was recorded
+     */
+    public Duration getPercentile(double percentile) {
+        checkArgument(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+        if (this.count == 0) {
+            return Duration.ZERO;
+        }
+        var rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.count));
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Duration.ofNanos(Math.min(LatencyHistogram.upperBoundOf(i), this.max));
+            }
+        }
+        return Duration.ofNanos(this.max);
+    }
+
+    /**
+     * Combines this snapshot with another, as if both histograms had
+     * recorded into one.
+     *
+     * @param other The snapshot to add
+     * @return The combined snapshot
+     */
+    public HistogramSnapshot merge(HistogramSnapshot other) {
+        var merged = this.counts.clone();
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] += other.counts[i];
+        }
+        return new HistogramSnapshot(merged, this.count + other.count, this.sum + other.sum, Math.max(this.max, other.max));
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("count", this.count)
+                .add("mean", getMean())
+                .add("p50", getPercentile(50))
+                .add("p99", getPercentile(99))
+                .add("max", getMax())
+                .toString();
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.mikucat0309.command.metrics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds. Values are counted in
+ * logarithmic buckets, eight per power of two, so any value is off by at
+ * most 12.5% while the whole range of a {@code long} fits in a fixed array.
+ * Recording never allocates or blocks, and snapshots can be taken while
+ * other threads keep recording.
+ */
+public final class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        var exponent = 63 - Long.numberOfLeadingZeros(value);
+        var subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Gets the largest value that falls into a bucket.
+     *
+     * @param bucket The bucket index
+     * @return The inclusive upper bound of the bucket
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        var exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        var subBucket = bucket % SUB_BUCKETS;
+        var shift = exponent - SUB_BUCKET_BITS;
+        var lower = (long) (SUB_BUCKETS + subBucket) << shift;
+        return lower + ((1L << shift) - 1);
+    }
+
+    public void record(long nanos) {
+        checkArgument(nanos >= 0, "nanos must not be negative");
+        this.counts.incrementAndGet(bucketOf(nanos));
+        this.sum.add(nanos);
+        this.max.accumulate(nanos);
+    }
+
+    public HistogramSnapshot snapshot() {
+        var copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = this.counts.get(i);
+            count += copy[i];
+        }
+        return new HistogramSnapshot(copy, count, this.sum.sum(), this.max.get());
+    }
+}
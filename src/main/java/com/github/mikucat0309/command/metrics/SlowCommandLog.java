@@ -0,0 +1,192 @@
+package com.github.mikucat0309.command.metrics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.github.mikucat0309.command.util.TokenBucket;
+import com.google.common.base.MoreObjects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+import javax.annotation.Nullable;
+
+/**
+ * Logs commands and tab completions that took longer than a threshold.
+ * Calls under the threshold only cost a comparison; slow calls are sampled
+ * and rate limited before anything is formatted, so a burst of slow
+ * commands cannot flood the log.
+ */
+public final class SlowCommandLog {
+
+    /**
+     * Replaces the arguments with their length, so secrets typed as
+     * arguments never reach the log.
+     */
+    public static final UnaryOperator<String> REDACT_ALL = arguments -> arguments.isEmpty() ? "" : "<" + arguments.length() + " chars>";
+
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final TokenBucket rateLimit;
+    private final UnaryOperator<String> redactor;
+    private final Logger logger;
+    private final LongAdder slow = new LongAdder();
+    private final LongAdder logged = new LongAdder();
+
+    private SlowCommandLog(Builder builder) {
+        this.thresholdNanos = builder.threshold.toNanos();
+        this.sampleRate = builder.sampleRate;
+        this.rateLimit = new TokenBucket(builder.permitsPerSecond, builder.burst);
+        this.redactor = builder.redactor;
+        this.logger = builder.logger;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Duration getThreshold() {
+        return Duration.ofNanos(this.thresholdNanos);
+    }
+
+    public boolean isSlow(long nanos) {
+        return nanos >= this.thresholdNanos;
+    }
+
+    /**
+     * Gets the number of calls that were over the threshold, including the
+     * ones that were sampled out or rate limited.
+     *
+     * @return The number of slow calls
+     */
+    public long getSlow() {
+        return this.slow.sum();
+    }
+
+    public long getLogged() {
+        return this.logged.sum();
+    }
+
+    /**
+     * Logs a command if it was slow. A phase that did not run is passed as
+     * a negative duration.
+     *
+     * @param alias The alias the command was invoked with
+     * @param arguments The raw arguments, redacted before logging
+     * @param tokenizeNanos The time spent tokenizing the arguments
+     * @param parseNanos The time spent parsing the arguments
+     * @param executeNanos The time spent executing the command
+     * @param totalNanos The time spent in the whole call
+     * @param slowestElement The name of the element that took longest to parse
+     * @param slowestElementNanos The time spent in that element
+     */
+    public void command(String alias, String arguments, long tokenizeNanos, long parseNanos, long executeNanos, long totalNanos,
+            @Nullable String slowestElement, long slowestElementNanos) {
+        if (!shouldLog(totalNanos)) {
+            return;
+        }
+        this.logger.warn("Slow command /{} {} took {} (tokenize {}, parse {}, execute {}, slowest element {})",
+                alias, this.redactor.apply(arguments), format(totalNanos), format(tokenizeNanos), format(parseNanos),
+                format(executeNanos), slowestElement == null ? "n/a" : slowestElement + " " + format(slowestElementNanos));
+    }
+
+    public void completion(String alias, String arguments, int suggestions, long totalNanos) {
+        if (!shouldLog(totalNanos)) {
+            return;
+        }
+        this.logger.warn("Slow tab completion /{} {} took {} ({} suggestions)",
+                alias, this.redactor.apply(arguments), format(totalNanos), suggestions);
+    }
+
+    private boolean shouldLog(long totalNanos) {
+        if (totalNanos < this.thresholdNanos) {
+            return false;
+        }
+        this.slow.increment();
+        if (this.sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= this.sampleRate) {
+            return false;
+        }
+        if (!this.rateLimit.tryAcquire()) {
+            return false;
+        }
+        this.logged.increment();
+        return true;
+    }
+
+    private static String format(long nanos) {
+        if (nanos < 0) {
+            return "n/a";
+        }
+        if (nanos < 1_000_000L) {
+            return nanos / 1000 + "µs";
+        }
+        return String.format("%.1fms", nanos / 1e6);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("threshold", getThreshold())
+                .add("sampleRate", this.sampleRate)
+                .add("slow", getSlow())
+                .add("logged", getLogged())
+                .toString();
+    }
+
+    public static final class Builder {
+
+        private Duration threshold = Duration.ofMillis(50);
+        private double sampleRate = 1;
+        private double permitsPerSecond = 1;
+        private int burst = 10;
+        private UnaryOperator<String> redactor = REDACT_ALL;
+        private Logger logger = LoggerFactory.getLogger(SlowCommandLog.class);
+
+        Builder() {
+        }
+
+        public Builder threshold(Duration threshold) {
+            checkArgument(!threshold.isNegative(), "threshold must not be negative");
+            this.threshold = threshold;
+            return this;
+        }
+
+        /**
+         * Sets the fraction of slow calls that are considered for logging.
+         *
+         * @param sampleRate A rate between 0 and 1
+         * @return This builder, for chaining
+         */
+        public Builder sampleRate(double sampleRate) {
+            checkArgument(sampleRate >= 0 && sampleRate <= 1, "sampleRate must be between 0 and 1");
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        public Builder rateLimit(double permitsPerSecond, int burst) {
+            checkArgument(permitsPerSecond > 0, "permitsPerSecond must be positive");
+            checkArgument(burst > 0, "burst must be positive");
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+            return this;
+        }
+
+        public Builder redactor(UnaryOperator<String> redactor) {
+            this.redactor = checkNotNull(redactor, "redactor");
+            return this;
+        }
+
+        public Builder logger(Logger logger) {
+            this.logger = checkNotNull(logger, "logger");
+            return this;
+        }
+
+        public SlowCommandLog build() {
+            return new SlowCommandLog(this);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.mikucat0309.command.replay;
+
+import com.github.mikucat0309.command.journal.JournalReader;
+import com.github.mikucat0309.command.journal.JournalRecord;
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Loads recorded traffic, either from a {@link com.github.mikucat0309.command.journal.CommandJournal}
+ * directory or from a text file.
+ *
+ * <p>Each line of a text file is {@code <millis>\t<source>\t<command line>},
+ * with the time relative to any fixed point. A line without tabs is a bare
+ * command line from the source {@code console} that arrives 1 ms after the
+ * previous one. Empty lines and lines starting with {@code #} are skipped.</p>
+ */
+public final class ReplayLog {
+
+    private static final String DEFAULT_SOURCE = "console";
+
+    private ReplayLog() {
+    }
+
+    public static List<ReplayRecord> read(Path path) throws IOException {
+        return Files.isDirectory(path) ? readJournal(path) : readText(path);
+    }
+
+    private static List<ReplayRecord> readJournal(Path directory) throws IOException {
+        List<JournalRecord> journaled;
+        try (var stream = JournalReader.stream(directory)) {
+            // Records are appended as commands complete, so a slow command follows those that arrived after it
+            journaled = stream.sorted(Comparator.comparingLong(JournalRecord::getTimestampMillis)).collect(Collectors.toList());
+        }
+        if (journaled.isEmpty()) {
+            return ImmutableList.of();
+        }
+        var first = journaled.get(0).getTimestampMillis();
+        return journaled.stream()
+                .map(record -> new ReplayRecord(TimeUnit.MILLISECONDS.toNanos(record.getTimestampMillis() - first),
+                        record.getSourceName(), record.getCommandLine()))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    private static List<ReplayRecord> readText(Path file) throws IOException {
+        var records = ImmutableList.<ReplayRecord>builder();
+        long first = -1;
+        long previous = 0;
+        int lineNumber = 0;
+        for (var line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            var parts = line.split("\t", 3);
+            if (parts.length == 1) {
+                previous += TimeUnit.MILLISECONDS.toNanos(1);
+                records.add(new ReplayRecord(previous, DEFAULT_SOURCE, line));
+                continue;
+            }
+            if (parts.length != 3) {
+                throw new IOException(String.format("%s:%d: expected <millis>\\t<source>\\t<command line>", file, lineNumber));
+            }
+            long millis;
+            try {
+                millis = Long.parseLong(parts[0].trim());
+            } catch (NumberFormatException e) {
+                throw new IOException(String.format("%s:%d: invalid time '%s'", file, lineNumber, parts[0]), e);
+            }
+            if (first == -1) {
+                first = millis;
+            }
+            previous = TimeUnit.MILLISECONDS.toNanos(millis - first);
+            records.add(new ReplayRecord(previous, parts[1], parts[2]));
+        }
+        return records.build();
+    }
+}
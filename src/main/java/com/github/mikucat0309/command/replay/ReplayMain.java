@@ -0,0 +1,75 @@
+package com.github.mikucat0309.command.replay;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Replays a recording from the command line and prints a {@link ReplayReport}.
+ */
+public final class ReplayMain {
+
+    private static final String USAGE = "Usage: java -jar <jar> <recording> [options]\n"
+            + "  <recording>         A command journal directory or a text file of <millis>\\t<source>\\t<command line>\n"
+            + "  --closed-loop       Replay with a fixed number of sources instead of on a schedule\n"
+            + "  --concurrency <n>   Sources in closed-loop mode (default 8)\n"
+            + "  --speed <x>         Compress the recorded arrival times by x (default 1)\n"
+            + "  --rate <n>          Send n commands per second instead of using the recorded times\n"
+            + "  --threads <n>       Threads executing commands (default: available processors)\n"
+            + "  --work-micros <n>   CPU time each stand-in command burns (default 0)\n"
+            + "  --loops <n>         Replay the recording n times (default 1)";
+
+    private ReplayMain() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0 || args[0].startsWith("--")) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        var recording = Path.of(args[0]);
+        if (!Files.exists(recording)) {
+            System.err.println("No such recording: " + recording);
+            System.exit(2);
+        }
+        var builder = TrafficReplayer.builder();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--closed-loop":
+                        builder.mode(TrafficReplayer.Mode.CLOSED_LOOP);
+                        break;
+                    case "--concurrency":
+                        builder.concurrency(Integer.parseInt(args[++i]));
+                        break;
+                    case "--speed":
+                        builder.speed(Double.parseDouble(args[++i]));
+                        break;
+                    case "--rate":
+                        builder.rate(Double.parseDouble(args[++i]));
+                        break;
+                    case "--threads":
+                        builder.threads(Integer.parseInt(args[++i]));
+                        break;
+                    case "--work-micros":
+                        builder.work(Duration.ofNanos(Long.parseLong(args[++i]) * 1000));
+                        break;
+                    case "--loops":
+                        builder.loops(Integer.parseInt(args[++i]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing value for " + args[args.length - 1] : e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        var records = ReplayLog.read(recording);
+        System.out.printf("Replaying %d commands from %s%n", records.size(), recording);
+        System.out.print(builder.build().run(records));
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.mikucat0309.command.replay;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * A recorded command line with the time it arrived, relative to the start of
+ * the recording.
+ */
+public final class ReplayRecord {
+
+    private final long offsetNanos;
+    private final String sourceName;
+    private final String commandLine;
+
+    public ReplayRecord(long offsetNanos, String sourceName, String commandLine) {
+        this.offsetNanos = offsetNanos;
+        this.sourceName = checkNotNull(sourceName, "sourceName");
+        this.commandLine = checkNotNull(commandLine, "commandLine");
+    }
+
+    public long getOffsetNanos() {
+        return this.offsetNanos;
+    }
+
+    public String getSourceName() {
+        return this.sourceName;
+    }
+
+    public String getCommandLine() {
+        return this.commandLine;
+    }
+
+    public String getAlias() {
+        var aliasEnd = this.commandLine.indexOf(' ');
+        return aliasEnd == -1 ? this.commandLine : this.commandLine.substring(0, aliasEnd);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("offsetNanos", this.offsetNanos)
+                .add("sourceName", this.sourceName)
+                .add("commandLine", this.commandLine)
+                .toString();
+    }
+}
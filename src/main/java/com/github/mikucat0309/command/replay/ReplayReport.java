@@ -0,0 +1,100 @@
+package com.github.mikucat0309.command.replay;
+
+import com.github.mikucat0309.command.metrics.CommandMetrics;
+import com.github.mikucat0309.command.metrics.HistogramSnapshot;
+import com.google.common.collect.ImmutableMap;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * The results of a {@link TrafficReplayer} run.
+ */
+public final class ReplayReport {
+
+    private final long elapsedNanos;
+    private final HistogramSnapshot latency;
+    private final Map<CommandMetrics.Outcome, Long> outcomes;
+    private final long allocatedBytes;
+
+    ReplayReport(long elapsedNanos, HistogramSnapshot latency, Map<CommandMetrics.Outcome, Long> outcomes, long allocatedBytes) {
+        this.elapsedNanos = elapsedNanos;
+        this.latency = latency;
+        this.outcomes = ImmutableMap.copyOf(outcomes);
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(this.elapsedNanos);
+    }
+
+    public long getCompleted() {
+        return this.latency.getCount();
+    }
+
+    public double getThroughput() {
+        return this.elapsedNanos == 0 ? 0 : getCompleted() * 1e9 / this.elapsedNanos;
+    }
+
+    /**
+     * Gets the latency of the replayed commands. In open-loop mode it is
+     * measured from the time a command was due, so a backlog shows up as
+     * latency instead of a lower arrival rate.
+     *
+     * @return The latency histogram
+     */
+    public HistogramSnapshot getLatency() {
+        return this.latency;
+    }
+
+    public Map<CommandMetrics.Outcome, Long> getOutcomes() {
+        return this.outcomes;
+    }
+
+    public long getErrors() {
+        return this.outcomes.entrySet().stream()
+                .filter(entry -> entry.getKey() != CommandMetrics.Outcome.SUCCESS)
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+    }
+
+    /**
+     * Gets the bytes allocated by the threads of the replay, or -1 if the
+     * JVM cannot measure it.
+     *
+     * @return The allocated bytes
+     */
+    public long getAllocatedBytes() {
+        return this.allocatedBytes;
+    }
+
+    public double getAllocationRate() {
+        return this.allocatedBytes < 0 || this.elapsedNanos == 0 ? -1 : this.allocatedBytes * 1e9 / this.elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder();
+        builder.append(String.format("commands    %d in %.3f s%n", getCompleted(), this.elapsedNanos / 1e9));
+        builder.append(String.format("throughput  %.1f commands/s%n", getThroughput()));
+        builder.append(String.format("latency     p50 %s  p90 %s  p99 %s  p99.9 %s  max %s%n",
+                format(this.latency.getPercentile(50)), format(this.latency.getPercentile(90)), format(this.latency.getPercentile(99)),
+                format(this.latency.getPercentile(99.9)), format(this.latency.getMax())));
+        if (this.allocatedBytes >= 0) {
+            builder.append(String.format("allocation  %.1f MB/s, %d bytes/command%n", getAllocationRate() / (1 << 20),
+                    getCompleted() == 0 ? 0 : this.allocatedBytes / getCompleted()));
+        }
+        builder.append(String.format("errors      %d", getErrors()));
+        this.outcomes.forEach((outcome, count) -> {
+            if (outcome != CommandMetrics.Outcome.SUCCESS && count > 0) {
+                builder.append(String.format("  %s %d", outcome.name().toLowerCase(), count));
+            }
+        });
+        return builder.append(System.lineSeparator()).toString();
+    }
+
+    private static String format(Duration duration) {
+        var nanos = duration.toNanos();
+        return nanos < 1_000_000 ? String.format("%.1fus", nanos / 1e3) : String.format("%.2fms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,354 @@
+package com.github.mikucat0309.command.replay;
+
+import static com.github.mikucat0309.command.args.GenericArguments.optional;
+import static com.github.mikucat0309.command.args.GenericArguments.remainingRawJoinedStrings;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.github.mikucat0309.command.CommandManagerImpl;
+import com.github.mikucat0309.command.CommandResult;
+import com.github.mikucat0309.command.CommandSource;
+import com.github.mikucat0309.command.MetaData;
+import com.github.mikucat0309.command.metrics.CommandMetrics;
+import com.github.mikucat0309.command.metrics.LatencyHistogram;
+import com.github.mikucat0309.command.spec.CommandSpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nullable;
+
+/**
+ * Feeds recorded command lines into a {@link CommandManagerImpl} that has a
+ * stand-in command registered for every recorded alias. The stand-ins accept
+ * any arguments and can burn a fixed amount of CPU time per call.
+ *
+ * <p>In open-loop mode commands arrive on a schedule, either the recorded one
+ * compressed by the speed factor or a fixed rate, regardless of how fast
+ * earlier commands complete. In closed-loop mode a fixed number of sources
+ * each send their next command as soon as the previous one completed.</p>
+ */
+public final class TrafficReplayer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrafficReplayer.class);
+    private static final long START_DELAY_NANOS = Duration.ofMillis(10).toNanos();
+
+    private final Mode mode;
+    private final double speed;
+    private final double rate;
+    private final int concurrency;
+    private final int threads;
+    private final long workNanos;
+    private final int loops;
+
+    private TrafficReplayer(Builder builder) {
+        this.mode = builder.mode;
+        this.speed = builder.speed;
+        this.rate = builder.rate;
+        this.concurrency = builder.concurrency;
+        this.threads = builder.threads;
+        this.workNanos = builder.work.toNanos();
+        this.loops = builder.loops;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public ReplayReport run(List<ReplayRecord> records) throws InterruptedException {
+        checkArgument(!records.isEmpty(), "Nothing to replay");
+        var threadFactory = new RecordingThreadFactory();
+        var pool = Executors.newFixedThreadPool(this.threads, threadFactory);
+        var manager = new CommandManagerImpl(LOGGER);
+        manager.setExecutor(pool);
+        registerStandIns(manager, records);
+
+        var latency = new LatencyHistogram();
+        var allocated = new LongAdder();
+        var start = System.nanoTime();
+        try {
+            if (this.mode == Mode.OPEN_LOOP) {
+                // Parse on the pool too, so the schedule is not held up by slow parsing
+                manager.setParserExecutor(pool);
+                runOpenLoop(manager, records, latency, allocated);
+            } else {
+                runClosedLoop(manager, records, latency, allocated, threadFactory);
+            }
+        } finally {
+            allocated.add(threadFactory.allocatedBytes());
+            pool.shutdown();
+        }
+        var elapsed = System.nanoTime() - start;
+
+        var outcomes = new EnumMap<CommandMetrics.Outcome, Long>(CommandMetrics.Outcome.class);
+        for (var snapshot : manager.getMetrics().snapshot().values()) {
+            for (var outcome : CommandMetrics.Outcome.values()) {
+                outcomes.merge(outcome, snapshot.getCount(outcome), Long::sum);
+            }
+        }
+        outcomes.merge(CommandMetrics.Outcome.NOT_FOUND, manager.getMetrics().getNotFound(), Long::sum);
+        return new ReplayReport(elapsed, latency.snapshot(), outcomes, AllocationCounter.SUPPORTED ? allocated.sum() : -1);
+    }
+
+    private void registerStandIns(CommandManagerImpl manager, List<ReplayRecord> records) {
+        var metaData = new MetaData("replay");
+        var spec = CommandSpec.builder()
+                .arguments(optional(remainingRawJoinedStrings("arguments")))
+                .executor((src, args) -> {
+                    burn(this.workNanos);
+                    return CommandResult.success();
+                })
+                .build();
+        var aliases = new HashSet<String>();
+        for (var record : records) {
+            if (aliases.add(record.getAlias()) && !record.getAlias().isEmpty()) {
+                manager.register(metaData, spec, record.getAlias());
+            }
+        }
+    }
+
+    private static void burn(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        var deadline = System.nanoTime() + nanos;
+        while (System.nanoTime() - deadline < 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void runOpenLoop(CommandManagerImpl manager, List<ReplayRecord> records, LatencyHistogram latency, LongAdder allocated)
+            throws InterruptedException {
+        var total = records.size() * this.loops;
+        var done = new CountDownLatch(total);
+        var sources = new ConcurrentHashMap<String, CommandSource>();
+        // Text logs need not be in order, so a loop lasts until the latest record rather than the last one
+        var loopNanos = records.stream().mapToLong(ReplayRecord::getOffsetNanos).max().getAsLong() + 1;
+        var allocatedBefore = AllocationCounter.currentThread();
+        var start = System.nanoTime() + START_DELAY_NANOS;
+        for (int i = 0; i < total; i++) {
+            var record = records.get(i % records.size());
+            long due;
+            if (this.rate > 0) {
+                due = start + (long) (i * 1e9 / this.rate);
+            } else {
+                due = start + (long) (((long) (i / records.size()) * loopNanos + record.getOffsetNanos()) / this.speed);
+            }
+            parkUntil(due);
+            var source = sources.computeIfAbsent(record.getSourceName(), ReplaySource::new);
+            manager.processAsync(source, record.getCommandLine()).whenComplete((result, thr) -> {
+                latency.record(System.nanoTime() - due);
+                done.countDown();
+            });
+        }
+        allocated.add(AllocationCounter.currentThread() - allocatedBefore);
+        done.await();
+    }
+
+    private void runClosedLoop(CommandManagerImpl manager, List<ReplayRecord> records, LatencyHistogram latency, LongAdder allocated,
+            ThreadFactory threadFactory) throws InterruptedException {
+        var total = records.size() * this.loops;
+        var next = new AtomicInteger();
+        var drivers = new ArrayList<Thread>();
+        for (int i = 0; i < this.concurrency; i++) {
+            var source = new ReplaySource("replay-" + i);
+            var driver = threadFactory.newThread(() -> {
+                var allocatedBefore = AllocationCounter.currentThread();
+                int index;
+                while ((index = next.getAndIncrement()) < total) {
+                    var start = System.nanoTime();
+                    manager.processAsync(source, records.get(index % records.size()).getCommandLine()).join();
+                    latency.record(System.nanoTime() - start);
+                }
+                allocated.add(AllocationCounter.currentThread() - allocatedBefore);
+            });
+            drivers.add(driver);
+            driver.start();
+        }
+        for (var driver : drivers) {
+            driver.join();
+        }
+    }
+
+    private static void parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    public enum Mode {
+        /**
+         * Commands arrive on a schedule, independent of their completion.
+         */
+        OPEN_LOOP,
+        /**
+         * A fixed number of sources each wait for their previous command.
+         */
+        CLOSED_LOOP
+    }
+
+    public static final class Builder {
+
+        private Mode mode = Mode.OPEN_LOOP;
+        private double speed = 1;
+        private double rate;
+        private int concurrency = 8;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private Duration work = Duration.ZERO;
+        private int loops = 1;
+
+        Builder() {
+        }
+
+        public Builder mode(Mode mode) {
+            this.mode = checkNotNull(mode, "mode");
+            return this;
+        }
+
+        /**
+         * Compresses the recorded arrival times in open-loop mode, 10 replays
+         * an hour of traffic in 6 minutes.
+         *
+         * @param speed The compression factor
+         * @return This builder, for chaining
+         */
+        public Builder speed(double speed) {
+            checkArgument(speed > 0, "speed must be positive");
+            this.speed = speed;
+            return this;
+        }
+
+        /**
+         * Ignores the recorded arrival times in open-loop mode and sends
+         * commands at a fixed rate instead.
+         *
+         * @param commandsPerSecond The arrival rate, or 0 to use the recording
+         * @return This builder, for chaining
+         */
+        public Builder rate(double commandsPerSecond) {
+            checkArgument(commandsPerSecond >= 0, "rate must not be negative");
+            this.rate = commandsPerSecond;
+            return this;
+        }
+
+        public Builder concurrency(int concurrency) {
+            checkArgument(concurrency > 0, "concurrency must be positive");
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            checkArgument(threads > 0, "threads must be positive");
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder work(Duration work) {
+            checkArgument(!work.isNegative(), "work must not be negative");
+            this.work = work;
+            return this;
+        }
+
+        public Builder loops(int loops) {
+            checkArgument(loops > 0, "loops must be positive");
+            this.loops = loops;
+            return this;
+        }
+
+        public TrafficReplayer build() {
+            return new TrafficReplayer(this);
+        }
+    }
+
+    private static final class ReplaySource implements CommandSource {
+
+        private final String name;
+
+        ReplaySource(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return this.name;
+        }
+
+        @Override
+        public void sendMessage(String message) {
+        }
+
+        @Override
+        public Optional<CommandSource> getCommandSource() {
+            return Optional.empty();
+        }
+    }
+
+    private static final class RecordingThreadFactory implements ThreadFactory {
+
+        private final List<Thread> threads = new CopyOnWriteArrayList<>();
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            var thread = new Thread(task, "replay-" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            this.threads.add(thread);
+            return thread;
+        }
+
+        // Threads that have already terminated report their own allocation
+        long allocatedBytes() {
+            long bytes = 0;
+            for (var thread : this.threads) {
+                var allocated = AllocationCounter.of(thread);
+                if (allocated > 0) {
+                    bytes += allocated;
+                }
+            }
+            return bytes;
+        }
+    }
+
+    private static final class AllocationCounter {
+
+        @Nullable
+        static final com.sun.management.ThreadMXBean BEAN = bean();
+        static final boolean SUPPORTED = BEAN != null;
+
+        @Nullable
+        private static com.sun.management.ThreadMXBean bean() {
+            var threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+                var bean = (com.sun.management.ThreadMXBean) threads;
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+            return null;
+        }
+
+        static long currentThread() {
+            return of(Thread.currentThread());
+        }
+
+        static long of(Thread thread) {
+            return BEAN == null ? 0 : BEAN.getThreadAllocatedBytes(thread.getId());
+        }
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Replays recorded command traffic against stand-in commands, to check
+ * capacity before deployments.
+ */
+@com.github.mikucat0309.command.util.annotation.NonnullByDefault
+package com.github.mikucat0309.command.replay;
@@ -0,0 +1,46 @@
+package com.github.mikucat0309.command.spec;
+
+import com.github.mikucat0309.command.CommandException;
+import com.github.mikucat0309.command.CommandResult;
+import com.github.mikucat0309.command.CommandSource;
+import com.github.mikucat0309.command.InvocationCommandException;
+import com.github.mikucat0309.command.args.CommandContext;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A command executor that completes its result later instead of blocking
+ * the thread it is called on. Asynchronous call paths compose the returned
+ * stage, while {@link #execute} blocks on it for synchronous callers.
+ */
+@FunctionalInterface
+public interface AsyncCommandExecutor extends CommandExecutor {
+
+    static AsyncCommandExecutor adapt(CommandExecutor executor) {
+        if (executor instanceof AsyncCommandExecutor) {
+            return (AsyncCommandExecutor) executor;
+        }
+        return (src, args) -> CompletableFuture.completedFuture(executor.execute(src, args));
+    }
+
+    CompletionStage<CommandResult> executeAsync(CommandSource src, CommandContext args) throws CommandException;
+
+    @Override
+    default CommandResult execute(CommandSource src, CommandContext args) throws CommandException {
+        try {
+            return executeAsync(src, args).toCompletableFuture().join();
+        } catch (CompletionException e) {
+            var cause = e.getCause();
+            if (cause instanceof CommandException) {
+                throw (CommandException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new InvocationCommandException("Asynchronous command execution failed", cause == null ? e : cause);
+        }
+    }
+}
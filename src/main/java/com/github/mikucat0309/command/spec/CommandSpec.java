@@ -1,9 +1,11 @@
 package com.github.mikucat0309.command.spec;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.github.mikucat0309.command.CommandCallable;
 import com.github.mikucat0309.command.CommandException;
+import com.github.mikucat0309.command.CommandPriority;
 import com.github.mikucat0309.command.CommandResult;
 import com.github.mikucat0309.command.CommandSource;
 import com.github.mikucat0309.command.args.ArgumentParseException;
@@ -12,16 +14,22 @@ import com.github.mikucat0309.command.args.CommandArgs;
 import com.github.mikucat0309.command.args.CommandContext;
 import com.github.mikucat0309.command.args.CommandElement;
 import com.github.mikucat0309.command.args.GenericArguments;
+import com.github.mikucat0309.command.args.ParseProfiler;
 import com.github.mikucat0309.command.args.parsing.InputTokenizer;
+import com.github.mikucat0309.command.execution.CancellationToken;
+import com.github.mikucat0309.command.execution.RateLimit;
+import com.github.mikucat0309.command.jfr.CommandTokenizeEvent;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 
 import javax.annotation.Nullable;
 
@@ -34,15 +42,22 @@ public final class CommandSpec implements CommandCallable {
     @Nullable
     private final String permission;
     private final InputTokenizer argumentParser;
+    private final Optional<RateLimit> rateLimit;
+    private final Optional<CommandPriority> priority;
+    private final Optional<Duration> timeout;
 
     CommandSpec(CommandElement args, CommandExecutor executor, @Nullable String description, @Nullable String extendedDescription,
-            @Nullable String permission, InputTokenizer parser) {
+            @Nullable String permission, InputTokenizer parser, @Nullable RateLimit rateLimit, @Nullable CommandPriority priority,
+            @Nullable Duration timeout) {
         this.args = args;
         this.executor = executor;
         this.permission = permission;
         this.description = Optional.ofNullable(description);
         this.extendedDescription = Optional.ofNullable(extendedDescription);
         this.argumentParser = parser;
+        this.rateLimit = Optional.ofNullable(rateLimit);
+        this.priority = Optional.ofNullable(priority);
+        this.timeout = Optional.ofNullable(timeout);
     }
 
     public static Builder builder() {
@@ -50,7 +65,7 @@ public final class CommandSpec implements CommandCallable {
     }
 
     public void populateContext(CommandSource source, CommandArgs args, CommandContext context) throws ArgumentParseException {
-        this.args.parse(source, args, context);
+        ParseProfiler.parse(this.args, source, args, context);
         if (args.hasNext()) {
             args.next();
             throw args.createError("Too many arguments!");
@@ -71,12 +86,77 @@ public final class CommandSpec implements CommandCallable {
         return this.argumentParser;
     }
 
-    @Override
-    public CommandResult process(CommandSource source, String arguments) throws CommandException {
-        var args = new CommandArgs(arguments, getInputTokenizer().tokenize(arguments, false));
+    public Optional<RateLimit> getRateLimit() {
+        return this.rateLimit;
+    }
+
+    public Optional<CommandPriority> getPriority() {
+        return this.priority;
+    }
+
+    public Optional<Duration> getTimeout() {
+        return this.timeout;
+    }
+
+    public CommandContext parse(CommandSource source, String arguments) throws ArgumentParseException {
+        return parse(source, arguments, CancellationToken.none());
+    }
+
+    /**
+     * Parses the arguments into a new context that carries the given token,
+     * so long running elements can give up once it is cancelled.
+     *
+     * @param source The source of the command
+     * @param arguments The raw arguments
+     * @param cancellationToken The token for the parsed command
+     * @return The parsed context
+     * @throws ArgumentParseException If the arguments could not be parsed
+     */
+    public CommandContext parse(CommandSource source, String arguments, CancellationToken cancellationToken)
+            throws ArgumentParseException {
+        return parse(source, tokenize(arguments), cancellationToken);
+    }
+
+    public CommandArgs tokenize(String arguments) throws ArgumentParseException {
+        var event = new CommandTokenizeEvent();
+        event.begin();
+        try {
+            var tokens = getInputTokenizer().tokenize(arguments, false);
+            event.tokens = tokens.size();
+            return new CommandArgs(arguments, tokens);
+        } catch (ArgumentParseException e) {
+            event.failed = true;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.tokenizer = getInputTokenizer().getClass().getName();
+                event.inputLength = arguments.length();
+                event.commit();
+            }
+        }
+    }
+
+    public CommandContext parse(CommandSource source, CommandArgs args, CancellationToken cancellationToken)
+            throws ArgumentParseException {
         var context = new CommandContext();
+        context.setCancellationToken(cancellationToken);
         this.populateContext(source, args, context);
-        return getExecutor().execute(source, context);
+        return context;
+    }
+
+    @Override
+    public CommandResult process(CommandSource source, String arguments) throws CommandException {
+        return getExecutor().execute(source, parse(source, arguments));
+    }
+
+    public CompletionStage<CommandResult> executeAsync(CommandSource source, CommandContext context) throws CommandException {
+        return AsyncCommandExecutor.adapt(getExecutor()).executeAsync(source, context);
+    }
+
+    @Override
+    public CompletionStage<CommandResult> processAsync(CommandSource source, String arguments) throws CommandException {
+        return executeAsync(source, parse(source, arguments));
     }
 
     @Override
@@ -162,6 +242,12 @@ public final class CommandSpec implements CommandCallable {
         private Map<List<String>, CommandCallable> childCommandMap;
         private boolean childCommandFallback = true;
         private InputTokenizer argumentParser = InputTokenizer.quotedStrings(false);
+        @Nullable
+        private RateLimit rateLimit;
+        @Nullable
+        private CommandPriority priority;
+        @Nullable
+        private Duration timeout;
 
         Builder() {
         }
@@ -177,6 +263,10 @@ public final class CommandSpec implements CommandCallable {
             return this;
         }
 
+        public Builder asyncExecutor(AsyncCommandExecutor executor) {
+            return executor((CommandExecutor) executor);
+        }
+
         public Builder children(Map<List<String>, ? extends CommandCallable> children) {
             checkNotNull(children, "children");
             if (this.childCommandMap == null) {
@@ -235,6 +325,45 @@ public final class CommandSpec implements CommandCallable {
             return this;
         }
 
+        /**
+         * Limit how often this command may be invoked across all sources.
+         * Only enforced when the command manager has admission control set up.
+         *
+         * @param permitsPerSecond The sustained rate
+         * @param burst The number of invocations allowed at once
+         * @return This builder, for chaining
+         */
+        public Builder rateLimit(double permitsPerSecond, int burst) {
+            this.rateLimit = RateLimit.of(permitsPerSecond, burst);
+            return this;
+        }
+
+        /**
+         * Sets the scheduling priority of this command. Queued execution uses
+         * the higher of this and the priority of the source.
+         *
+         * @param priority The priority
+         * @return This builder, for chaining
+         */
+        public Builder priority(CommandPriority priority) {
+            this.priority = checkNotNull(priority, "priority");
+            return this;
+        }
+
+        /**
+         * Sets how long parsing and executing this command may take before
+         * it is cancelled, overriding the command manager's default.
+         *
+         * @param timeout The timeout
+         * @return This builder, for chaining
+         */
+        public Builder timeout(Duration timeout) {
+            checkNotNull(timeout, "timeout");
+            checkArgument(!timeout.isNegative() && !timeout.isZero(), "timeout must be positive");
+            this.timeout = timeout;
+            return this;
+        }
+
         public CommandSpec build() {
             if (this.childCommandMap == null || this.childCommandMap.isEmpty()) {
                 checkNotNull(this.executor, "An executor is required");
@@ -251,7 +380,7 @@ public final class CommandSpec implements CommandCallable {
             }
 
             return new CommandSpec(this.args, this.executor, this.description, this.extendedDescription, this.permission,
-                    this.argumentParser);
+                    this.argumentParser, this.rateLimit, this.priority, this.timeout);
         }
 
         @SuppressWarnings({"ConstantConditions"})
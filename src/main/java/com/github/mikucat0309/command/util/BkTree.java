@@ -0,0 +1,237 @@
+package com.github.mikucat0309.command.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * A BK-tree of strings under the Levenshtein distance, used to find terms
+ * close to a misspelled input without comparing against every term.
+ *
+ * <p>Terms are counted, so a term added twice must be removed twice. Removed
+ * terms are left in the tree as tombstones until they outnumber the live
+ * terms, at which point the tree is rebuilt.</p>
+ *
+ * <p>Nodes are never modified once published. A write copies the path from
+ * the root to the changed node and replaces the whole tree in a single
+ * volatile write, so searches run against a snapshot and never wait for
+ * writers.</p>
+ */
+public final class BkTree {
+
+    private static final int DEADLINE_CHECK_INTERVAL = 16;
+
+    private volatile Tree tree = Tree.EMPTY;
+
+    public synchronized void add(String term) {
+        var tree = this.tree;
+        var existing = find(tree.root, term);
+        if (existing == null) {
+            this.tree = new Tree(insert(tree.root, term, new Node(term, 1)), tree.size + 1, tree.tombstones);
+        } else if (existing.count == 0) {
+            this.tree = new Tree(insert(tree.root, term, existing.withCount(1)), tree.size + 1, tree.tombstones - 1);
+        } else {
+            this.tree = new Tree(insert(tree.root, term, existing.withCount(existing.count + 1)), tree.size, tree.tombstones);
+        }
+    }
+
+    public synchronized boolean remove(String term) {
+        var tree = this.tree;
+        var existing = find(tree.root, term);
+        if (existing == null || existing.count == 0) {
+            return false;
+        }
+        var root = insert(tree.root, term, existing.withCount(existing.count - 1));
+        if (existing.count > 1) {
+            this.tree = new Tree(root, tree.size, tree.tombstones);
+        } else if (tree.tombstones + 1 > tree.size - 1) {
+            this.tree = rebuild(root, tree.size - 1);
+        } else {
+            this.tree = new Tree(root, tree.size - 1, tree.tombstones + 1);
+        }
+        return true;
+    }
+
+    public int size() {
+        return this.tree.size;
+    }
+
+    /**
+     * Finds the terms closest to the query, nearest first.
+     *
+     * @param query The input to look up
+     * @param maxDistance The maximum edit distance of a match
+     * @param limit The maximum number of matches to return
+     * @param deadline The {@link System#nanoTime()} at which to stop searching
+     *     and return the matches found so far
+     * @return The matches, at most {@code limit} of them
+     */
+    public List<String> search(String query, int maxDistance, int limit, long deadline) {
+        checkArgument(maxDistance >= 0, "maxDistance must not be negative");
+        var root = this.tree.root;
+        if (root == null || limit <= 0) {
+            return ImmutableList.of();
+        }
+        var matches = new ArrayList<Match>();
+        var pending = new ArrayDeque<Node>();
+        pending.push(root);
+        var visited = 0;
+        while (!pending.isEmpty()) {
+            if (++visited % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+                break;
+            }
+            var node = pending.pop();
+            var distance = distance(query, node.term);
+            if (distance <= maxDistance && node.count > 0) {
+                matches.add(new Match(node.term, distance));
+            }
+            var from = Math.max(1, distance - maxDistance);
+            var to = Math.min(node.children.length - 1, distance + maxDistance);
+            for (int i = from; i <= to; i++) {
+                if (node.children[i] != null) {
+                    pending.push(node.children[i]);
+                }
+            }
+        }
+        return matches.stream()
+                .sorted(Comparator.comparingInt((Match match) -> match.distance).thenComparing(match -> match.term))
+                .limit(limit)
+                .map(match -> match.term)
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Nullable
+    private static Node find(@Nullable Node node, String term) {
+        while (node != null) {
+            var distance = distance(term, node.term);
+            if (distance == 0) {
+                return node;
+            }
+            node = node.child(distance);
+        }
+        return null;
+    }
+
+    // Returns a copy of the tree with the node of the term replaced, or added if the tree has none
+    private static Node insert(@Nullable Node node, String term, Node replacement) {
+        if (node == null) {
+            return replacement;
+        }
+        var distance = distance(term, node.term);
+        if (distance == 0) {
+            return replacement;
+        }
+        return node.withChild(distance, insert(node.child(distance), term, replacement));
+    }
+
+    private static Tree rebuild(@Nullable Node root, int size) {
+        var pending = new ArrayDeque<Node>();
+        if (root != null) {
+            pending.push(root);
+        }
+        Node rebuilt = null;
+        while (!pending.isEmpty()) {
+            var node = pending.pop();
+            if (node.count > 0) {
+                rebuilt = insert(rebuilt, node.term, new Node(node.term, node.count));
+            }
+            for (Node child : node.children) {
+                if (child != null) {
+                    pending.push(child);
+                }
+            }
+        }
+        return new Tree(rebuilt, size, 0);
+    }
+
+    static int distance(String first, String second) {
+        if (first.equals(second)) {
+            return 0;
+        }
+        var previous = new int[second.length() + 1];
+        var current = new int[second.length() + 1];
+        for (int j = 0; j <= second.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            var c = first.charAt(i - 1);
+            for (int j = 1; j <= second.length(); j++) {
+                var cost = c == second.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1], previous[j]) + 1, previous[j - 1] + cost);
+            }
+            var swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[second.length()];
+    }
+
+    private static final class Tree {
+
+        static final Tree EMPTY = new Tree(null, 0, 0);
+
+        @Nullable final Node root;
+        final int size;
+        final int tombstones;
+
+        Tree(@Nullable Node root, int size, int tombstones) {
+            this.root = root;
+            this.size = size;
+            this.tombstones = tombstones;
+        }
+    }
+
+    private static final class Node {
+
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        final String term;
+        final int count;
+        final Node[] children;
+
+        Node(String term, int count) {
+            this(term, count, NO_CHILDREN);
+        }
+
+        private Node(String term, int count, Node[] children) {
+            this.term = term;
+            this.count = count;
+            this.children = children;
+        }
+
+        @Nullable
+        Node child(int distance) {
+            return distance < this.children.length ? this.children[distance] : null;
+        }
+
+        Node withCount(int count) {
+            return new Node(this.term, count, this.children);
+        }
+
+        Node withChild(int distance, Node child) {
+            var children = Arrays.copyOf(this.children, Math.max(this.children.length, distance + 1));
+            children[distance] = child;
+            return new Node(this.term, this.count, children);
+        }
+    }
+
+    private static final class Match {
+
+        final String term;
+        final int distance;
+
+        Match(String term, int distance) {
+            this.term = term;
+            this.distance = distance;
+        }
+    }
+}
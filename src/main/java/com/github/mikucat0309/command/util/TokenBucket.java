@@ -0,0 +1,62 @@
+package com.github.mikucat0309.command.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket. The whole state is a single theoretical arrival
+ * time that is advanced with compare-and-set, so acquiring a permit never
+ * blocks and never allocates.
+ */
+public final class TokenBucket {
+
+    private final long nanosPerPermit;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * Create a new bucket that starts full.
+     *
+     * @param permitsPerSecond The rate permits are refilled at
+     * @param burst The maximum number of permits that can be stored
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        checkArgument(permitsPerSecond > 0, "permitsPerSecond must be positive");
+        checkArgument(burst > 0, "burst must be positive");
+        this.nanosPerPermit = Math.max(1L, (long) (1_000_000_000L / permitsPerSecond));
+        this.burstNanos = this.nanosPerPermit * burst;
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    public boolean tryAcquire(int permits) {
+        var now = System.nanoTime();
+        var cost = this.nanosPerPermit * permits;
+        while (true) {
+            var arrival = this.theoreticalArrival.get();
+            var next = (arrival - now > 0 ? arrival : now) + cost;
+            if (next - now > this.burstNanos) {
+                return false;
+            }
+            if (this.theoreticalArrival.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Return permits taken by an earlier successful {@link #tryAcquire(int)}
+     * that ended up unused. The bucket never holds more than its burst
+     * afterwards.
+     *
+     * @param permits The number of permits to return
+     */
+    public void release(int permits) {
+        checkArgument(permits > 0, "permits must be positive");
+        this.theoreticalArrival.addAndGet(-this.nanosPerPermit * permits);
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.mikucat0309.command;
+
+import static com.github.mikucat0309.command.args.GenericArguments.flags;
+import static com.github.mikucat0309.command.args.GenericArguments.integer;
+import static com.github.mikucat0309.command.args.GenericArguments.string;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.github.mikucat0309.command.args.CommandArgs;
+import com.github.mikucat0309.command.args.CommandContext;
+import com.github.mikucat0309.command.dispatcher.SimpleDispatcher;
+import com.github.mikucat0309.command.spec.CommandSpec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+
+/*
+ * Guards the garbage produced by a warmed-up dispatch of a simple command.
+ * Each phase is run many times and the average allocation per call is
+ * compared against a budget, so a single JIT deoptimization does not fail
+ * the build. The budgets leave about 20% headroom over what a 64-bit
+ * HotSpot with compressed oops allocates today, raise them deliberately if
+ * a change needs more. Not part of the test task, run it with
+ * ./gradlew allocationTest.
+ */
+@Tag("allocation")
+class AllocationBudgetTest {
+
+    private static final String ARGUMENTS = "Steve 64 -f";
+    private static final String COMMAND_LINE = "give " + ARGUMENTS;
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 10_000;
+
+    private final CommandManagerImplTest.RecordingSource source = new CommandManagerImplTest.RecordingSource();
+    private com.sun.management.ThreadMXBean threads;
+    private CommandSpec spec;
+    private SimpleDispatcher dispatcher;
+    private CommandManagerImpl manager;
+
+    @BeforeEach
+    void setUp() {
+        this.threads = allocationCounter();
+        this.spec = CommandSpec.builder()
+                .arguments(flags().flag("f").buildWith(string("player")), integer("amount"))
+                .executor((src, args) -> CommandResult.success())
+                .build();
+        this.dispatcher = new SimpleDispatcher();
+        this.dispatcher.register(this.spec, "give");
+        for (int i = 0; i < 100; i++) {
+            this.dispatcher.register(this.spec, "other" + i);
+        }
+        this.manager = new CommandManagerImpl(LoggerFactory.getLogger(AllocationBudgetTest.class));
+        this.manager.register(new MetaData("testcmd"), this.spec, "give");
+    }
+
+    @Test
+    void tokenizing() throws Exception {
+        assertBudget("tokenize", 768, () -> this.spec.tokenize(ARGUMENTS));
+    }
+
+    @Test
+    void dispatcherLookup() throws Exception {
+        assertTrue(this.dispatcher.get("give").isPresent());
+        assertBudget("SimpleDispatcher.get", 64, () -> this.dispatcher.get("give"));
+    }
+
+    @Test
+    void populatingTheContext() throws Exception {
+        var args = new CommandArgs[WARMUP + ITERATIONS];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = this.spec.tokenize(ARGUMENTS);
+        }
+        var next = new int[1];
+        assertBudget("populateContext", 1024, () -> this.spec.populateContext(this.source, args[next[0]++], new CommandContext()));
+        assertEquals(args.length, next[0]);
+    }
+
+    @Test
+    void executing() throws Exception {
+        var context = this.spec.parse(this.source, ARGUMENTS);
+        assertBudget("execute", 64, () -> this.spec.getExecutor().execute(this.source, context));
+    }
+
+    @Test
+    void processing() throws Exception {
+        assertEquals(CommandResult.success(), this.manager.process(this.source, COMMAND_LINE));
+        assertBudget("CommandManagerImpl.process", 2560, () -> this.manager.process(this.source, COMMAND_LINE));
+    }
+
+    private void assertBudget(String phase, long budget, Call call) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            call.run();
+        }
+        var thread = Thread.currentThread().getId();
+        var before = this.threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ITERATIONS; i++) {
+            call.run();
+        }
+        var perCall = (this.threads.getThreadAllocatedBytes(thread) - before) / ITERATIONS;
+        assertTrue(perCall <= budget, phase + " allocated " + perCall + " bytes per call, the budget is " + budget);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        var threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "Allocation counting needs com.sun.management");
+        var counter = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(counter.isThreadAllocatedMemorySupported(), "Allocation counting is not supported by this JVM");
+        counter.setThreadAllocatedMemoryEnabled(true);
+        return counter;
+    }
+
+    @FunctionalInterface
+    private interface Call {
+
+        void run() throws Exception;
+    }
+}
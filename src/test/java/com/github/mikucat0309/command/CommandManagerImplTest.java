@@ -6,15 +6,80 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 
+import com.github.mikucat0309.command.args.ArgumentParseException;
+import com.github.mikucat0309.command.args.CommandArgs;
+import com.github.mikucat0309.command.args.CommandContext;
+import com.github.mikucat0309.command.args.CommandElement;
+import com.github.mikucat0309.command.args.GenericArguments;
+import com.github.mikucat0309.command.batch.BatchCommand;
+import com.github.mikucat0309.command.execution.AdmissionController;
+import com.github.mikucat0309.command.execution.Bulkheads;
+import com.github.mikucat0309.command.execution.CircuitBreaker;
+import com.github.mikucat0309.command.execution.ExecutionContext;
+import com.github.mikucat0309.command.execution.PriorityExecutor;
+import com.github.mikucat0309.command.execution.ResourceAccountant;
+import com.github.mikucat0309.command.execution.ResourceQuota;
+import com.github.mikucat0309.command.execution.SourceMailboxes;
+import com.github.mikucat0309.command.metrics.CommandMetrics;
+import com.github.mikucat0309.command.metrics.SlowCommandLog;
 import com.github.mikucat0309.command.spec.CommandSpec;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 class CommandManagerImplTest {
 
+    static final class RecordingSource implements CommandSource {
+
+        final List<String> messages = new ArrayList<>();
+        final String name;
+        final CommandPriority priority;
+
+        RecordingSource() {
+            this("recording", CommandPriority.NORMAL);
+        }
+
+        RecordingSource(String name, CommandPriority priority) {
+            this.name = name;
+            this.priority = priority;
+        }
+
+        @Override
+        public String getName() {
+            return this.name;
+        }
+
+        @Override
+        public CommandPriority getPriority() {
+            return this.priority;
+        }
+
+        @Override
+        public synchronized void sendMessage(String message) {
+            this.messages.add(message);
+        }
+
+        @Override
+        public Optional<CommandSource> getCommandSource() {
+            return Optional.empty();
+        }
+    }
+
     private static final CommandManager cm = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
 
     @Test
@@ -44,4 +109,737 @@ class CommandManagerImplTest {
         cm.process(mock(CommandSource.class), "test1 false");
         assertFalse(bl.get());
     }
+
+    @Test
+    void namespacedAliasesAreResolvedWithoutBeingRegistered() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        var first = new AtomicInteger();
+        var second = new AtomicInteger();
+        manager.register(new MetaData("first"), CommandSpec.builder()
+                .arguments(bool("value"))
+                .executor((src, args) -> {
+                    first.incrementAndGet();
+                    return CommandResult.success();
+                })
+                .build(), "home", "h");
+        manager.register(new MetaData("second"), CommandSpec.builder()
+                .executor((src, args) -> {
+                    second.incrementAndGet();
+                    return CommandResult.success();
+                })
+                .build(), "home");
+
+        assertEquals(Set.of("home", "h"), manager.getAliases());
+        assertEquals(3, manager.size());
+
+        var source = new RecordingSource();
+        manager.process(source, "second:home");
+        manager.process(source, "FIRST:h true");
+        manager.process(source, "first:home false");
+        assertEquals(2, first.get());
+        assertEquals(1, second.get());
+        assertTrue(manager.containsAlias("second:home"));
+        assertFalse(manager.containsAlias("second:h"));
+        assertFalse(manager.get("third:home").isPresent());
+
+        assertEquals(List.of("h", "home"), manager.getSuggestions(source, "h"));
+        assertEquals(List.of("first:h", "first:home"), manager.getSuggestions(source, "first:"));
+        assertEquals(List.of("second:home"), manager.getSuggestions(source, "second:h"));
+        assertEquals(List.of("t", "true"), manager.getSuggestions(source, "first:home t"));
+    }
+
+    @Test
+    void namespacedAliasesSurviveTheirPlainAliasBeingDropped() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        var spec = CommandSpec.builder()
+                .executor((src, args) -> CommandResult.success())
+                .build();
+        var taken = manager.register(new MetaData("first"), spec, "home").get();
+        var offered = new ArrayList<String>();
+        var mapping = manager.register(new MetaData("second"), spec, List.of("home", "base"), aliases -> {
+            offered.addAll(aliases);
+            return aliases.stream().filter(alias -> !manager.containsAlias(alias)).collect(Collectors.toList());
+        }).get();
+
+        assertEquals(List.of("home", "second:home", "base", "second:base"), offered);
+        assertEquals(Set.of("second:home", "base"), mapping.getAllAliases());
+        assertEquals(Optional.of(taken), manager.get("home"));
+        assertEquals(Optional.of(mapping), manager.get("second:home"));
+        assertEquals(Optional.of(mapping), manager.get("second:base"));
+        assertEquals(List.of("second:base", "second:home"), manager.getSuggestions(new RecordingSource(), "second:"));
+    }
+
+    @Test
+    void unknownCommandsGoToNotFoundHandler() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .executor((src, args) -> CommandResult.success())
+                .build(), "known");
+        var misses = new ArrayList<String>();
+        manager.setNotFoundHandler(CommandNotFoundHandler.rateLimited((src, alias, suggestions) -> misses.add(alias), 1, 2));
+
+        assertEquals(CommandResult.success(), manager.process(mock(CommandSource.class), "known"));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(CommandResult.empty(), manager.process(mock(CommandSource.class), "unknown" + i + " arg"));
+        }
+        assertEquals(List.of("unknown0", "unknown1"), misses);
+    }
+
+    @Test
+    void unknownCommandsGetSuggestions() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        var metaData = new MetaData("testcmd");
+        for (String alias : List.of("teleport", "tell", "time", "weather")) {
+            manager.register(metaData, CommandSpec.builder()
+                    .executor((src, args) -> CommandResult.success())
+                    .build(), alias);
+        }
+        var suggestions = new ArrayList<String>();
+        manager.setNotFoundHandler((src, alias, similar) -> suggestions.addAll(similar.get()));
+
+        var reported = new ArrayList<List<String>>();
+        manager.addListener(new CommandListener() {
+            @Override
+            public void onError(CommandSource source, String commandLine, Throwable error) {
+                reported.add(((CommandNotFoundException) error).getSuggestions());
+            }
+        });
+
+        manager.process(mock(CommandSource.class), "telport somewhere");
+        assertEquals(List.of("teleport"), suggestions);
+        assertEquals(List.of(List.of("teleport")), reported);
+
+        var batch = manager.processBatch(List.of(BatchCommand.of(new RecordingSource(), "wether")), true);
+        var error = (CommandNotFoundException) batch.getEntries().get(0).getError().get();
+        assertEquals(List.of("weather"), error.getSuggestions());
+    }
+
+    @Test
+    void processAsyncRunsOnExecutor() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        var executor = Executors.newSingleThreadExecutor();
+        manager.setExecutor(executor);
+        var thread = new AtomicReference<Thread>();
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .arguments(bool("testkey"))
+                .executor((src, args) -> {
+                    thread.set(Thread.currentThread());
+                    if (!args.<Boolean>getOne("testkey").get()) {
+                        throw new CommandException("failed");
+                    }
+                    return CommandResult.success();
+                })
+                .build(), "async");
+
+        try {
+            var source = new RecordingSource();
+            assertEquals(CommandResult.success(), manager.processAsync(source, "async true").join());
+            assertFalse(Thread.currentThread() == thread.get());
+
+            assertEquals(CommandResult.empty(), manager.processAsync(source, "async false").join());
+            assertEquals(CommandResult.empty(), manager.processAsync(source, "async notabool").join());
+            assertEquals(3, source.messages.size());
+            assertEquals("[ERROR] failed", source.messages.get(0));
+            assertEquals("[ERROR] Usage: /async <testkey>", source.messages.get(2));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void batchKeepsSubmissionOrderAndReportsErrors() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        var order = new ArrayList<Boolean>();
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .arguments(bool("testkey"))
+                .executor((src, args) -> {
+                    var value = args.<Boolean>getOne("testkey").get();
+                    order.add(value);
+                    return value ? CommandResult.success() : CommandResult.empty();
+                })
+                .build(), "batch");
+
+        var source = new RecordingSource();
+        var result = manager.processBatch(List.of(
+                BatchCommand.of(source, "batch true"),
+                BatchCommand.of(source, "batch notabool"),
+                BatchCommand.of(source, "missing"),
+                BatchCommand.of(source, "batch false")));
+
+        assertEquals(List.of(true, false), order);
+        assertEquals(4, result.size());
+        assertEquals(2, result.getFailures());
+        assertEquals(Optional.of(CommandResult.success()), result.getEntries().get(0).getResult());
+        assertTrue(result.getEntries().get(1).getError().get() instanceof ArgumentParseException);
+        assertTrue(result.getEntries().get(2).getError().get() instanceof CommandNotFoundException);
+        assertEquals(Optional.of(CommandResult.empty()), result.getEntries().get(3).getResult());
+        assertTrue(source.messages.isEmpty());
+    }
+
+    @Test
+    void independentBatchRunsOnExecutor() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        var executor = Executors.newFixedThreadPool(4);
+        manager.setExecutor(executor);
+        var executed = new AtomicInteger();
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .executor((src, args) -> {
+                    executed.incrementAndGet();
+                    return CommandResult.success();
+                })
+                .build(), "batch");
+
+        try {
+            var commands = new ArrayList<BatchCommand>();
+            for (int i = 0; i < 32; i++) {
+                commands.add(BatchCommand.of(new RecordingSource(), "batch"));
+            }
+            var result = manager.processBatch(commands, true);
+            assertEquals(32, executed.get());
+            assertEquals(32, result.getSuccesses());
+            assertTrue(result.getThroughput() > 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void admissionControlShedsCommandsOverTheirLimit() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        var admission = new AdmissionController(null, null, null);
+        manager.setAdmissionController(admission);
+        var executed = new AtomicInteger();
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .rateLimit(0.001, 2)
+                .executor((src, args) -> {
+                    executed.incrementAndGet();
+                    return CommandResult.success();
+                })
+                .build(), "limited");
+
+        var source = new RecordingSource();
+        for (int i = 0; i < 5; i++) {
+            manager.process(source, "limited");
+        }
+        assertEquals(2, executed.get());
+        assertEquals(2, admission.getAdmitted());
+        assertEquals(3, admission.getShedByCommand());
+        assertEquals(3, source.messages.size());
+    }
+
+    @Test
+    @Tag("load")
+    void registeringManyCommandsStaysLinear() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        var metaData = new MetaData("regions");
+        var spec = CommandSpec.builder()
+                .executor((src, args) -> CommandResult.success())
+                .build();
+        // Rebuilding a registry view for every lookup made this take minutes
+        var start = System.nanoTime();
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(manager.register(metaData, spec, "region" + i, "r" + i).isPresent());
+            assertTrue(manager.containsAlias("r" + i));
+            assertTrue(manager.get("region" + i).isPresent());
+        }
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(10)) < 0, "registering took " + elapsed);
+        assertEquals(40_000, manager.getAll().size());
+    }
+
+    @Test
+    void highPriorityCommandsOvertakeQueuedPlayerCommands() throws InterruptedException {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        var executor = new PriorityExecutor("priority-test", 1, 10, Duration.ofMinutes(1));
+        manager.setExecutor(executor);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var order = new ArrayList<String>();
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .executor((src, args) -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new CommandException("interrupted", e);
+                    }
+                    return CommandResult.success();
+                })
+                .build(), "block");
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .executor((src, args) -> {
+                    synchronized (order) {
+                        order.add(src.getName());
+                    }
+                    return CommandResult.success();
+                })
+                .build(), "record");
+
+        try {
+            var player = new RecordingSource("player", CommandPriority.NORMAL);
+            var blocked = manager.processAsync(player, "block");
+            started.await();
+            // The only worker is busy, so everything below waits in the executor's queues
+            var futures = new ArrayList<CompletableFuture<CommandResult>>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(manager.processAsync(player, "record"));
+            }
+            futures.add(manager.processAsync(new RecordingSource("console", CommandPriority.HIGH), "record"));
+            release.countDown();
+
+            assertEquals(CommandResult.success(), blocked.join());
+            futures.forEach(future -> assertEquals(CommandResult.success(), future.join()));
+            assertEquals(List.of("console", "player", "player", "player"), order);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @Tag("load")
+    void highPriorityLatencyIsBoundedWhilePlayerQueueIsFull() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        var executor = new PriorityExecutor("priority-test", 2, 500, Duration.ofSeconds(5));
+        manager.setExecutor(executor);
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .executor((src, args) -> {
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException e) {
+                        throw new CommandException("interrupted", e);
+                    }
+                    return CommandResult.success();
+                })
+                .build(), "work");
+
+        try {
+            var player = new RecordingSource("player", CommandPriority.NORMAL);
+            var futures = new ArrayList<CompletableFuture<CommandResult>>();
+            for (int i = 0; i < 600; i++) {
+                futures.add(manager.processAsync(player, "work"));
+            }
+            // Two workers need about half a second for the queued player commands
+            assertTrue(executor.getQueued(CommandPriority.NORMAL) > 400);
+
+            var admin = new RecordingSource("console", CommandPriority.HIGH);
+            var start = System.nanoTime();
+            assertEquals(CommandResult.success(), manager.processAsync(admin, "work").join());
+            var latency = Duration.ofNanos(System.nanoTime() - start);
+            assertTrue(latency.compareTo(Duration.ofMillis(150)) < 0, "admin latency was " + latency);
+            assertTrue(admin.messages.isEmpty());
+
+            // Whatever did not fit into the player queue was shed with a message
+            var succeeded = futures.stream().map(CompletableFuture::join).filter(CommandResult.success()::equals).count();
+            assertEquals(600, succeeded + player.messages.size());
+            assertFalse(player.messages.isEmpty());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void runawayExecutorsTimeOut() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        manager.setDefaultTimeout(Duration.ofMillis(50));
+        var interrupted = new AtomicBoolean();
+        var never = new CompletableFuture<CommandResult>();
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .executor((src, args) -> {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        interrupted.set(args.getCancellationToken().isCancelled());
+                    }
+                    return CommandResult.success();
+                })
+                .build(), "runaway");
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .timeout(Duration.ofMillis(20))
+                .asyncExecutor((src, args) -> never)
+                .build(), "pending");
+
+        var source = new RecordingSource();
+        var start = System.nanoTime();
+        assertEquals(CommandResult.empty(), manager.process(source, "runaway"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+        assertTrue(interrupted.get());
+        assertFalse(Thread.currentThread().isInterrupted());
+
+        assertEquals(CommandResult.empty(), manager.processAsync(source, "pending").join());
+        assertEquals(List.of("[ERROR] The command did not complete within 50 ms",
+                "[ERROR] The command did not complete within 20 ms"), source.messages);
+    }
+
+    @Test
+    void longParsesCheckTheDeadline() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        var parsed = new AtomicInteger();
+        var slowElement = new CommandElement("slow") {
+            @Override
+            protected Object parseValue(CommandSource source, CommandArgs args) throws ArgumentParseException {
+                parsed.incrementAndGet();
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    throw args.createError("interrupted");
+                }
+                return args.next();
+            }
+
+            @Override
+            public List<String> complete(CommandSource src, CommandArgs args, CommandContext context) {
+                return List.of();
+            }
+        };
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .arguments(GenericArguments.allOf(slowElement))
+                .timeout(Duration.ofMillis(30))
+                .executor((src, args) -> CommandResult.success())
+                .build(), "slow");
+
+        var source = new RecordingSource();
+        assertEquals(CommandResult.empty(), manager.process(source, "slow" + " x".repeat(1000)));
+        assertTrue(parsed.get() < 100);
+        assertEquals(List.of("[ERROR] The command did not complete within 30 ms"), source.messages);
+    }
+
+    @Test
+    void waitingInABatchDoesNotCountAgainstTheTimeout() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        manager.setDefaultTimeout(Duration.ofMillis(200));
+        var cancelled = new AtomicBoolean();
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .executor((src, args) -> {
+                    try {
+                        Thread.sleep(80);
+                    } catch (InterruptedException e) {
+                        throw new CommandException("interrupted", e);
+                    }
+                    cancelled.compareAndSet(false, args.getCancellationToken().isCancelled());
+                    return CommandResult.success();
+                })
+                .build(), "sleep");
+
+        // Every line is parsed before the first runs, the last one waits 400 ms for its turn
+        var source = new RecordingSource();
+        var lines = new ArrayList<BatchCommand>();
+        for (int i = 0; i < 6; i++) {
+            lines.add(BatchCommand.of(source, "sleep"));
+        }
+        var result = manager.processBatch(lines, false);
+        assertEquals(6, result.getSuccesses());
+        assertFalse(cancelled.get());
+        assertEquals(List.of(), source.messages);
+    }
+
+    @Test
+    void failingPluginsAreShortCircuited() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        var bulkheads = new Bulkheads(4, 4, 2, Duration.ofMinutes(1));
+        manager.setBulkheads(bulkheads);
+        var broken = new AtomicInteger();
+        manager.register(new MetaData("broken"), CommandSpec.builder()
+                .executor((src, args) -> {
+                    broken.incrementAndGet();
+                    throw new IllegalStateException("broken plugin");
+                })
+                .build(), "broken");
+        manager.register(new MetaData("healthy"), CommandSpec.builder()
+                .executor((src, args) -> CommandResult.success())
+                .build(), "healthy");
+
+        var source = new RecordingSource();
+        for (int i = 0; i < 4; i++) {
+            manager.process(source, "broken");
+        }
+        assertEquals(2, broken.get());
+        assertEquals(CommandResult.success(), manager.process(source, "healthy"));
+        assertEquals(CommandResult.success(), manager.processAsync(source, "healthy").join());
+
+        var metrics = bulkheads.getAll();
+        assertEquals(CircuitBreaker.State.OPEN, metrics.get("broken").getState());
+        assertEquals(2, metrics.get("broken").getFailed());
+        assertEquals(2, metrics.get("broken").getShortCircuited());
+        assertEquals(2, metrics.get("healthy").getCompleted());
+    }
+
+    @Test
+    void pluginsOverTheirCpuQuotaAreThrottled() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        var accountant = new ResourceAccountant(1, null);
+        accountant.setQuota("hog", ResourceQuota.of(Duration.ofMillis(5), Long.MAX_VALUE));
+        manager.setResourceAccountant(accountant);
+        manager.register(new MetaData("hog"), CommandSpec.builder()
+                .executor((src, args) -> {
+                    var end = System.nanoTime() + Duration.ofMillis(20).toNanos();
+                    while (System.nanoTime() < end) {
+                        Thread.onSpinWait();
+                    }
+                    return CommandResult.success();
+                })
+                .build(), "hog");
+
+        var source = new RecordingSource();
+        assertEquals(CommandResult.success(), manager.process(source, "hog"));
+        assertEquals(CommandResult.empty(), manager.process(source, "hog"));
+        assertEquals(List.of("[ERROR] The server is busy, please try again later"), source.messages);
+        assertEquals(1, accountant.getPluginUsage("hog").get().getInvocations());
+        assertEquals(1, accountant.getAliasUsage("hog").get().getSamples());
+    }
+
+    @Test
+    void metricsCountOutcomesPerPrimaryAlias() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .arguments(bool("testkey"))
+                .executor((src, args) -> {
+                    if (!args.<Boolean>getOne("testkey").get()) {
+                        throw new CommandPermissionException("denied");
+                    }
+                    return CommandResult.success();
+                })
+                .build(), "metered", "m");
+
+        var source = new RecordingSource();
+        manager.process(source, "metered true");
+        manager.process(source, "m true");
+        manager.process(source, "m false");
+        manager.process(source, "m notabool");
+        manager.process(source, "unknown");
+        manager.processAsync(source, "metered true").join();
+
+        var snapshot = manager.getMetrics().snapshot("metered").get();
+        assertEquals(3, snapshot.getCount(CommandMetrics.Outcome.SUCCESS));
+        assertEquals(1, snapshot.getCount(CommandMetrics.Outcome.PERMISSION_ERROR));
+        assertEquals(1, snapshot.getCount(CommandMetrics.Outcome.PARSE_ERROR));
+        assertEquals(4, snapshot.getLatency(CommandMetrics.Phase.PARSE).getCount());
+        assertEquals(4, snapshot.getLatency(CommandMetrics.Phase.EXECUTE).getCount());
+        assertEquals(2, snapshot.getLatency(CommandMetrics.Phase.ERROR).getCount());
+        assertEquals(1, manager.getMetrics().getNotFound());
+        assertFalse(manager.getMetrics().snapshot("m").isPresent());
+    }
+
+    @Test
+    void listenersSeeEveryStage() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .arguments(bool("testkey"))
+                .executor((src, args) -> CommandResult.success())
+                .build(), "listened");
+        var events = new ArrayList<String>();
+        var listener = new CommandListener() {
+            @Override
+            public void onPreDispatch(CommandSource source, String commandLine) {
+                events.add("pre " + commandLine);
+            }
+
+            @Override
+            public void onPostParse(CommandSource source, CommandMapping mapping, CommandContext context) {
+                events.add("parsed " + context.getOne("testkey").get());
+            }
+
+            @Override
+            public void onPostExecute(CommandSource source, CommandMapping mapping, CommandResult result, long executionNanos) {
+                events.add("executed " + mapping.getPrimaryAlias());
+            }
+
+            @Override
+            public void onError(CommandSource source, String commandLine, Throwable error) {
+                events.add("error " + error.getClass().getSimpleName());
+            }
+        };
+        manager.addListener(new CommandListener() {
+            @Override
+            public void onPreDispatch(CommandSource source, String commandLine) {
+                throw new IllegalStateException("listeners must not break dispatch");
+            }
+        });
+        manager.addListener(listener);
+
+        var source = new RecordingSource();
+        assertEquals(CommandResult.success(), manager.process(source, "listened true"));
+        manager.process(source, "listened maybe");
+        manager.process(source, "missing");
+        assertEquals(CommandResult.success(), manager.processAsync(source, "listened false").join());
+        assertEquals(List.of("pre listened true", "parsed true", "executed listened",
+                "pre listened maybe", "error ArgumentParseException",
+                "pre missing", "error CommandNotFoundException",
+                "pre listened false", "parsed false", "executed listened"), events);
+
+        manager.removeListener(listener);
+        manager.process(source, "listened true");
+        assertEquals(10, events.size());
+    }
+
+    @Test
+    void virtualThreadModeLimitsConcurrencyPerCommand() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        manager.useVirtualThreads(8, 1);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var sourceSeen = new AtomicBoolean(true);
+        var source = new RecordingSource();
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .executor((src, args) -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    if (ExecutionContext.getCurrentSource().orElse(null) != source) {
+                        sourceSeen.set(false);
+                    }
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        throw new CommandException("interrupted", e);
+                    }
+                    running.decrementAndGet();
+                    return CommandResult.success();
+                })
+                .build(), "limited");
+
+        var futures = new ArrayList<CompletableFuture<CommandResult>>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(manager.processAsync(source, "limited"));
+        }
+        futures.forEach(future -> assertEquals(CommandResult.success(), future.join()));
+        assertEquals(1, maxRunning.get());
+        assertTrue(sourceSeen.get());
+        assertFalse(ExecutionContext.getCurrentSource().isPresent());
+    }
+
+    @Test
+    void replacedVirtualThreadExecutorIsShutDown() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        manager.useVirtualThreads(8, 1);
+        var first = (ExecutorService) manager.getExecutor();
+        manager.useVirtualThreads(8, 1);
+        var second = (ExecutorService) manager.getExecutor();
+        assertTrue(first.isShutdown());
+        assertFalse(second.isShutdown());
+
+        var own = Executors.newSingleThreadExecutor();
+        try {
+            manager.setExecutor(own);
+            assertTrue(second.isShutdown());
+            manager.setExecutor(Runnable::run);
+            assertFalse(own.isShutdown());
+        } finally {
+            own.shutdown();
+        }
+    }
+
+    @Test
+    void asyncExecutorsAreComposed() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        manager.setExecutor(Runnable::run);
+        var pending = new CompletableFuture<CommandResult>();
+        var failing = new CompletableFuture<CommandResult>();
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .children(Map.of(
+                        List.of("pending"), CommandSpec.builder().asyncExecutor((src, args) -> pending).build(),
+                        List.of("failing"), CommandSpec.builder().asyncExecutor((src, args) -> failing).build()))
+                .build(), "parent");
+
+        var source = new RecordingSource();
+        var result = manager.processAsync(source, "parent pending");
+        assertFalse(result.isDone());
+        pending.complete(CommandResult.success());
+        assertEquals(CommandResult.success(), result.join());
+
+        var failed = manager.processAsync(source, "parent failing");
+        failing.completeExceptionally(new CommandException("async failure"));
+        assertEquals(CommandResult.empty(), failed.join());
+        assertEquals(List.of("[ERROR] async failure"), source.messages);
+
+        // The synchronous path blocks on the stage instead
+        assertEquals(CommandResult.success(), manager.process(source, "parent pending"));
+    }
+
+    @Test
+    void slowCommandsAreLoggedWithTheirSlowestElement() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        var slowElement = new CommandElement("slowarg") {
+            @Override
+            protected Object parseValue(CommandSource source, CommandArgs args) throws ArgumentParseException {
+                var value = args.next();
+                if (value.equals("slow")) {
+                    try {
+                        Thread.sleep(30);
+                    } catch (InterruptedException e) {
+                        throw args.createError("interrupted");
+                    }
+                }
+                return value;
+            }
+
+            @Override
+            public List<String> complete(CommandSource src, CommandArgs args, CommandContext context) {
+                return List.of();
+            }
+        };
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .arguments(bool("testkey"), slowElement)
+                .executor((src, args) -> CommandResult.success())
+                .build(), "slowcmd");
+        var redacted = new ArrayList<String>();
+        manager.setSlowCommandLog(SlowCommandLog.builder()
+                .threshold(Duration.ofMillis(20))
+                .rateLimit(1, 1)
+                .redactor(arguments -> {
+                    redacted.add(arguments);
+                    return SlowCommandLog.REDACT_ALL.apply(arguments);
+                })
+                .build());
+        var slowest = new AtomicReference<String>();
+        manager.addListener(new CommandListener() {
+            @Override
+            public void onPostParse(CommandSource source, CommandMapping mapping, CommandContext context) {
+                slowest.set(context.getSlowestElement().get().getKey());
+            }
+        });
+
+        var source = new RecordingSource();
+        manager.process(source, "slowcmd true fast");
+        assertEquals(0, manager.getSlowCommandLog().get().getSlow());
+
+        manager.process(source, "slowcmd true slow");
+        assertEquals("slowarg", slowest.get());
+        assertEquals(1, manager.getSlowCommandLog().get().getLogged());
+        assertEquals(List.of("true slow"), redacted);
+
+        // Over the rate limit, counted but not logged
+        manager.process(source, "slowcmd false slow");
+        assertEquals(2, manager.getSlowCommandLog().get().getSlow());
+        assertEquals(1, manager.getSlowCommandLog().get().getLogged());
+    }
+
+    @Test
+    void slowAsynchronousCommandsAreLogged() {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandManagerImplTest.class));
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .executor((src, args) -> {
+                    try {
+                        Thread.sleep(30);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return CommandResult.success();
+                })
+                .build(), "sleepy");
+        manager.setSlowCommandLog(SlowCommandLog.builder()
+                .threshold(Duration.ofMillis(20))
+                .rateLimit(100, 100)
+                .build());
+
+        var source = new RecordingSource();
+        assertEquals(CommandResult.success(), manager.processAsync(source, "sleepy").join());
+        assertEquals(1, manager.getSlowCommandLog().get().getLogged());
+
+        var mailboxes = new SourceMailboxes(10, SourceMailboxes.OverflowPolicy.REJECT);
+        manager.setSourceMailboxes(mailboxes);
+        try {
+            assertEquals(CommandResult.success(), manager.process(source, "sleepy"));
+            assertEquals(2, manager.getSlowCommandLog().get().getLogged());
+        } finally {
+            mailboxes.shutdown();
+        }
+    }
 }
@@ -24,6 +24,7 @@ import com.github.mikucat0309.command.CommandException;
 import com.github.mikucat0309.command.CommandResult;
 import com.github.mikucat0309.command.CommandSource;
 import com.github.mikucat0309.command.args.parsing.InputTokenizer;
+import com.github.mikucat0309.command.execution.CancellationToken;
 import com.github.mikucat0309.command.spec.CommandExecutor;
 import com.github.mikucat0309.command.spec.CommandSpec;
 import com.google.common.collect.ImmutableList;
@@ -31,6 +32,8 @@ import com.google.common.collect.ImmutableMap;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.time.Duration;
+
 
 /*
  * Tests for all argument types contained in GenericArguments.
@@ -246,6 +249,22 @@ public class GenericArgumentsTest {
         assertFalse(context.hasAny("test1"));
     }
 
+    @Test
+    public void testFallbacksDoNotSwallowCancellation() throws ArgumentParseException {
+        var token = CancellationToken.withTimeout(Duration.ofMinutes(1));
+        token.cancel();
+        for (CommandElement element : ImmutableList.of(
+                firstParsing(allOf(integer("val")), string("str")),
+                optional(allOf(integer("val"))),
+                seq(optionalWeak(repeated(integer("val"), 2)), string("str")),
+                GenericArguments.flags().flag("f").buildWith(allOf(integer("val"))))) {
+            CommandArgs args = new CommandArgs("1 2 3", InputTokenizer.spaceSplitString().tokenize("1 2 3", true));
+            CommandContext context = new CommandContext();
+            context.setCancellationToken(token);
+            assertThrows(ParseCancelledException.class, () -> element.parse(MOCK_SOURCE, args, context));
+        }
+    }
+
     private enum TestEnum {
         ONE, TWO, RED
     }
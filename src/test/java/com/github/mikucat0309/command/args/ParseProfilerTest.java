@@ -0,0 +1,57 @@
+package com.github.mikucat0309.command.args;
+
+import static com.github.mikucat0309.command.args.GenericArguments.firstParsing;
+import static com.github.mikucat0309.command.args.GenericArguments.flags;
+import static com.github.mikucat0309.command.args.GenericArguments.integer;
+import static com.github.mikucat0309.command.args.GenericArguments.string;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.mikucat0309.command.CommandResult;
+import com.github.mikucat0309.command.CommandSource;
+import com.github.mikucat0309.command.spec.CommandSpec;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class ParseProfilerTest {
+
+    private static final CommandSource TEST_SOURCE = Mockito.mock(CommandSource.class);
+
+    private static CommandContext parse(ParseProfiler profiler, CommandSpec spec, String input) throws ArgumentParseException {
+        var context = new CommandContext();
+        profiler.populateContext("profiled", spec, TEST_SOURCE, spec.tokenize(input), context);
+        return context;
+    }
+
+    @Test
+    void recordsEveryElementOfTheTree() throws ArgumentParseException {
+        var spec = CommandSpec.builder()
+                .arguments(flags().flag("a").buildWith(firstParsing(integer("num"), string("word"))))
+                .executor((src, args) -> CommandResult.success())
+                .build();
+        var profiler = new ParseProfiler();
+
+        assertEquals("hello", parse(profiler, spec, "-a hello").requireOne("word"));
+        assertEquals(5, (int) parse(profiler, spec, "-a 5").requireOne("num"));
+        parse(profiler, spec, "hello");
+        assertThrows(ArgumentParseException.class, () -> parse(profiler, spec, "-a"));
+
+        List<String> lines = Arrays.stream(profiler.report(spec).split("\n")).map(String::strip).collect(Collectors.toList());
+        assertTrue(lines.get(0).startsWith("profiled: 4 calls"), lines.get(0));
+        assertTrue(lines.get(0).contains("1 failed"), lines.get(0));
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("num (NumericElement): 4 calls") && line.contains("3 failed")),
+                String.join("\n", lines));
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("FirstParsingCommandElement: 4 calls")
+                && line.contains("1 failed") && line.contains("4 backtracks") && line.contains("7 snapshots")), String.join("\n", lines));
+
+        // Parsing without the profiler leaves the report alone
+        var context = new CommandContext();
+        spec.populateContext(TEST_SOURCE, spec.tokenize("-a hello"), context);
+        assertEquals(lines.get(0), profiler.report(spec).split("\n")[0].strip());
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.mikucat0309.command.dispatcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.mikucat0309.command.CommandException;
+import com.github.mikucat0309.command.CommandMapping;
+import com.github.mikucat0309.command.CommandResult;
+import com.github.mikucat0309.command.CommandSource;
+import com.github.mikucat0309.command.spec.CommandSpec;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+
+class SimpleDispatcherTest {
+
+    private static CommandSpec spec() {
+        return CommandSpec.builder()
+                .executor((src, args) -> CommandResult.success())
+                .build();
+    }
+
+    @Test
+    void pointLookupsDoNotBuildViews() {
+        var dispatcher = new SimpleDispatcher();
+        for (int i = 0; i < 100; i++) {
+            // The lookups the manager makes around every registration
+            assertTrue(dispatcher.getAll("cmd" + i).isEmpty());
+            dispatcher.register(spec(), "cmd" + i, "c" + i);
+            assertTrue(dispatcher.get("cmd" + i).isPresent());
+            assertTrue(dispatcher.containsAlias("c" + i));
+            assertTrue(dispatcher.find("c" + i, mapping -> true).isPresent());
+            assertEquals(1, dispatcher.getAll("c" + i).size());
+        }
+        assertFalse(dispatcher.hasCachedViews());
+
+        assertEquals(200, dispatcher.getAll().size());
+        assertTrue(dispatcher.hasCachedViews());
+        dispatcher.register(spec(), "another");
+        assertFalse(dispatcher.hasCachedViews());
+    }
+
+    @Test
+    void viewsAreCachedUntilRegistryChanges() {
+        var dispatcher = new SimpleDispatcher();
+        dispatcher.register(spec(), "first", "f");
+
+        var version = dispatcher.getVersion();
+        var all = dispatcher.getAll();
+        var commands = dispatcher.getCommands();
+        var aliases = dispatcher.getAliases();
+        var primaryAliases = dispatcher.getPrimaryAliases();
+        assertSame(all, dispatcher.getAll());
+        assertSame(commands, dispatcher.getCommands());
+        assertSame(aliases, dispatcher.getAliases());
+        assertSame(primaryAliases, dispatcher.getPrimaryAliases());
+        assertEquals(version, dispatcher.getVersion());
+
+        var mapping = dispatcher.register(spec(), "second").get();
+        assertNotEquals(version, dispatcher.getVersion());
+        assertNotSame(all, dispatcher.getAll());
+        assertEquals(ImmutableSet.of("first", "f", "second"), dispatcher.getAliases());
+        assertEquals(ImmutableSet.of("first", "second"), dispatcher.getPrimaryAliases());
+        assertTrue(dispatcher.containsMapping(mapping));
+
+        version = dispatcher.getVersion();
+        dispatcher.removeMapping(mapping);
+        assertNotEquals(version, dispatcher.getVersion());
+        assertFalse(dispatcher.containsAlias("second"));
+        assertFalse(dispatcher.containsMapping(mapping));
+    }
+
+    @Test
+    void failedRemovalKeepsVersion() {
+        var dispatcher = new SimpleDispatcher();
+        dispatcher.register(spec(), "first");
+
+        var version = dispatcher.getVersion();
+        assertTrue(dispatcher.remove("missing").isEmpty());
+        assertFalse(dispatcher.removeAll(ImmutableSet.of("missing")));
+        assertEquals(version, dispatcher.getVersion());
+    }
+
+    @Test
+    void aliasFilterRejectsUnknownAliases() {
+        var dispatcher = new SimpleDispatcher();
+        for (int i = 0; i < 1000; i++) {
+            dispatcher.register(spec(), "cmd" + i);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(dispatcher.mightContainAlias("CMD" + i));
+        }
+        var falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (dispatcher.mightContainAlias("unknown" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50, "too many false positives: " + falsePositives);
+
+        for (int i = 0; i < 1000; i++) {
+            dispatcher.remove("cmd" + i);
+        }
+        assertFalse(dispatcher.mightContainAlias("cmd0"));
+    }
+
+    @Test
+    void registryStaysConsistentAcrossGrowthAndRemoval() throws CommandException {
+        var dispatcher = new SimpleDispatcher();
+        var mappings = new ArrayList<CommandMapping>();
+        for (int i = 0; i < 5000; i++) {
+            mappings.add(dispatcher.register(spec(), "cmd" + i, "c" + i, "shared").get());
+        }
+        assertEquals(15000, dispatcher.size());
+        assertEquals(5000, dispatcher.getAll("shared").size());
+        assertSame(mappings.get(0), dispatcher.get("shared").get());
+
+        for (int i = 0; i < 5000; i += 2) {
+            dispatcher.removeMapping(mappings.get(i));
+        }
+        assertTrue(dispatcher.remove("c1").contains(mappings.get(1)));
+        assertEquals(2500, dispatcher.getAll("shared").size());
+        assertEquals(7499, dispatcher.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i % 2 == 1, dispatcher.containsAlias("CMD" + i));
+            assertEquals(i % 2 == 1 && i != 1, dispatcher.get("c" + i).isPresent());
+        }
+        assertEquals(ImmutableList.of("cmd499", "cmd4991", "cmd4993", "cmd4995", "cmd4997", "cmd4999"),
+                dispatcher.getSuggestions(Mockito.mock(CommandSource.class), "cmd499"));
+
+        dispatcher.removeMappings(mappings);
+        assertEquals(0, dispatcher.size());
+        assertFalse(dispatcher.containsAlias("shared"));
+        assertTrue(dispatcher.getCommands().isEmpty());
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.mikucat0309.command.execution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.mikucat0309.command.CommandRejectedException;
+import com.github.mikucat0309.command.CommandSource;
+import com.github.mikucat0309.command.MetaData;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+class AdmissionControllerTest {
+
+    private static CommandSource source(String name) {
+        return new CommandSource() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public void sendMessage(String message) {
+            }
+
+            @Override
+            public Optional<CommandSource> getCommandSource() {
+                return Optional.empty();
+            }
+        };
+    }
+
+    @Test
+    void sourcesHaveSeparateBuckets() throws CommandRejectedException {
+        var controller = new AdmissionController(RateLimit.of(0.001, 2), null, null);
+        var spammer = source("spammer");
+        controller.admit(spammer, "cmd", null, Optional.empty());
+        controller.admit(spammer, "cmd", null, Optional.empty());
+        var rejected = assertThrows(CommandRejectedException.class,
+                () -> controller.admit(spammer, "cmd", null, Optional.empty()));
+        assertEquals(0, rejected.getStackTrace().length);
+
+        controller.admit(source("other"), "cmd", null, Optional.empty());
+        assertEquals(3, controller.getAdmitted());
+        assertEquals(1, controller.getShedBySource());
+    }
+
+    @Test
+    void specLimitOverridesDefaultCommandLimit() throws CommandRejectedException {
+        var controller = new AdmissionController(null, null, RateLimit.of(1000, 1000));
+        controller.admit(source("a"), "slow", null, Optional.of(RateLimit.of(0.001, 1)));
+        assertThrows(CommandRejectedException.class,
+                () -> controller.admit(source("b"), "slow", null, Optional.of(RateLimit.of(0.001, 1))));
+        controller.admit(source("b"), "fast", null, Optional.empty());
+        assertEquals(1, controller.getShedByCommand());
+    }
+
+    @Test
+    void pluginLimitIsSharedByItsCommands() throws CommandRejectedException {
+        var controller = new AdmissionController(null, RateLimit.of(0.001, 1), null);
+        var plugin = new MetaData("plugin");
+        controller.admit(source("a"), "first", plugin, Optional.empty());
+        assertThrows(CommandRejectedException.class,
+                () -> controller.admit(source("a"), "second", plugin, Optional.empty()));
+        assertEquals(1, controller.getShedByPlugin());
+    }
+
+    @Test
+    void suggestionsDoNotConsumeCommandPermits() throws CommandRejectedException {
+        var controller = new AdmissionController(RateLimit.of(0.001, 1), null, null);
+        var player = source("player");
+        assertTrue(controller.admitSuggestions(player));
+        assertFalse(controller.admitSuggestions(player));
+        controller.admit(player, "cmd", null, Optional.empty());
+        assertEquals(1, controller.getShed());
+    }
+
+    @Test
+    void shedRequestsReturnTheirTokens() throws CommandRejectedException {
+        var controller = new AdmissionController(RateLimit.of(0.001, 1), RateLimit.of(0.001, 1), RateLimit.of(0.001, 1));
+        var plugin = new MetaData("plugin");
+        var player = source("player");
+        controller.admit(source("other"), "busy", plugin, Optional.of(RateLimit.of(1000, 1000)));
+        controller.admit(source("another"), "taken", null, Optional.empty());
+
+        // Shed by the plugin and then by the command, the source still has its only token afterwards
+        assertThrows(CommandRejectedException.class, () -> controller.admit(player, "cmd", plugin, Optional.empty()));
+        assertThrows(CommandRejectedException.class, () -> controller.admit(player, "taken", null, Optional.empty()));
+        controller.admit(player, "cmd", null, Optional.empty());
+        assertEquals(1, controller.getShedByPlugin());
+        assertEquals(1, controller.getShedByCommand());
+    }
+}
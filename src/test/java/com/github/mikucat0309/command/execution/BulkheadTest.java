@@ -0,0 +1,127 @@
+package com.github.mikucat0309.command.execution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.mikucat0309.command.CommandException;
+import com.github.mikucat0309.command.CommandRejectedException;
+import com.github.mikucat0309.command.CommandTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+class BulkheadTest {
+
+    @Test
+    void circuitOpensAfterRepeatedFailures() throws Exception {
+        var bulkhead = new Bulkhead("plugin", 4, 0, new CircuitBreaker(3, Duration.ofMillis(50)));
+        for (int i = 0; i < 3; i++) {
+            bulkhead.release(bulkhead.acquire(), new IllegalStateException());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, bulkhead.getState());
+        assertThrows(CommandRejectedException.class, bulkhead::acquire);
+        assertEquals(1, bulkhead.getShortCircuited());
+
+        Thread.sleep(60);
+        var trial = bulkhead.acquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, bulkhead.getState());
+        // Only one trial call is let through while half open
+        assertThrows(CommandRejectedException.class, bulkhead::acquire);
+        bulkhead.release(trial, null);
+        assertEquals(CircuitBreaker.State.CLOSED, bulkhead.getState());
+        assertEquals(3, bulkhead.getFailed());
+    }
+
+    @Test
+    void usageErrorsDoNotOpenTheCircuit() throws Exception {
+        var bulkhead = new Bulkhead("plugin", 4, 0, new CircuitBreaker(1, Duration.ofMinutes(1)));
+        bulkhead.release(bulkhead.acquire(), new CommandException("bad input"));
+        assertEquals(CircuitBreaker.State.CLOSED, bulkhead.getState());
+
+        bulkhead.release(bulkhead.acquire(), new CommandTimeoutException(Duration.ofSeconds(1)));
+        assertEquals(CircuitBreaker.State.OPEN, bulkhead.getState());
+        assertEquals(1, bulkhead.getTimedOut());
+    }
+
+    @Test
+    void queueIsBounded() throws Exception {
+        var bulkhead = new Bulkhead("plugin", 1, 1, new CircuitBreaker(1, Duration.ofMinutes(1)));
+        var ticket = bulkhead.acquire();
+        var waiting = new CountDownLatch(1);
+        var waiter = new Thread(() -> {
+            try {
+                waiting.countDown();
+                bulkhead.release(bulkhead.acquire(), null);
+            } catch (CommandException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        waiter.start();
+        waiting.await();
+        while (bulkhead.getQueued() == 0) {
+            Thread.onSpinWait();
+        }
+        assertThrows(CommandRejectedException.class, bulkhead::acquire);
+        assertEquals(1, bulkhead.getRejected());
+
+        bulkhead.release(ticket, null);
+        waiter.join();
+        assertEquals(0, bulkhead.getActive());
+        assertEquals(CircuitBreaker.State.CLOSED, bulkhead.getState());
+    }
+
+    @Test
+    void submittedTasksWaitInTheQueueInsteadOfOnTheExecutor() {
+        var bulkhead = new Bulkhead("plugin", 1, 1, new CircuitBreaker(1, Duration.ofMinutes(1)));
+        var handedOff = new ArrayList<Runnable>();
+        Executor executor = task -> {
+            handedOff.add(task);
+            task.run();
+        };
+        var running = new CompletableFuture<String>();
+        var first = bulkhead.submit(executor, ticket -> running.whenComplete((value, thr) -> bulkhead.release(ticket, thr)));
+        var second = bulkhead.submit(executor, ticket -> {
+            bulkhead.release(ticket, null);
+            return CompletableFuture.completedFuture("second");
+        });
+        var third = bulkhead.submit(executor, ticket -> CompletableFuture.completedFuture("third"));
+
+        assertEquals(1, handedOff.size());
+        assertEquals(1, bulkhead.getQueued());
+        var rejected = assertThrows(CompletionException.class, third::join);
+        assertTrue(rejected.getCause() instanceof CommandRejectedException);
+        assertEquals(1, bulkhead.getRejected());
+
+        running.complete("first");
+        assertEquals("first", first.join());
+        assertEquals("second", second.join());
+        assertEquals(2, handedOff.size());
+        assertEquals(0, bulkhead.getQueued());
+        assertEquals(0, bulkhead.getActive());
+        assertEquals(CircuitBreaker.State.CLOSED, bulkhead.getState());
+    }
+
+    @Test
+    void tasksRefusedByTheExecutorGiveTheirSlotBack() {
+        var bulkhead = new Bulkhead("plugin", 1, 0, new CircuitBreaker(1, Duration.ofMinutes(1)));
+        var refused = bulkhead.submit(task -> {
+            throw new RejectedExecutionException();
+        }, ticket -> CompletableFuture.completedFuture("never"));
+        var thrown = assertThrows(CompletionException.class, refused::join);
+        assertTrue(thrown.getCause() instanceof CommandRejectedException);
+        assertEquals(0, bulkhead.getActive());
+
+        var ran = bulkhead.submit(Runnable::run, ticket -> {
+            bulkhead.release(ticket, null);
+            return CompletableFuture.completedFuture("ran");
+        });
+        assertEquals("ran", ran.join());
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.mikucat0309.command.execution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+class CircuitBreakerTest {
+
+    @Test
+    void lateSuccessDoesNotCloseAnOpenCircuit() {
+        var breaker = new CircuitBreaker(1, Duration.ofMinutes(1));
+        var slow = breaker.tryAcquire();
+        breaker.onFailure(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        breaker.onSuccess(slow);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REFUSED, breaker.tryAcquire());
+    }
+
+    @Test
+    void onlyTheTrialCallDecidesTheHalfOpenState() {
+        var breaker = new CircuitBreaker(1, Duration.ZERO);
+        var slow = breaker.tryAcquire();
+        breaker.onFailure(breaker.tryAcquire());
+
+        var trial = breaker.tryAcquire();
+        assertNotEquals(CircuitBreaker.REFUSED, trial);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // A call admitted before the circuit opened neither ends nor frees the trial
+        breaker.onFailure(slow);
+        breaker.onSkipped(slow);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REFUSED, breaker.tryAcquire());
+
+        breaker.onSuccess(trial);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        // The trial ticket belongs to the half open state and is spent now
+        breaker.onFailure(trial);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void skippedTrialLetsTheNextCallTry() {
+        var breaker = new CircuitBreaker(1, Duration.ZERO);
+        breaker.onFailure(breaker.tryAcquire());
+        breaker.onSkipped(breaker.tryAcquire());
+        var trial = breaker.tryAcquire();
+        assertNotEquals(CircuitBreaker.REFUSED, trial);
+        breaker.onFailure(trial);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
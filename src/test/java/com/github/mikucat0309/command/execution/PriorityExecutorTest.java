@@ -0,0 +1,74 @@
+package com.github.mikucat0309.command.execution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.mikucat0309.command.CommandPriority;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+class PriorityExecutorTest {
+
+    private static Runnable await(CountDownLatch latch) {
+        return () -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    @Test
+    void higherPrioritiesRunFirst() throws InterruptedException {
+        var executor = new PriorityExecutor("priority-test", 1, 100, Duration.ofMinutes(1));
+        var gate = new CountDownLatch(1);
+        var order = Collections.synchronizedList(new ArrayList<CommandPriority>());
+        executor.execute(await(gate));
+        executor.execute(CommandPriority.LOW, () -> order.add(CommandPriority.LOW));
+        executor.execute(CommandPriority.NORMAL, () -> order.add(CommandPriority.NORMAL));
+        executor.withPriority(CommandPriority.HIGH).execute(() -> order.add(CommandPriority.HIGH));
+        gate.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(Duration.ofSeconds(5)));
+        assertEquals(List.of(CommandPriority.HIGH, CommandPriority.NORMAL, CommandPriority.LOW), order);
+    }
+
+    @Test
+    void starvingTasksRunAhead() throws InterruptedException {
+        var executor = new PriorityExecutor("priority-test", 1, 100, Duration.ofMillis(20));
+        var gate = new CountDownLatch(1);
+        var order = Collections.synchronizedList(new ArrayList<CommandPriority>());
+        executor.execute(await(gate));
+        executor.execute(CommandPriority.LOW, () -> order.add(CommandPriority.LOW));
+        Thread.sleep(50);
+        executor.execute(CommandPriority.HIGH, () -> order.add(CommandPriority.HIGH));
+        gate.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(Duration.ofSeconds(5)));
+        assertEquals(List.of(CommandPriority.LOW, CommandPriority.HIGH), order);
+    }
+
+    @Test
+    void fullQueuesOnlyRejectTheirPriority() throws InterruptedException {
+        var executor = new PriorityExecutor("priority-test", 1, 2, Duration.ofMinutes(1));
+        var gate = new CountDownLatch(1);
+        executor.execute(await(gate));
+        Thread.sleep(20);
+        executor.execute(() -> { });
+        executor.execute(() -> { });
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+        executor.execute(CommandPriority.HIGH, () -> { });
+        assertEquals(1, executor.getQueued(CommandPriority.HIGH));
+        gate.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(Duration.ofSeconds(5)));
+    }
+}
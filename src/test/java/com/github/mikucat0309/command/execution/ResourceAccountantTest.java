@@ -0,0 +1,69 @@
+package com.github.mikucat0309.command.execution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+
+class ResourceAccountantTest {
+
+    private static long burnCpu(Duration duration) {
+        var end = System.nanoTime() + duration.toNanos();
+        long acc = 0;
+        while (System.nanoTime() < end) {
+            acc += acc * 31 + 7;
+        }
+        return acc;
+    }
+
+    @Test
+    void usageIsAttributedToPluginAndAlias() {
+        var accountant = new ResourceAccountant(1, null);
+        var sample = accountant.start();
+        burnCpu(Duration.ofMillis(20));
+        var garbage = new ArrayList<byte[]>();
+        for (int i = 0; i < 16; i++) {
+            garbage.add(new byte[64 * 1024]);
+        }
+        accountant.record(sample, "plugin", "cmd");
+        accountant.record(accountant.start(), null, "cmd");
+
+        var plugin = accountant.getPluginUsage("plugin").get();
+        assertEquals(1, plugin.getInvocations());
+        assertTrue(plugin.getSampledCpuNanos() >= Duration.ofMillis(5).toNanos());
+        if (ResourceAccountant.isAllocationAccountingSupported()) {
+            assertTrue(plugin.getSampledAllocatedBytes() >= 16 * 64 * 1024, "allocated " + plugin.getSampledAllocatedBytes());
+        }
+        assertEquals(2, accountant.getAliasUsage("cmd").get().getInvocations());
+        assertEquals(16, garbage.size());
+    }
+
+    @Test
+    void samplingMeasuresSomeInvocations() {
+        var accountant = new ResourceAccountant(8, null);
+        for (int i = 0; i < 800; i++) {
+            accountant.record(accountant.start(), "plugin", "cmd");
+        }
+        var usage = accountant.getPluginUsage("plugin").get();
+        assertEquals(800, usage.getInvocations());
+        assertTrue(usage.getSamples() > 0 && usage.getSamples() < 400, "samples " + usage.getSamples());
+    }
+
+    @Test
+    void pluginsOverQuotaAreThrottled() {
+        var accountant = new ResourceAccountant(1, ResourceQuota.of(Duration.ofMillis(5), Long.MAX_VALUE));
+        assertFalse(accountant.isThrottled("hog"));
+        var sample = accountant.start();
+        burnCpu(Duration.ofMillis(20));
+        accountant.record(sample, "hog", "cmd");
+        accountant.record(accountant.start(), "polite", "other");
+
+        assertTrue(accountant.isThrottled("hog"));
+        assertFalse(accountant.isThrottled("polite"));
+        assertEquals(1, accountant.getThrottled());
+    }
+}
@@ -0,0 +1,212 @@
+package com.github.mikucat0309.command.execution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.mikucat0309.command.CommandPriority;
+import com.github.mikucat0309.command.CommandRejectedException;
+import com.github.mikucat0309.command.CommandSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+class SourceMailboxesTest {
+
+    private static CommandSource source(String name) {
+        return new CommandSource() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public void sendMessage(String message) {
+            }
+
+            @Override
+            public Optional<CommandSource> getCommandSource() {
+                return Optional.empty();
+            }
+        };
+    }
+
+    @Test
+    void tasksOfOneSourceRunInOrder() {
+        var mailboxes = new SourceMailboxes(1000, SourceMailboxes.OverflowPolicy.REJECT);
+        var seen = Collections.synchronizedList(new ArrayList<Integer>());
+        var source = source("ordered");
+        var futures = new ArrayList<CompletableFuture<Integer>>();
+        for (int i = 0; i < 200; i++) {
+            var value = i;
+            futures.add(mailboxes.submit(source, () -> CompletableFuture.supplyAsync(() -> {
+                seen.add(value);
+                return value;
+            }, ForkJoinPool.commonPool())));
+        }
+        futures.forEach(CompletableFuture::join);
+        assertEquals(IntStream.range(0, 200).boxed().collect(Collectors.toList()), seen);
+    }
+
+    @Test
+    void blockedSourceDoesNotBlockOthers() {
+        var mailboxes = new SourceMailboxes(10, SourceMailboxes.OverflowPolicy.REJECT);
+        var slow = source("slow");
+        var blocker = new CompletableFuture<String>();
+        var blocked = mailboxes.submit(slow, () -> blocker);
+        var queued = mailboxes.submit(slow, () -> CompletableFuture.completedFuture("second"));
+
+        assertEquals("other", mailboxes.submit(source("fast"), () -> CompletableFuture.completedFuture("other")).join());
+        assertFalse(blocked.isDone());
+        assertFalse(queued.isDone());
+
+        blocker.complete("first");
+        assertEquals("first", blocked.join());
+        assertEquals("second", queued.join());
+    }
+
+    @Test
+    void overflowPolicies() {
+        var rejecting = new SourceMailboxes(1, SourceMailboxes.OverflowPolicy.REJECT);
+        var full = source("full");
+        var blocker = new CompletableFuture<String>();
+        rejecting.submit(full, () -> blocker);
+        // wait until the first task has left the queue
+        while (rejecting.getPending(full) > 0) {
+            Thread.onSpinWait();
+        }
+        var queued = rejecting.submit(full, () -> CompletableFuture.completedFuture("queued"));
+        var rejected = rejecting.submit(full, () -> CompletableFuture.completedFuture("rejected"));
+        assertTrue(isRejected(rejected));
+        blocker.complete("done");
+        assertEquals("queued", queued.join());
+
+        var dropping = new SourceMailboxes(1, SourceMailboxes.OverflowPolicy.DROP_OLDEST);
+        var blocker2 = new CompletableFuture<String>();
+        dropping.submit(full, () -> blocker2);
+        while (dropping.getPending(full) > 0) {
+            Thread.onSpinWait();
+        }
+        var dropped = dropping.submit(full, () -> CompletableFuture.completedFuture("dropped"));
+        var newest = dropping.submit(full, () -> CompletableFuture.completedFuture("newest"));
+        assertTrue(isRejected(dropped));
+        blocker2.complete("done");
+        assertEquals("newest", newest.join());
+        rejecting.shutdown();
+        dropping.shutdown();
+    }
+
+    @Test
+    void sourcesSharingANameGetTheirOwnMailbox() {
+        var mailboxes = new SourceMailboxes(10, SourceMailboxes.OverflowPolicy.REJECT);
+        try {
+            var blocker = new CompletableFuture<String>();
+            var blocked = mailboxes.submit(source("Steve"), () -> blocker);
+            assertEquals("other", mailboxes.submit(source("Steve"), () -> CompletableFuture.completedFuture("other")).join());
+            // Sources without a name are keyed the same way
+            assertEquals("unnamed", mailboxes.submit(source(null), () -> CompletableFuture.completedFuture("unnamed")).join());
+            assertFalse(blocked.isDone());
+            blocker.complete("first");
+            assertEquals("first", blocked.join());
+        } finally {
+            mailboxes.shutdown();
+        }
+    }
+
+    @Test
+    void keyFunctionGroupsSources() {
+        var pool = ForkJoinPool.commonPool();
+        var mailboxes = new SourceMailboxes(pool, 10, SourceMailboxes.OverflowPolicy.REJECT, CommandSource::getName);
+        var blocker = new CompletableFuture<String>();
+        var blocked = mailboxes.submit(source("Steve"), () -> blocker);
+        var queued = mailboxes.submit(source("Steve"), () -> CompletableFuture.completedFuture("second"));
+        assertFalse(queued.isDone());
+        blocker.complete("first");
+        assertEquals("first", blocked.join());
+        assertEquals("second", queued.join());
+        assertThrows(NullPointerException.class, () -> mailboxes.submit(source(null), () -> CompletableFuture.completedFuture("unnamed")));
+    }
+
+    @Test
+    void shutdownRejectsLaterTasks() {
+        var mailboxes = new SourceMailboxes(10, SourceMailboxes.OverflowPolicy.REJECT);
+        assertEquals("before", mailboxes.submit(source("player"), () -> CompletableFuture.completedFuture("before")).join());
+        mailboxes.shutdown();
+        assertTrue(isRejected(mailboxes.submit(source("player"), () -> CompletableFuture.completedFuture("after"))));
+    }
+
+    @Test
+    void saturatedPriorityExecutorRejectsInsteadOfStalling() throws InterruptedException {
+        var pool = new PriorityExecutor("mailbox-test", 1, 1, Duration.ofSeconds(5));
+        try {
+            var mailboxes = new SourceMailboxes(pool, 10, SourceMailboxes.OverflowPolicy.REJECT);
+            var player = source("player");
+            var other = source("other");
+            var release = occupyWorker(pool);
+
+            // The only worker is busy, so the first drain takes the last queue slot
+            var started = new CountDownLatch(1);
+            var blocker = new CompletableFuture<String>();
+            var first = mailboxes.submit(player, () -> {
+                started.countDown();
+                return blocker;
+            });
+            var queued = mailboxes.submit(player, () -> CompletableFuture.completedFuture("queued"));
+            assertTrue(isRejected(mailboxes.submit(other, () -> CompletableFuture.completedFuture("rejected"))));
+
+            release.countDown();
+            started.await();
+            // Saturate the pool again before the blocker completes and the mailbox needs to be drained again
+            var refill = occupyWorker(pool);
+            pool.execute(() -> { });
+            blocker.complete("first");
+            assertEquals("first", first.join());
+            assertTrue(isRejected(queued));
+            refill.countDown();
+
+            // Neither source is stuck afterwards
+            while (pool.getQueued(CommandPriority.NORMAL) > 0) {
+                Thread.onSpinWait();
+            }
+            assertEquals("later", mailboxes.submit(player, () -> CompletableFuture.completedFuture("later")).join());
+            assertEquals("later", mailboxes.submit(other, () -> CompletableFuture.completedFuture("later")).join());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Blocks the single worker of the pool until the returned latch is released
+    private static CountDownLatch occupyWorker(PriorityExecutor pool) throws InterruptedException {
+        var release = new CountDownLatch(1);
+        var running = new CountDownLatch(1);
+        pool.execute(() -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        running.await();
+        return release;
+    }
+
+    private static boolean isRejected(CompletableFuture<?> future) {
+        try {
+            future.join();
+            return false;
+        } catch (CompletionException e) {
+            return e.getCause() instanceof CommandRejectedException;
+        }
+    }
+}
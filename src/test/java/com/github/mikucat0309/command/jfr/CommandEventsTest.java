@@ -0,0 +1,136 @@
+package com.github.mikucat0309.command.jfr;
+
+import static com.github.mikucat0309.command.args.GenericArguments.integer;
+import static com.github.mikucat0309.command.args.GenericArguments.string;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.mikucat0309.command.CommandManagerImpl;
+import com.github.mikucat0309.command.CommandResult;
+import com.github.mikucat0309.command.CommandSource;
+import com.github.mikucat0309.command.MetaData;
+import com.github.mikucat0309.command.execution.SourceMailboxes;
+import com.github.mikucat0309.command.spec.CommandSpec;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+class CommandEventsTest {
+
+    private static final CommandSource SOURCE = new CommandSource() {
+        @Override
+        public String getName() {
+            return "recorded";
+        }
+
+        @Override
+        public void sendMessage(String message) {
+        }
+
+        @Override
+        public Optional<CommandSource> getCommandSource() {
+            return Optional.empty();
+        }
+    };
+
+    private static List<RecordedEvent> record(Runnable action, String... eventNames) throws IOException {
+        var file = Files.createTempFile("commands", ".jfr");
+        try (var recording = new Recording()) {
+            for (var name : eventNames) {
+                recording.enable(name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void dispatchEventsNameTheFailingElement() throws IOException {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandEventsTest.class));
+        var events = record(() -> {
+            manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                    .arguments(string("name"), integer("amount"))
+                    .executor((src, args) -> CommandResult.success())
+                    .build(), "give");
+            manager.process(SOURCE, "give someone 5");
+            manager.process(SOURCE, "give someone lots");
+        }, "com.github.mikucat0309.command.Dispatch", "com.github.mikucat0309.command.Registration",
+                "com.github.mikucat0309.command.Tokenize");
+
+        var dispatches = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.github.mikucat0309.command.Dispatch"))
+                .collect(Collectors.toList());
+        assertEquals(2, dispatches.size());
+        assertEquals("give", dispatches.get(0).getString("alias"));
+        assertEquals("recorded", dispatches.get(0).getString("source"));
+        assertEquals(2, dispatches.get(0).getInt("tokens"));
+        assertFalse(dispatches.get(0).getBoolean("failed"));
+        assertTrue(dispatches.get(1).getBoolean("failed"));
+        assertEquals("amount", dispatches.get(1).getString("failedElement"));
+
+        var registration = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.github.mikucat0309.command.Registration"))
+                .findFirst().get();
+        assertEquals("testcmd", registration.getString("plugin"));
+        // Only the aliases that were registered, not every alias offered to the callback
+        assertEquals(manager.get("give").get().getAllAliases().size(), registration.getInt("aliases"));
+        assertEquals(1, registration.getInt("aliases"));
+        assertEquals(2, events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.github.mikucat0309.command.Tokenize"))
+                .count());
+    }
+
+    @Test
+    void asynchronousDispatchesAreRecorded() throws IOException {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandEventsTest.class));
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .arguments(string("name"), integer("amount"))
+                .executor((src, args) -> CommandResult.success())
+                .build(), "give");
+        var mailboxes = new SourceMailboxes(10, SourceMailboxes.OverflowPolicy.REJECT);
+        manager.setSourceMailboxes(mailboxes);
+        List<RecordedEvent> events;
+        try {
+            events = record(() -> {
+                manager.processAsync(SOURCE, "give someone 5").join();
+                // Goes through the mailbox of the source as well
+                manager.process(SOURCE, "give someone lots");
+            }, "com.github.mikucat0309.command.Dispatch");
+        } finally {
+            mailboxes.shutdown();
+        }
+
+        assertEquals(2, events.size());
+        var succeeded = events.stream().filter(event -> !event.getBoolean("failed")).findFirst().get();
+        assertEquals("give", succeeded.getString("alias"));
+        assertEquals("recorded", succeeded.getString("source"));
+        assertEquals(2, succeeded.getInt("tokens"));
+        var failed = events.stream().filter(event -> event.getBoolean("failed")).findFirst().get();
+        assertEquals("amount", failed.getString("failedElement"));
+    }
+
+    @Test
+    void eventsAreDisabledByDefault() throws IOException {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandEventsTest.class));
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .executor((src, args) -> CommandResult.success())
+                .build(), "quiet");
+        var events = record(() -> manager.process(SOURCE, "quiet"));
+        assertTrue(events.stream().noneMatch(event -> event.getEventType().getName().startsWith("com.github.mikucat0309.command.")));
+    }
+}
@@ -0,0 +1,157 @@
+package com.github.mikucat0309.command.journal;
+
+import static com.github.mikucat0309.command.args.GenericArguments.integer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.mikucat0309.command.CommandManagerImpl;
+import com.github.mikucat0309.command.CommandResult;
+import com.github.mikucat0309.command.CommandSource;
+import com.github.mikucat0309.command.MetaData;
+import com.github.mikucat0309.command.metrics.CommandMetrics;
+import com.github.mikucat0309.command.spec.CommandSpec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+class CommandJournalTest {
+
+    private static final CommandSource CONSOLE = new CommandSource() {
+        @Override
+        public String getName() {
+            return "console";
+        }
+
+        @Override
+        public void sendMessage(String message) {
+        }
+
+        @Override
+        public Optional<CommandSource> getCommandSource() {
+            return Optional.empty();
+        }
+    };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsAreReadBackAcrossSegments() throws IOException {
+        try (var journal = new CommandJournal(this.directory, 256)) {
+            for (int i = 0; i < 50; i++) {
+                assertTrue(journal.append(1000L + i, "source" + i % 3, "cmd " + i, CommandMetrics.Outcome.SUCCESS, i));
+            }
+            assertFalse(journal.append(0, "source", "x".repeat(300), CommandMetrics.Outcome.SUCCESS, 0));
+            assertEquals(50, journal.getAppended());
+            assertEquals(1, journal.getDropped());
+        }
+        assertTrue(CommandJournal.segments(this.directory).size() > 1);
+
+        List<JournalRecord> records = JournalReader.stream(this.directory).collect(Collectors.toList());
+        assertEquals(50, records.size());
+        for (int i = 0; i < 50; i++) {
+            var record = records.get(i);
+            assertEquals(1000L + i, record.getTimestampMillis());
+            assertEquals("source" + i % 3, record.getSourceName());
+            assertEquals("cmd " + i, record.getCommandLine());
+            assertEquals("cmd", record.getAlias());
+            assertEquals(i, record.getLatency().toNanos());
+        }
+
+        // Reopening continues in a new segment instead of overwriting
+        try (var journal = new CommandJournal(this.directory, 256)) {
+            journal.append(0, "again", "reopened", CommandMetrics.Outcome.REJECTED, 0);
+        }
+        records = JournalReader.stream(this.directory).collect(Collectors.toList());
+        assertEquals(51, records.size());
+        assertEquals(CommandMetrics.Outcome.REJECTED, records.get(50).getOutcome());
+    }
+
+    @Test
+    void concurrentWritersLoseNothing() throws Exception {
+        var threads = new ArrayList<Thread>();
+        try (var journal = new CommandJournal(this.directory, 4096)) {
+            for (int t = 0; t < 8; t++) {
+                var name = "writer" + t;
+                var thread = new Thread(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        journal.append(i, name, "cmd " + i, CommandMetrics.Outcome.SUCCESS, 0);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (var thread : threads) {
+                thread.join();
+            }
+        }
+        var lastPerWriter = new HashMap<String, Long>();
+        var count = 0;
+        try (var records = JournalReader.stream(this.directory)) {
+            for (var record : (Iterable<JournalRecord>) records::iterator) {
+                count++;
+                var previous = lastPerWriter.put(record.getSourceName(), record.getTimestampMillis());
+                assertTrue(previous == null || previous < record.getTimestampMillis(), "records of one writer stay in order");
+            }
+        }
+        assertEquals(16_000, count);
+    }
+
+    @Test
+    void managerJournalsEveryOutcome() throws IOException {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandJournalTest.class));
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .arguments(integer("value"))
+                .executor((src, args) -> CommandResult.success())
+                .build(), "journaled");
+        try (var journal = new CommandJournal(this.directory, 1 << 16)) {
+            manager.setJournal(journal);
+            manager.process(CONSOLE, "journaled 1");
+            manager.process(CONSOLE, "journaled one");
+            manager.process(CONSOLE, "unknown");
+            manager.processAsync(CONSOLE, "journaled 2").join();
+        }
+
+        var records = JournalReader.stream(this.directory).collect(Collectors.toList());
+        assertEquals(List.of("journaled 1", "journaled one", "unknown", "journaled 2"),
+                records.stream().map(JournalRecord::getCommandLine).collect(Collectors.toList()));
+        assertEquals(List.of(CommandMetrics.Outcome.SUCCESS, CommandMetrics.Outcome.PARSE_ERROR, CommandMetrics.Outcome.NOT_FOUND,
+                CommandMetrics.Outcome.SUCCESS), records.stream().map(JournalRecord::getOutcome).collect(Collectors.toList()));
+        assertTrue(records.stream().allMatch(record -> record.getSourceName().equals("console")));
+    }
+
+    @Test
+    void timestampsAreTakenWhenTheCommandArrives() throws IOException {
+        var manager = new CommandManagerImpl(LoggerFactory.getLogger(CommandJournalTest.class));
+        manager.register(new MetaData("testcmd"), CommandSpec.builder()
+                .executor((src, args) -> {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return CommandResult.success();
+                })
+                .build(), "slow");
+        long before;
+        try (var journal = new CommandJournal(this.directory, 1 << 16)) {
+            manager.setJournal(journal);
+            before = System.currentTimeMillis();
+            manager.process(CONSOLE, "slow");
+        }
+
+        var record = JournalReader.stream(this.directory).findFirst().get();
+        assertTrue(record.getTimestampMillis() >= before);
+        assertTrue(record.getTimestampMillis() < before + 150, "Journaled at completion: " + (record.getTimestampMillis() - before) + " ms");
+        assertTrue(record.getLatency().toMillis() >= 200);
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.mikucat0309.command.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsCoverTheirValues() {
+        for (long value : new long[] {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE}) {
+            var bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.upperBoundOf(bucket), "value " + value);
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBoundOf(bucket - 1), "value " + value);
+            assertTrue(bucket < LatencyHistogram.BUCKETS);
+        }
+    }
+
+    @Test
+    void percentilesAreWithinBucketPrecision() {
+        var histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        var snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        var p50 = snapshot.getPercentile(50).toNanos();
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.125, "p50 " + p50);
+        var p99 = snapshot.getPercentile(99).toNanos();
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000, "p99 " + p99);
+        assertEquals(Duration.ofNanos(1_000_000), snapshot.getMax());
+        assertEquals(Duration.ofNanos(500_500), snapshot.getMean());
+    }
+
+    @Test
+    void concurrentRecordingIsNotLost() throws InterruptedException {
+        var histogram = new LatencyHistogram();
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            var thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, histogram.snapshot().getCount());
+    }
+
+    @Test
+    void mergedSnapshotsCombineCounts() {
+        var low = new LatencyHistogram();
+        var high = new LatencyHistogram();
+        for (int i = 1; i <= 99; i++) {
+            low.record(1000);
+        }
+        high.record(1_000_000);
+        var merged = low.snapshot().merge(high.snapshot());
+        assertEquals(100, merged.getCount());
+        assertEquals(Duration.ofNanos(1_000_000), merged.getMax());
+        var p99 = merged.getPercentile(99).toNanos();
+        assertTrue(p99 >= 1000 && p99 <= 1000 * 1.125, "p99 " + p99);
+        assertEquals(Duration.ofNanos(1_000_000), merged.getPercentile(100));
+    }
+}
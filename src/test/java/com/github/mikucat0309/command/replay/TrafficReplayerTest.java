@@ -0,0 +1,78 @@
+package com.github.mikucat0309.command.replay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.mikucat0309.command.journal.CommandJournal;
+import com.github.mikucat0309.command.metrics.CommandMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+class TrafficReplayerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void textRecordingsAreRelativeToTheFirstLine() throws IOException {
+        var file = this.directory.resolve("recording.txt");
+        Files.writeString(file, "# recorded on a test server\n"
+                + "1000\tconsole\tgive Steve 1\n"
+                + "\n"
+                + "1250\tplayer\tkick Bob spamming\n"
+                + "say hello\n");
+        var records = ReplayLog.read(file);
+        assertEquals(3, records.size());
+        assertEquals(0, records.get(0).getOffsetNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(250), records.get(1).getOffsetNanos());
+        assertEquals("player", records.get(1).getSourceName());
+        assertEquals("kick", records.get(1).getAlias());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(251), records.get(2).getOffsetNanos());
+        assertEquals("console", records.get(2).getSourceName());
+    }
+
+    @Test
+    void journalRecordingsAreReplayedInArrivalOrder() throws IOException {
+        try (var journal = new CommandJournal(this.directory, 1 << 16)) {
+            // The slow command arrived first but completed last
+            journal.append(2100, "console", "fast", CommandMetrics.Outcome.SUCCESS, 0);
+            journal.append(2000, "console", "slow", CommandMetrics.Outcome.SUCCESS, 0);
+            journal.append(2050, "console", "medium", CommandMetrics.Outcome.SUCCESS, 0);
+        }
+        var records = ReplayLog.read(this.directory);
+        assertEquals(List.of("slow", "medium", "fast"), records.stream().map(ReplayRecord::getCommandLine).collect(Collectors.toList()));
+        assertEquals(0, records.get(0).getOffsetNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), records.get(2).getOffsetNanos());
+    }
+
+    @Test
+    void bothModesReplayEveryCommand() throws InterruptedException {
+        var records = List.of(
+                new ReplayRecord(0, "console", "give Steve 1"),
+                new ReplayRecord(TimeUnit.MILLISECONDS.toNanos(1), "player", "kick Bob"),
+                new ReplayRecord(TimeUnit.MILLISECONDS.toNanos(2), "player", "list"));
+
+        var open = TrafficReplayer.builder().speed(10).loops(50).threads(2).build().run(records);
+        assertEquals(150, open.getCompleted());
+        assertEquals(150, (long) open.getOutcomes().get(CommandMetrics.Outcome.SUCCESS));
+        assertEquals(0, open.getErrors());
+
+        var closed = TrafficReplayer.builder()
+                .mode(TrafficReplayer.Mode.CLOSED_LOOP)
+                .concurrency(4)
+                .loops(100)
+                .build()
+                .run(records);
+        assertEquals(300, closed.getCompleted());
+        assertEquals(0, closed.getErrors());
+        assertTrue(closed.getThroughput() > 0);
+        assertTrue(closed.toString().contains("throughput"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.mikucat0309.command.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class BkTreeTest {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE / 2;
+
+    @Test
+    void testDistance() {
+        assertEquals(0, BkTree.distance("tell", "tell"));
+        assertEquals(1, BkTree.distance("tell", "tel"));
+        assertEquals(2, BkTree.distance("tell", "tlel"));
+        assertEquals(3, BkTree.distance("kitten", "sitting"));
+        assertEquals(4, BkTree.distance("", "time"));
+    }
+
+    @Test
+    void testSearchOrdersByDistance() {
+        var tree = new BkTree();
+        for (String term : List.of("help", "hello", "held", "world", "word", "sword")) {
+            tree.add(term);
+        }
+        assertEquals(List.of("held", "hello", "help"), tree.search("helo", 1, 5, System.nanoTime() + NO_DEADLINE));
+        assertEquals(List.of("held", "help", "hello"), tree.search("hel", 2, 5, System.nanoTime() + NO_DEADLINE));
+        assertEquals(List.of("word"), tree.search("wrd", 1, 5, System.nanoTime() + NO_DEADLINE));
+        assertEquals(List.of("held"), tree.search("helo", 2, 1, System.nanoTime() + NO_DEADLINE));
+    }
+
+    @Test
+    void testRemoveIsCounted() {
+        var tree = new BkTree();
+        tree.add("spawn");
+        tree.add("spawn");
+        tree.add("span");
+        assertTrue(tree.remove("spawn"));
+        assertEquals(List.of("spawn", "span"), tree.search("spawn", 1, 5, System.nanoTime() + NO_DEADLINE));
+        assertTrue(tree.remove("spawn"));
+        assertFalse(tree.remove("spawn"));
+        assertEquals(List.of("span"), tree.search("spawn", 1, 5, System.nanoTime() + NO_DEADLINE));
+        assertEquals(1, tree.size());
+    }
+
+    @Test
+    void testRebuildKeepsLiveTerms() {
+        var tree = new BkTree();
+        for (int i = 0; i < 100; i++) {
+            tree.add("cmd" + i);
+        }
+        for (int i = 0; i < 90; i++) {
+            tree.remove("cmd" + i);
+        }
+        assertEquals(10, tree.size());
+        assertEquals(List.of("cmd95"), tree.search("cmd95", 0, 5, System.nanoTime() + NO_DEADLINE));
+        assertEquals(List.of(), tree.search("cmd5", 0, 5, System.nanoTime() + NO_DEADLINE));
+    }
+
+    @Test
+    void testSearchDoesNotWaitForWriters() throws Exception {
+        var tree = new BkTree();
+        tree.add("spawn");
+        // Writers hold the monitor of the tree, a search has to complete regardless
+        synchronized (tree) {
+            var search = CompletableFuture.supplyAsync(() -> tree.search("spwn", 1, 5, System.nanoTime() + NO_DEADLINE));
+            assertEquals(List.of("spawn"), search.get(10, TimeUnit.SECONDS));
+            assertEquals(1, tree.size());
+        }
+    }
+}